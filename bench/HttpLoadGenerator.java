@@ -0,0 +1,147 @@
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+public class HttpLoadGenerator {
+
+    private static String baseUrl = "http://localhost:8080/api";
+    private static String managerId = "M1";
+    private static String token = System.getProperty("leave.server.token", "");
+    private static int employees = 500;
+    private static int concurrency = 200;
+    private static long durationSeconds = 30;
+    private static double targetRps = 2_000;
+
+    private static final LeaveManagementApp.LatencyHistogram latencies = new LeaveManagementApp.LatencyHistogram();
+    private static final LongAdder successes = new LongAdder();
+    private static final LongAdder clientErrors = new LongAdder();
+    private static final LongAdder serverErrors = new LongAdder();
+
+    public static void main(String[] args) throws Exception {
+        for (String arg : args) {
+            if (arg.startsWith("--url=")) baseUrl = arg.substring(6).replaceAll("/+$", "");
+            else if (arg.startsWith("--manager=")) managerId = arg.substring(10);
+            else if (arg.startsWith("--token=")) token = arg.substring(8);
+            else if (arg.startsWith("--employees=")) employees = Integer.parseInt(arg.substring(12));
+            else if (arg.startsWith("--concurrency=")) concurrency = Integer.parseInt(arg.substring(14));
+            else if (arg.startsWith("--duration=")) durationSeconds = Long.parseLong(arg.substring(11));
+            else if (arg.startsWith("--target=")) targetRps = Double.parseDouble(arg.substring(9));
+            else {
+                System.err.println("Unknown option " + arg);
+                System.err.println("Options: --url=http://localhost:8080/api --manager=ID --token=TOKEN --employees=N --concurrency=N --duration=SECONDS --target=RPS");
+                System.exit(2);
+            }
+        }
+        if (token.isEmpty()) {
+            System.err.println("Pass --token=TOKEN with the server's leave.server.token");
+            System.exit(2);
+        }
+
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).executor(executor).connectTimeout(Duration.ofSeconds(5)).build();
+
+        System.out.printf("Seeding %d employees through %s%n", employees, baseUrl);
+        for (int i = 0; i < employees; i++) {
+            String body = String.format("{\"id\":\"%s\",\"name\":\"Load Test %d\"}", employeeId(i), i);
+            send(client, request("/employees")
+                    .header("X-Manager-Id", managerId).POST(HttpRequest.BodyPublishers.ofString(body)).build(), false);
+        }
+
+        System.out.printf("Running %d concurrent clients for %d s%n", concurrency, durationSeconds);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(durationSeconds);
+        long start = System.nanoTime();
+        List<java.util.concurrent.Future<?>> workers = new ArrayList<>();
+        for (int i = 0; i < concurrency; i++) {
+            workers.add(executor.submit(() -> {
+                while (System.nanoTime() < deadline) {
+                    runOne(client);
+                }
+                return null;
+            }));
+        }
+        for (java.util.concurrent.Future<?> worker : workers) worker.get();
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+        executor.shutdown();
+
+        long total = latencies.getCount();
+        double rps = total / elapsedSeconds;
+        System.out.println();
+        System.out.printf("requests      %d%n", total);
+        System.out.printf("throughput    %.1f req/s (target %.0f req/s) -> %s%n", rps, targetRps, rps >= targetRps ? "PASS" : "FAIL");
+        System.out.printf("2xx           %d%n", successes.sum());
+        System.out.printf("4xx           %d%n", clientErrors.sum());
+        System.out.printf("5xx/failures  %d (%.2f%%)%n", serverErrors.sum(), total == 0 ? 0 : 100.0 * serverErrors.sum() / total);
+        System.out.printf("latency p50   %.2f ms%n", latencies.getPercentile(50) / 1e6);
+        System.out.printf("latency p99   %.2f ms%n", latencies.getPercentile(99) / 1e6);
+        System.out.printf("latency max   %.2f ms%n", latencies.getMax() / 1e6);
+        System.exit(rps >= targetRps ? 0 : 1);
+    }
+
+    private static void runOne(HttpClient client) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String employeeId = employeeId(random.nextInt(employees));
+        int roll = random.nextInt(100);
+        if (roll < 50) {
+            send(client, request("/employees/" + employeeId + "/requests").GET().build(), true);
+        } else if (roll < 80) {
+            int day = 1 + random.nextInt(28);
+            String date = String.format("2026-%02d-%02d", 1 + random.nextInt(12), day);
+            String body = String.format("{\"employeeId\":\"%s\",\"leaveType\":\"Vacation\",\"startDate\":\"%s\",\"endDate\":\"%s\"}",
+                    employeeId, date, date);
+            send(client, request("/requests")
+                    .POST(HttpRequest.BodyPublishers.ofString(body)).build(), true);
+        } else if (roll < 95) {
+            send(client, request("/requests/pending?limit=50")
+                    .header("X-Manager-Id", managerId).GET().build(), true);
+        } else {
+            String page = send(client, request("/requests/pending?limit=1&employeeId=" + employeeId)
+                    .header("X-Manager-Id", managerId).GET().build(), true);
+            Object requests = page == null ? null : ((Map<?, ?>) LeaveManagementApp.Json.parse(page)).get("requests");
+            if (requests instanceof List && !((List<?>) requests).isEmpty()) {
+                Object id = ((Map<?, ?>) ((List<?>) requests).get(0)).get("id");
+                String action = random.nextBoolean() ? "approve" : "reject";
+                send(client, request("/requests/" + id + "/" + action)
+                        .header("X-Manager-Id", managerId).POST(HttpRequest.BodyPublishers.noBody()).build(), true);
+            }
+        }
+    }
+
+    private static HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).header("Authorization", "Bearer " + token);
+    }
+
+    private static String send(HttpClient client, HttpRequest request, boolean measured) {
+        long start = System.nanoTime();
+        try {
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            if (measured) {
+                latencies.record(System.nanoTime() - start);
+                int status = response.statusCode();
+                if (status >= 500) serverErrors.increment();
+                else if (status >= 400) clientErrors.increment();
+                else successes.increment();
+            }
+            return response.statusCode() < 300 ? response.body() : null;
+        } catch (Exception e) {
+            if (measured) {
+                latencies.record(System.nanoTime() - start);
+                serverErrors.increment();
+            }
+            return null;
+        }
+    }
+
+    private static String employeeId(int i) {
+        return String.format("LOAD%05d", i);
+    }
+}
@@ -0,0 +1,324 @@
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+public class WorkloadSimulator {
+
+    private static final String[] LEAVE_TYPES = { "Vacation", "Sick", "Personal", "Parental" };
+    private static final LocalDate HISTORY_START = LocalDate.of(2024, 1, 1);
+    private static final LocalDate LIVE_START = LocalDate.of(2026, 1, 1);
+
+    private static String storage = "embedded";
+    private static int employees = 2_000;
+    private static int managers = 20;
+    private static int history = 100_000;
+    private static int decidedPercent = 80;
+    private static int balance = 1_000;
+    private static int concurrency = 64;
+    private static long warmupSeconds = 5;
+    private static long durationSeconds = 30;
+    private static long thinkMillis = 0;
+    private static int approvePercent = 80;
+    private static boolean audit = true;
+    private static boolean queue = false;
+    private static final String runId = "S" + Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36);
+    private static final Map<String, Integer> mix = new LinkedHashMap<>();
+
+    private static final Map<String, Stats> stats = new LinkedHashMap<>();
+    private static final LeaveManagementApp.LatencyHistogram overall = new LeaveManagementApp.LatencyHistogram();
+    private static volatile boolean measuring;
+    private static String[] operations;
+    private static int[] cumulativeWeights;
+
+    public static void main(String[] args) throws Exception {
+        mix.put("submit", 30);
+        mix.put("status", 45);
+        mix.put("review", 10);
+        mix.put("decide", 15);
+        for (String arg : args) {
+            if (arg.startsWith("--storage=")) storage = arg.substring(10);
+            else if (arg.startsWith("--employees=")) employees = Integer.parseInt(arg.substring(12));
+            else if (arg.startsWith("--managers=")) managers = Integer.parseInt(arg.substring(11));
+            else if (arg.startsWith("--history=")) history = Integer.parseInt(arg.substring(10).replace("_", ""));
+            else if (arg.startsWith("--decided=")) decidedPercent = Integer.parseInt(arg.substring(10));
+            else if (arg.startsWith("--balance=")) balance = Integer.parseInt(arg.substring(10));
+            else if (arg.startsWith("--concurrency=")) concurrency = Integer.parseInt(arg.substring(14));
+            else if (arg.startsWith("--warmup=")) warmupSeconds = Long.parseLong(arg.substring(9));
+            else if (arg.startsWith("--duration=")) durationSeconds = Long.parseLong(arg.substring(11));
+            else if (arg.startsWith("--think=")) thinkMillis = Long.parseLong(arg.substring(8));
+            else if (arg.startsWith("--approve=")) approvePercent = Integer.parseInt(arg.substring(10));
+            else if (arg.startsWith("--mix=")) parseMix(arg.substring(6));
+            else if (arg.equals("--no-audit")) audit = false;
+            else if (arg.equals("--queue")) queue = true;
+            else {
+                System.err.println("Unknown option " + arg);
+                System.err.println("Options: --storage=embedded|mysql --employees=N --managers=N --history=N --decided=PERCENT --balance=DAYS"
+                        + " --concurrency=N --warmup=SECONDS --duration=SECONDS --think=MILLIS --approve=PERCENT"
+                        + " --mix=submit:30,status:45,review:10,decide:15 --no-audit --queue");
+                System.exit(2);
+            }
+        }
+        if (employees < 1 || managers < 1 || concurrency < 1) throw new IllegalArgumentException("employees, managers and concurrency must be positive");
+        operations = mix.keySet().toArray(new String[0]);
+        cumulativeWeights = new int[operations.length];
+        int total = 0;
+        for (int i = 0; i < operations.length; i++) {
+            total += mix.get(operations[i]);
+            cumulativeWeights[i] = total;
+            stats.put(operations[i], new Stats());
+        }
+        if (total <= 0) throw new IllegalArgumentException("The operation mix needs at least one positive weight");
+        System.setProperty("leave.embedded.snapshotEveryRecords", String.valueOf(Long.MAX_VALUE));
+
+        Path directory = Files.createTempDirectory("leave-workload");
+        // Always set explicitly: with the queue on, a MySQL submit only waits for a local fsync, not for the database.
+        System.setProperty("leave.queue.enabled", String.valueOf(queue));
+        System.setProperty("leave.queue.dir", directory.resolve("queue").toString());
+        LeaveManagementApp.LeaveStore store = "embedded".equals(storage)
+                ? new LeaveManagementApp.EmbeddedLeaveStore(directory.resolve("data"))
+                : LeaveManagementApp.LeaveStore.open(storage);
+        LeaveManagementApp.AuditJournal journal = audit ? new LeaveManagementApp.AuditJournal(directory.resolve("audit")) : null;
+        LeaveManagementApp.LeaveSystem system = new LeaveManagementApp.LeaveSystem(store, journal);
+        try {
+            seed(system);
+            run(system);
+        } finally {
+            if (!"embedded".equals(storage)) removeSeed(system);
+            system.shutdown();
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+            }
+        }
+        report();
+    }
+
+    private static void seed(LeaveManagementApp.LeaveSystem system) {
+        long start = System.nanoTime();
+        for (int i = 0; i < managers; i++) {
+            system.addEmployee(new LeaveManagementApp.Manager(managerId(i), "Simulated Manager " + i, balance), null);
+        }
+        for (int i = 0; i < employees; i++) {
+            system.addEmployee(new LeaveManagementApp.Employee(employeeId(i), "Simulated Employee " + i, balance), null);
+        }
+        for (int i = 0; i < history; i++) {
+            int slot = i / employees;
+            LocalDate startDate = HISTORY_START.plusDays(7L * slot);
+            LocalDate endDate = startDate.plusDays(i % 3);
+            system.addLeaveRequest(new LeaveManagementApp.LeaveRequest(employeeId(i % employees), LEAVE_TYPES[i % LEAVE_TYPES.length],
+                    startDate.toString(), endDate.toString()));
+        }
+        int decided = decideHistory(system);
+        System.out.printf("Seeded %d managers, %d employees and %d requests (%d decided) under id prefix %s in %d ms%n",
+                managers, employees, history, decided, runId, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /** Removes this run's employees and managers, and with them their requests, from a shared database. */
+    private static void removeSeed(LeaveManagementApp.LeaveSystem system) {
+        long start = System.nanoTime();
+        int failed = 0;
+        for (int i = 0; i < employees; i++) {
+            if (!system.removeEmployee(employeeId(i), managerId(0))) failed++;
+        }
+        for (int i = 0; i < managers; i++) {
+            if (!system.removeEmployee(managerId(i), managerId(0))) failed++;
+        }
+        System.out.printf("Removed the %s data in %d ms%s%n", runId, (System.nanoTime() - start) / 1_000_000,
+                failed == 0 ? "" : "; " + failed + " accounts could not be removed");
+    }
+
+    private static int decideHistory(LeaveManagementApp.LeaveSystem system) {
+        LeaveManagementApp.PendingRequestQuery all = new LeaveManagementApp.PendingRequestQuery(null, null, null, null,
+                LeaveManagementApp.PendingSort.REQUEST_ID, true);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int decided = 0;
+        LeaveManagementApp.LeaveRequest after = null;
+        List<LeaveManagementApp.LeaveRequest> page;
+        while (!(page = system.getPendingRequestsPage(all, after, 1_000)).isEmpty()) {
+            List<Integer> approve = new ArrayList<>();
+            List<Integer> reject = new ArrayList<>();
+            for (LeaveManagementApp.LeaveRequest request : page) {
+                if (!request.getEmployeeId().startsWith(runId) || random.nextInt(100) >= decidedPercent) continue;
+                (random.nextInt(100) < approvePercent ? approve : reject).add(request.getId());
+            }
+            if (!approve.isEmpty()) system.approveAll(approve, managerId(0));
+            if (!reject.isEmpty()) system.rejectAll(reject, managerId(0));
+            decided += approve.size() + reject.size();
+            after = page.get(page.size() - 1);
+        }
+        return decided;
+    }
+
+    private static void run(LeaveManagementApp.LeaveSystem system) throws Exception {
+        System.out.printf("Running %d virtual users for %d s after %d s warmup (think time %d ms)%n",
+                concurrency, durationSeconds, warmupSeconds, thinkMillis);
+        System.out.println(setup());
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        long measureFrom = System.nanoTime() + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        long deadline = measureFrom + TimeUnit.SECONDS.toNanos(durationSeconds);
+        List<Future<?>> users = new ArrayList<>();
+        for (int i = 0; i < concurrency; i++) {
+            users.add(executor.submit(() -> {
+                while (System.nanoTime() < deadline) {
+                    if (!measuring && System.nanoTime() >= measureFrom) measuring = true;
+                    runOne(system);
+                    if (thinkMillis > 0) {
+                        Thread.sleep((long) (-thinkMillis * Math.log(1 - ThreadLocalRandom.current().nextDouble())));
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> user : users) user.get();
+        executor.shutdown();
+    }
+
+    private static void runOne(LeaveManagementApp.LeaveSystem system) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int roll = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        int op = 0;
+        while (roll >= cumulativeWeights[op]) op++;
+        String name = operations[op];
+        Stats stat = stats.get(name);
+        long start = System.nanoTime();
+        Outcome outcome;
+        try {
+            outcome = switch (name) {
+                case "submit" -> submit(system, random);
+                case "status" -> status(system, random);
+                case "review" -> review(system, random);
+                default -> decide(system, random);
+            };
+        } catch (LeaveManagementApp.InsufficientLeaveException | LeaveManagementApp.LeavePolicyException e) {
+            outcome = Outcome.REFUSED;
+        } catch (RuntimeException e) {
+            outcome = Outcome.ERROR;
+        }
+        if (measuring) stat.record(System.nanoTime() - start, outcome);
+    }
+
+    private static Outcome submit(LeaveManagementApp.LeaveSystem system, ThreadLocalRandom random)
+            throws LeaveManagementApp.InsufficientLeaveException, LeaveManagementApp.LeavePolicyException {
+        LeaveManagementApp.Employee employee = system.findEmployeeById(employeeId(random.nextInt(employees)));
+        if (employee == null) return Outcome.ERROR;
+        LocalDate startDate = LIVE_START.plusDays(random.nextInt(360));
+        LocalDate endDate = startDate.plusDays(random.nextInt(5));
+        employee.submitLeaveRequest(system, new LeaveManagementApp.LeaveRequest(employee.getId(),
+                LEAVE_TYPES[random.nextInt(LEAVE_TYPES.length)], startDate.toString(), endDate.toString()));
+        return Outcome.OK;
+    }
+
+    private static Outcome status(LeaveManagementApp.LeaveSystem system, ThreadLocalRandom random) {
+        String employeeId = employeeId(random.nextInt(employees));
+        system.findEmployeeById(employeeId);
+        system.getRequestsForEmployee(employeeId);
+        return Outcome.OK;
+    }
+
+    private static Outcome review(LeaveManagementApp.LeaveSystem system, ThreadLocalRandom random) {
+        system.getPendingRequestsPage(new LeaveManagementApp.PendingRequestQuery(null, null, null, null,
+                LeaveManagementApp.PendingSort.START_DATE, true), null, 50);
+        return Outcome.OK;
+    }
+
+    private static Outcome decide(LeaveManagementApp.LeaveSystem system, ThreadLocalRandom random) {
+        int managerIndex = random.nextInt(managers);
+        int member = managerIndex + managers * random.nextInt(Math.max(1, (employees - managerIndex + managers - 1) / managers));
+        if (member >= employees) return Outcome.IDLE;
+        List<LeaveManagementApp.LeaveRequest> page = system.getPendingRequestsPage(new LeaveManagementApp.PendingRequestQuery(
+                employeeId(member), null, null, null, LeaveManagementApp.PendingSort.REQUEST_ID, true), null, 1);
+        if (page.isEmpty()) return Outcome.IDLE;
+        LeaveManagementApp.Manager manager = new LeaveManagementApp.Manager(managerId(managerIndex), "Simulated Manager " + managerIndex, balance);
+        LeaveManagementApp.ProcessOutcome outcome = random.nextInt(100) < approvePercent
+                ? manager.approveLeaveRequest(system, page.get(0))
+                : manager.rejectLeaveRequest(system, page.get(0));
+        return switch (outcome) {
+            case APPLIED -> Outcome.OK;
+            case FAILED -> Outcome.ERROR;
+            default -> Outcome.REFUSED;
+        };
+    }
+
+    private static String setup() {
+        return String.format("storage %s, submission queue %s, audit %s", storage,
+                queue && !"embedded".equals(storage) ? "on" : "off", audit ? "on" : "off");
+    }
+
+    private static void report() {
+        System.out.println();
+        System.out.println(setup());
+        System.out.printf("%-8s %10s %10s %9s %9s %9s %9s %9s %9s %8s %8s%n",
+                "op", "count", "ops/s", "p50 ms", "p95 ms", "p99 ms", "max ms", "refused", "idle", "errors", "err %");
+        long errors = 0;
+        for (Map.Entry<String, Stats> entry : stats.entrySet()) {
+            Stats stat = entry.getValue();
+            System.out.println(stat.format(entry.getKey()));
+            errors += stat.errors.sum();
+        }
+        long count = overall.getCount();
+        System.out.println();
+        System.out.printf("throughput    %.1f ops/s%n", count / (double) durationSeconds);
+        System.out.printf("latency p50   %.2f ms%n", overall.getPercentile(50) / 1e6);
+        System.out.printf("latency p95   %.2f ms%n", overall.getPercentile(95) / 1e6);
+        System.out.printf("latency p99   %.2f ms%n", overall.getPercentile(99) / 1e6);
+        System.out.printf("errors        %d (%.2f%%)%n", errors, count == 0 ? 0 : 100.0 * errors / count);
+        System.exit(errors == 0 ? 0 : 1);
+    }
+
+    private static void parseMix(String value) {
+        mix.replaceAll((name, weight) -> 0);
+        for (String part : value.split(",")) {
+            String[] pair = part.split(":");
+            if (pair.length != 2 || !mix.containsKey(pair[0].trim())) {
+                throw new IllegalArgumentException("Bad mix entry '" + part + "'. Use submit, status, review and decide with weights, e.g. submit:30");
+            }
+            mix.put(pair[0].trim(), Integer.parseInt(pair[1].trim()));
+        }
+    }
+
+    private static String employeeId(int i) {
+        return String.format("%sE%05d", runId, i);
+    }
+
+    private static String managerId(int i) {
+        return String.format("%sM%03d", runId, i);
+    }
+
+    enum Outcome { OK, REFUSED, IDLE, ERROR }
+
+    static class Stats {
+        final LeaveManagementApp.LatencyHistogram latencies = new LeaveManagementApp.LatencyHistogram();
+        final LongAdder refused = new LongAdder();
+        final LongAdder idle = new LongAdder();
+        final LongAdder errors = new LongAdder();
+
+        void record(long nanos, Outcome outcome) {
+            latencies.record(nanos);
+            overall.record(nanos);
+            switch (outcome) {
+                case REFUSED -> refused.increment();
+                case IDLE -> idle.increment();
+                case ERROR -> errors.increment();
+                default -> { }
+            }
+        }
+
+        String format(String name) {
+            long count = latencies.getCount();
+            return String.format("%-8s %10d %10.1f %9.2f %9.2f %9.2f %9.2f %9d %9d %8d %8.2f", name, count, count / (double) durationSeconds,
+                    latencies.getPercentile(50) / 1e6, latencies.getPercentile(95) / 1e6, latencies.getPercentile(99) / 1e6,
+                    latencies.getMax() / 1e6, refused.sum(), idle.sum(), errors.sum(), count == 0 ? 0 : 100.0 * errors.sum() / count);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.IntSupplier;
+import java.util.stream.Stream;
+
+import leave.bench.Fixture;
+
+/**
+ * The application side of {@link Fixture}: seeds a LeaveSystem for the JMH benchmarks in {@code leave.bench}.
+ *
+ * <p>Every fixture draws a random id prefix, so the manager and the 1,000 employees it adds never clash with
+ * rows left in a shared MySQL schema, and {@link #close()} removes them (and with them their requests) again.
+ */
+public class LeaveBenchmarkFixture implements Fixture {
+
+    private static final String[] LEAVE_TYPES = { "Vacation", "Sick", "Personal", "Parental" };
+    private static final int EMPLOYEES = 1_000;
+
+    private final LeaveManagementApp.LeaveSystem system;
+    private final Path directory;
+    private final String prefix;
+    private final LeaveManagementApp.Manager manager;
+
+    private LeaveBenchmarkFixture(LeaveManagementApp.LeaveSystem system, Path directory) {
+        this.system = system;
+        this.directory = directory;
+        this.prefix = "B" + Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36);
+        this.manager = new LeaveManagementApp.Manager(prefix + "MGR", "Benchmark Manager", 0);
+    }
+
+    public static Fixture open(String storage, int rows) throws Exception {
+        Path directory = null;
+        LeaveManagementApp.LeaveStore store;
+        if ("embedded".equals(storage)) {
+            directory = Files.createTempDirectory("leave-bench");
+            store = new LeaveManagementApp.EmbeddedLeaveStore(directory);
+        } else {
+            store = LeaveManagementApp.LeaveStore.open(storage);
+        }
+        LeaveBenchmarkFixture fixture = new LeaveBenchmarkFixture(new LeaveManagementApp.LeaveSystem(store), directory);
+        try {
+            fixture.seed(rows);
+        } catch (RuntimeException e) {
+            fixture.close();
+            throw e;
+        }
+        return fixture;
+    }
+
+    public static IntSupplier rowMapper() {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("request_id", 42);
+        row.put("employee_id", "EMP00042");
+        row.put("leave_type", "Vacation");
+        row.put("start_date", "2026-03-02");
+        row.put("end_date", "2026-03-06");
+        row.put("status", "Pending");
+        ResultSet rs = (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[] { ResultSet.class },
+                (proxy, method, methodArgs) -> {
+                    switch (method.getName()) {
+                        case "getInt": return ((Number) row.get((String) methodArgs[0])).intValue();
+                        case "getString": return String.valueOf(row.get((String) methodArgs[0]));
+                        case "next": return true;
+                        default: throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+        return () -> {
+            try {
+                return LeaveManagementApp.DatabaseManager.mapRowToLeaveRequest(rs).getId();
+            } catch (java.sql.SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        };
+    }
+
+    private void seed(int rows) {
+        long start = System.nanoTime();
+        system.addEmployee(manager, null);
+        for (int i = 0; i < EMPLOYEES; i++) {
+            system.addEmployee(new LeaveManagementApp.Employee(employeeId(i), "Employee " + i, Integer.MAX_VALUE / 2), null);
+        }
+        for (int i = 0; i < rows; i++) {
+            system.addLeaveRequest(newRequest(i));
+        }
+        int pending = system.getPendingRequests().size();
+        System.out.printf("# seeded %d requests under %s in %d ms%n", rows, prefix, (System.nanoTime() - start) / 1_000_000);
+        if (pending != rows) {
+            System.out.printf("# warning: the store holds %d pending requests, %d of them from other data%n", pending, pending - rows);
+        }
+    }
+
+    @Override
+    public int findEmployeeById(int i) {
+        return system.findEmployeeById(employeeId(i % EMPLOYEES)).getLeaveBalance();
+    }
+
+    @Override
+    public int getPendingRequests() {
+        return system.getPendingRequests().size();
+    }
+
+    @Override
+    public void addLeaveRequest(int i) {
+        system.addLeaveRequest(newRequest(i));
+    }
+
+    @Override
+    public boolean approveFlow(int i) {
+        String employeeId = employeeId(i % EMPLOYEES);
+        system.addLeaveRequest(new LeaveManagementApp.LeaveRequest(employeeId, "Vacation", "2026-06-01", "2026-06-01"));
+        List<LeaveManagementApp.LeaveRequest> page = system.getPendingRequestsPage(
+                new LeaveManagementApp.PendingRequestQuery(employeeId, null, null, null, LeaveManagementApp.PendingSort.REQUEST_ID, false), null, 1);
+        LeaveManagementApp.LeaveRequest request = system.findRequestById(page.get(0).getId());
+        return manager.approveLeaveRequest(system, request) == LeaveManagementApp.ProcessOutcome.APPLIED;
+    }
+
+    private LeaveManagementApp.LeaveRequest newRequest(int i) {
+        int day = 1 + i % 28;
+        String date = String.format("2026-%02d-%02d", 1 + (i / 28) % 12, day);
+        return new LeaveManagementApp.LeaveRequest(employeeId(i % EMPLOYEES), LEAVE_TYPES[i % LEAVE_TYPES.length], date, date);
+    }
+
+    private String employeeId(int i) {
+        return String.format("%sE%04d", prefix, i);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (directory == null) {
+                for (int i = 0; i < EMPLOYEES; i++) system.removeEmployee(employeeId(i), manager.getId());
+                system.removeEmployee(manager.getId(), manager.getId());
+            }
+        } finally {
+            system.shutdown();
+            if (directory != null) {
+                try (Stream<Path> files = Files.walk(directory)) {
+                    files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package leave.bench;
+
+import java.util.function.IntSupplier;
+
+/**
+ * A seeded LeaveSystem as the benchmarks see it.
+ *
+ * <p>LeaveManagementApp lives in the unnamed package, and JMH-generated code has to live in a named one, so the
+ * benchmarks cannot name the application classes. {@code LeaveBenchmarkFixture} (unnamed package) implements this
+ * interface; it is looked up reflectively once per trial, never on the measured path.
+ */
+public interface Fixture extends AutoCloseable {
+
+    String IMPLEMENTATION = "LeaveBenchmarkFixture";
+
+    /** Returns the leave balance of the i-th seeded employee. */
+    int findEmployeeById(int i);
+
+    /** Returns the number of pending requests in the store. */
+    int getPendingRequests();
+
+    void addLeaveRequest(int i);
+
+    /** Submits a one-day request for the i-th employee, pages it back and approves it. */
+    boolean approveFlow(int i);
+
+    /** Removes everything this fixture added and shuts the LeaveSystem down. */
+    @Override
+    void close() throws Exception;
+
+    /**
+     * Opens a LeaveSystem on {@code storage} ("embedded" or "mysql") and seeds {@code rows} leave requests
+     * for 1,000 employees whose ids start with a prefix unique to this fixture.
+     */
+    static Fixture open(String storage, int rows) throws Exception {
+        return (Fixture) Class.forName(IMPLEMENTATION).getMethod("open", String.class, int.class).invoke(null, storage, rows);
+    }
+
+    /** Returns a call to DatabaseManager.mapRowToLeaveRequest over an in-memory row, yielding the mapped id. */
+    static IntSupplier rowMapper() throws Exception {
+        return (IntSupplier) Class.forName(IMPLEMENTATION).getMethod("rowMapper").invoke(null);
+    }
+}
@@ -0,0 +1,84 @@
+package leave.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Data-layer hot paths against a store seeded with {@code rows} leave requests.
+ *
+ * <p>Each trial seeds its own fixture under a fresh employee-id prefix and removes it again in the tear-down,
+ * so runs against a shared MySQL schema neither collide with nor stack on top of earlier runs.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {
+        "--enable-preview",
+        "-Dleave.embedded.snapshotEveryRecords=9223372036854775807",
+        "-Dleave.cache.maxEntries=0",
+        "-Dleave.audit.enabled=false",
+        "-Dleave.queue.enabled=false" })
+@State(Scope.Benchmark)
+public class LeaveSystemBenchmarks {
+
+    @Param({ "1000", "100000", "1000000" })
+    int rows;
+
+    @Param({ "embedded" })
+    String storage;
+
+    private Fixture fixture;
+
+    @Setup(Level.Trial)
+    public void seed() throws Exception {
+        fixture = Fixture.open(storage, rows);
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanUp() throws Exception {
+        fixture.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        int next() {
+            return next++;
+        }
+    }
+
+    @Benchmark
+    public int findEmployeeById(Cursor cursor) {
+        return fixture.findEmployeeById(cursor.next());
+    }
+
+    @Benchmark
+    public int getPendingRequests() {
+        return fixture.getPendingRequests();
+    }
+
+    @Benchmark
+    public void addLeaveRequest(Cursor cursor) {
+        fixture.addLeaveRequest(cursor.next());
+    }
+
+    @Benchmark
+    public boolean approveFlow(Cursor cursor) {
+        return fixture.approveFlow(cursor.next());
+    }
+}
@@ -1,13 +1,111 @@
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.table.AbstractTableModel;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.FocusAdapter;
+import java.awt.event.FocusEvent;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
 import java.sql.*;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
 import java.util.Vector;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 public class LeaveManagementApp {
 
@@ -15,9 +113,92 @@ public class LeaveManagementApp {
     public static final int DEFAULT_LEAVE_BALANCE = 6;
 
     public static void main(String[] args) {
+        Integer serverPort = null;
+        String bootstrapManager = null;
+        List<String> imports = new ArrayList<>();
+        Map<String, String> exportOptions = new HashMap<>();
+        Map<String, String> auditOptions = new HashMap<>();
+        Map<String, String> reportOptions = new HashMap<>();
+        String accrualPeriod = null;
+        Integer rebuildThreads = null;
+        LocalDate archiveCutoff = null;
+        for (String arg : args) {
+            if (arg.startsWith("--storage=")) {
+                System.setProperty("leave.storage", arg.substring("--storage=".length()));
+            } else if (arg.equals("--server")) {
+                serverPort = Integer.getInteger("leave.server.port", 8080);
+            } else if (arg.startsWith("--server=")) {
+                serverPort = Integer.parseInt(arg.substring("--server=".length()));
+            } else if (arg.startsWith("--bootstrap-manager=")) {
+                bootstrapManager = arg.substring("--bootstrap-manager=".length());
+            } else if (arg.startsWith("--import-employees=") || arg.startsWith("--import-requests=")) {
+                imports.add(arg);
+            } else if (arg.equals("--accrue")) {
+                accrualPeriod = YearMonth.now().toString();
+            } else if (arg.startsWith("--accrue=")) {
+                accrualPeriod = arg.substring("--accrue=".length());
+            } else if (arg.equals("--archive")) {
+                archiveCutoff = LeaveArchiver.defaultCutoff();
+            } else if (arg.startsWith("--archive=")) {
+                archiveCutoff = LocalDate.parse(arg.substring("--archive=".length()));
+            } else if (arg.equals("--rebuild-balances")) {
+                rebuildThreads = Runtime.getRuntime().availableProcessors();
+            } else if (arg.startsWith("--rebuild-balances=")) {
+                rebuildThreads = Integer.parseInt(arg.substring("--rebuild-balances=".length()));
+            } else if (arg.startsWith("--export")) {
+                int eq = arg.indexOf('=');
+                if (eq > 0) exportOptions.put(arg.substring(2, eq), arg.substring(eq + 1));
+            } else if (arg.startsWith("--report")) {
+                int eq = arg.indexOf('=');
+                if (eq > 0) reportOptions.put(arg.substring(2, eq), arg.substring(eq + 1));
+                else reportOptions.put(arg.substring(2), "all");
+            } else if (arg.startsWith("--audit")) {
+                int eq = arg.indexOf('=');
+                if (eq > 0) auditOptions.put(arg.substring(2, eq), arg.substring(eq + 1));
+                else auditOptions.put(arg.substring(2), "");
+            }
+        }
+        if (!imports.isEmpty()) {
+            runImports(imports);
+            return;
+        }
+        if (exportOptions.containsKey("export")) {
+            runExport(exportOptions);
+            return;
+        }
+        if (auditOptions.containsKey("audit")) {
+            runAuditQuery(auditOptions);
+            return;
+        }
+        if (reportOptions.containsKey("report")) {
+            runReports(reportOptions);
+            return;
+        }
+        if (accrualPeriod != null) {
+            runAccrual(accrualPeriod);
+            return;
+        }
+        if (rebuildThreads != null) {
+            runBalanceRebuild(rebuildThreads);
+            return;
+        }
+        if (archiveCutoff != null) {
+            runArchive(archiveCutoff);
+            return;
+        }
+        if (serverPort != null) {
+            runServer(serverPort, bootstrapManager);
+            return;
+        }
+        String managerToBootstrap = bootstrapManager;
         SwingUtilities.invokeLater(() -> {
             try {
                 LeaveSystem model = new LeaveSystem();
+                Runtime.getRuntime().addShutdownHook(new Thread(model::shutdown, "leave-system-shutdown"));
+                bootstrapManager(model, managerToBootstrap);
+                startAccrualScheduler(model);
+                startLedgerSnapshots(model);
+                startArchiver(model);
                 LeaveManagementView view = new LeaveManagementView();
                 new LeaveManagementController(model, view);
                 view.setVisible(true);
@@ -31,7 +212,219 @@ public class LeaveManagementApp {
         });
     }
 
+    private static void runServer(int port, String bootstrapManager) {
+        try {
+            LeaveSystem model = new LeaveSystem();
+            bootstrapManager(model, bootstrapManager);
+            startAccrualScheduler(model);
+            startLedgerSnapshots(model);
+            startArchiver(model);
+            LeaveApiServer server = new LeaveApiServer(model, port);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                server.stop();
+                model.shutdown();
+            }, "leave-server-shutdown"));
+            server.start();
+        } catch (Exception e) {
+            System.err.println("Could not start the leave API server: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static void runImports(List<String> imports) {
+        LeaveSystem model = null;
+        try {
+            model = new LeaveSystem();
+            BulkImporter importer = new BulkImporter(model, progress -> System.out.println("  " + progress));
+            for (String option : imports) {
+                Path csv = Paths.get(option.substring(option.indexOf('=') + 1));
+                System.out.println("Importing " + csv);
+                ImportProgress result = option.startsWith("--import-employees=")
+                        ? importer.importEmployees(csv)
+                        : importer.importLeaveRequests(csv);
+                System.out.println("Done. " + result);
+                if (result.getRowsFailed() > 0) System.out.println("Row errors written to " + result.getErrorFile());
+            }
+        } catch (Exception e) {
+            System.err.println("Import failed: " + e.getMessage());
+            System.exit(1);
+        } finally {
+            if (model != null) model.shutdown();
+        }
+    }
+
+    private static void runExport(Map<String, String> options) {
+        LeaveSystem model = null;
+        try {
+            model = new LeaveSystem();
+            Path target = Paths.get(options.get("export"));
+            ExportFormat format = ExportFormat.fromName(options.getOrDefault("export-format", target.getFileName().toString()));
+            LeaveRequestFilter filter = new LeaveRequestFilter(options.get("export-employee"), options.get("export-status"),
+                    options.get("export-from"), options.get("export-to"));
+            long start = System.nanoTime();
+            long rows = new LeaveExporter(model).export(filter, format, target);
+            System.out.printf("Exported %d leave requests to %s in %.1fs%n", rows, target, (System.nanoTime() - start) / 1e9);
+        } catch (Exception e) {
+            System.err.println("Export failed: " + e.getMessage());
+            System.exit(1);
+        } finally {
+            if (model != null) model.shutdown();
+        }
+    }
+
+    private static void runReports(Map<String, String> options) {
+        LeaveSystem model = null;
+        try {
+            model = new LeaveSystem();
+            String names = options.get("report");
+            List<AnalyticsReportType> types = new ArrayList<>();
+            if ("all".equalsIgnoreCase(names)) {
+                types.addAll(Arrays.asList(AnalyticsReportType.values()));
+            } else {
+                for (String name : names.split(",")) types.add(AnalyticsReportType.fromName(name.trim()));
+            }
+            String formatName = options.getOrDefault("report-format", "text");
+            int limit = Integer.parseInt(options.getOrDefault("report-limit", String.valueOf(Integer.MAX_VALUE)));
+            Path target = options.containsKey("report-out") ? Paths.get(options.get("report-out")) : null;
+            long start = System.nanoTime();
+            model.rebuildAnalytics();
+            System.err.printf("Analytics rebuilt in %d ms%n", (System.nanoTime() - start) / 1_000_000);
+            try (Writer out = target == null
+                    ? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16)
+                    : Files.newBufferedWriter(target, StandardCharsets.UTF_8)) {
+                for (AnalyticsReportType type : types) {
+                    start = System.nanoTime();
+                    AnalyticsReport report = model.getReport(type, limit);
+                    if ("text".equalsIgnoreCase(formatName)) {
+                        out.write(report.toText());
+                        out.write('\n');
+                    } else {
+                        report.write(ExportFormat.fromName(formatName), out);
+                    }
+                    System.err.printf("%s: %d rows in %.2f ms%n", type.getTitle(), report.getRows().size(), (System.nanoTime() - start) / 1e6);
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("Report failed: " + e.getMessage());
+            System.exit(1);
+        } finally {
+            if (model != null) model.shutdown();
+        }
+    }
+
+    private static void runAuditQuery(Map<String, String> options) {
+        try {
+            boolean json = "jsonl".equalsIgnoreCase(options.get("audit"));
+            AuditQuery query = new AuditQuery(options.get("audit-employee"), options.get("audit-actor"),
+                    options.get("audit-action"), options.get("audit-from"), options.get("audit-to"));
+            long after = Long.parseLong(options.getOrDefault("audit-after", "0"));
+            Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16);
+            AuditJournal.read(AuditJournal.directoryFromSystemProperties(), after, event -> {
+                if (!query.matches(event)) return;
+                out.write(json ? Json.write(event.toJson()) : event.toString());
+                out.write('\n');
+            });
+            out.flush();
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Audit query failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static void runAccrual(String period) {
+        LeaveSystem model = null;
+        try {
+            model = new LeaveSystem();
+            AccrualProgress result = new AccrualScheduler(model, AccrualPolicy.fromSystemProperties()).run(YearMonth.parse(period));
+            System.out.println(result);
+        } catch (Exception e) {
+            System.err.println("Accrual failed: " + e.getMessage());
+            System.exit(1);
+        } finally {
+            if (model != null) model.shutdown();
+        }
+    }
+
+    private static void startAccrualScheduler(LeaveSystem model) {
+        if (Boolean.getBoolean("leave.accrual.enabled")) {
+            new AccrualScheduler(model, AccrualPolicy.fromSystemProperties()).start();
+        }
+    }
+
+    private static void runArchive(LocalDate cutoff) {
+        LeaveSystem model = null;
+        try {
+            model = new LeaveSystem();
+            long start = System.nanoTime();
+            int archived = new LeaveArchiver(model).run(cutoff);
+            System.out.printf("Archived %d leave requests that ended before %s in %.1fs%n", archived, cutoff, (System.nanoTime() - start) / 1e9);
+        } catch (Exception e) {
+            System.err.println("Archiving failed: " + e.getMessage());
+            System.exit(1);
+        } finally {
+            if (model != null) model.shutdown();
+        }
+    }
+
+    private static void startArchiver(LeaveSystem model) {
+        if (Boolean.getBoolean("leave.archive.enabled")) {
+            new LeaveArchiver(model).start();
+        }
+    }
+
+    private static void runBalanceRebuild(int threads) {
+        LeaveSystem model = null;
+        try {
+            model = new LeaveSystem();
+            long start = System.nanoTime();
+            BalanceRebuildResult result = new BalanceRebuilder(model, threads).rebuild();
+            System.out.printf("%s in %.1fs using %d threads%n", result, (System.nanoTime() - start) / 1e9, Math.max(1, threads));
+        } catch (Exception e) {
+            System.err.println("Balance rebuild failed: " + e.getMessage());
+            System.exit(1);
+        } finally {
+            if (model != null) model.shutdown();
+        }
+    }
+
+    private static void startLedgerSnapshots(LeaveSystem model) {
+        long interval = Long.getLong("leave.ledger.snapshotIntervalMinutes", 60L);
+        if (interval <= 0) return;
+        ScheduledExecutorService snapshots = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "leave-ledger-snapshots");
+            t.setDaemon(true);
+            return t;
+        });
+        snapshots.scheduleWithFixedDelay(() -> {
+            try {
+                model.snapshotBalances();
+            } catch (RuntimeException e) {
+                Logger.getLogger("LeaveManagementApp").log(Level.WARNING, "Balance snapshot failed", e);
+            }
+        }, interval, interval, TimeUnit.MINUTES);
+    }
+
+    private static void bootstrapManager(LeaveSystem model, String spec) {
+        if (spec == null || spec.isEmpty()) return;
+        int colon = spec.indexOf(':');
+        String id = colon < 0 ? spec : spec.substring(0, colon);
+        String name = colon < 0 ? spec : spec.substring(colon + 1);
+        if (model.findEmployeeById(id) == null) {
+            model.addEmployee(new Manager(id, name, DEFAULT_LEAVE_BALANCE), null);
+        }
+    }
+
+    static String blankToNull(String value) {
+        return value == null || value.trim().isEmpty() ? null : value.trim();
+    }
+
     static class LeaveManagementController {
+        private static final int PENDING_PAGE_SIZE = 100;
+        private static final int HISTORY_PAGE_SIZE = 100;
+        private static final int COVERAGE_DEFAULT_DAYS = 31;
+        private static final int COVERAGE_MAX_DAYS = 366;
+        private static final int EMPLOYEE_SUGGESTIONS = 10;
+
         private LeaveSystem model;
         private LeaveManagementView view;
         private Manager currentManager;
@@ -45,6 +438,7 @@ public class LeaveManagementApp {
             view.addMenuProcessListener(new ManagerActionAuthenticator("Process"));
             view.addMenuAddEmployeeListener(new ManagerActionAuthenticator("AddEmployee"));
             view.addMenuDeleteEmployeeListener(new ManagerActionAuthenticator("DeleteEmployee")); 
+            view.addMenuReportsListener(new ManagerActionAuthenticator("Reports"));
             view.addMenuExitListener(_ -> System.exit(0));
 
             ActionListener backToMenu = _ -> view.switchToPanel("Menu");
@@ -58,11 +452,101 @@ public class LeaveManagementApp {
             view.addProcessBackListener(backToMenuAndClearManager);
             view.addAddEmployeeBackListener(backToMenuAndClearManager);
             view.addDeleteEmployeeBackListener(backToMenuAndClearManager); 
+            view.addReportsBackListener(backToMenuAndClearManager);
 
             view.addSubmitRequestListener(new SubmitRequestListener());
             view.addViewStatusSearchListener(new ViewStatusSearchListener());
             view.addAddEmployeeConfirmListener(new AddEmployeeConfirmListener());
             view.addDeleteEmployeeConfirmListener(new DeleteEmployeeConfirmListener()); 
+            view.addProcessApproveSelectedListener(new ProcessSelectedListener(true));
+            view.addProcessRejectSelectedListener(new ProcessSelectedListener(false));
+            view.addProcessCoverageListener(new CoverageListener());
+            view.addProcessQueryChangedListener(_ -> reloadPendingRequests());
+            view.addProcessLoadMoreListener(_ -> loadMorePendingRequests());
+            view.addStatusLoadMoreListener(_ -> loadMoreHistory());
+            view.addReportChangedListener(_ -> loadReport());
+            view.addReportRebuildListener(_ -> onEdt(model.runAsync(model::rebuildAnalytics), _ -> loadReport()));
+            view.addReportExportListener(new ReportExportListener());
+            view.installEmployeeAutocomplete(query -> model.searchEmployees(query, EMPLOYEE_SUGGESTIONS));
+            model.loadEmployeeDirectoryAsync();
+        }
+
+        private void loadReport() {
+            AnalyticsReportType type = view.getSelectedReportType();
+            long start = System.nanoTime();
+            onEdt(model.getReportAsync(type, Integer.MAX_VALUE),
+                    report -> view.showReport(report, (System.nanoTime() - start) / 1_000_000));
+        }
+
+        private void reloadPendingRequests() {
+            PendingRequestQuery query = view.getPendingRequestQuery();
+            PendingRequestsTableModel table = view.getPendingRequestsModel();
+            table.reset(query);
+            onEdt(model.countPendingRequestsAsync(query), count -> {
+                table.setTotalCount(query, count);
+                view.updateProcessSummary();
+            });
+            loadMorePendingRequests();
+        }
+
+        private void loadMorePendingRequests() {
+            PendingRequestsTableModel table = view.getPendingRequestsModel();
+            if (!table.beginLoading()) return;
+            PendingRequestQuery query = table.getQuery();
+            onEdt(model.getPendingRequestsPageAsync(query, table.getLastRequest(), PENDING_PAGE_SIZE),
+                    page -> {
+                        table.appendPage(query, page, page.size() == PENDING_PAGE_SIZE);
+                        view.requestMoreProcessRowsIfVisible();
+                    },
+                    ex -> {
+                        table.endLoading(query);
+                        view.showError("Could not load pending requests: " + ex.getMessage());
+                    });
+        }
+
+        private void reloadHistory() {
+            LeaveHistoryQuery query = view.getLeaveHistoryQuery();
+            LeaveHistoryTableModel table = view.getLeaveHistoryModel();
+            table.reset(query);
+            view.updateStatusSummary(null);
+            onEdt(model.summarizeRequestHistoryAsync(query), summary -> {
+                if (summary == null || table.getQuery() != query) return;
+                table.setTotalCount(query, summary.getTotalRequests());
+                view.updateStatusSummary(summary);
+            });
+            loadMoreHistory();
+        }
+
+        private void loadMoreHistory() {
+            LeaveHistoryTableModel table = view.getLeaveHistoryModel();
+            if (!table.beginLoading()) return;
+            LeaveHistoryQuery query = table.getQuery();
+            onEdt(model.getRequestHistoryPageAsync(query, table.getLastRequest(), HISTORY_PAGE_SIZE),
+                    page -> {
+                        table.appendPage(query, page, page.size() == HISTORY_PAGE_SIZE);
+                        view.requestMoreStatusRowsIfVisible();
+                    },
+                    ex -> {
+                        table.endLoading(query);
+                        view.showError("Could not load leave history: " + ex.getMessage());
+                    });
+        }
+
+        private <T> void onEdt(CompletableFuture<T> future, Consumer<T> onSuccess) {
+            onEdt(future, onSuccess, ex -> view.showError("Operation failed: " + ex.getMessage()));
+        }
+
+        private <T> void onEdt(CompletableFuture<T> future, Consumer<T> onSuccess, Consumer<Throwable> onFailure) {
+            view.setBusy(true);
+            future.whenComplete((result, ex) -> SwingUtilities.invokeLater(() -> {
+                view.setBusy(false);
+                if (ex == null) {
+                    onSuccess.accept(result);
+                } else {
+                    Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                    onFailure.accept(cause);
+                }
+            }));
         }
 
         class ManagerActionAuthenticator implements ActionListener {
@@ -81,19 +565,20 @@ public class LeaveManagementApp {
                     return;
                 }
 
-                Employee emp = model.findEmployeeById(managerId.trim());
-                if (emp != null && emp instanceof Manager) {
+                onEdt(model.findEmployeeByIdAsync(managerId.trim()), emp -> {
+                    if (!(emp instanceof Manager)) {
+                        view.showError("Invalid Manager ID or you do not have manager privileges.");
+                        return;
+                    }
                     currentManager = (Manager) emp;
-                    
+
                     if ("Process".equals(targetPanel)) {
-                        List<LeaveRequest> pendingRequests = model.getPendingRequests();
-                        view.updateProcessRequestsView(pendingRequests, new ProcessRequestListener(currentManager));
+                        reloadPendingRequests();
+                    } else if ("Reports".equals(targetPanel)) {
+                        loadReport();
                     }
-                    
                     view.switchToPanel(targetPanel);
-                } else {
-                    view.showError("Invalid Manager ID or you do not have manager privileges.");
-                }
+                });
             }
         }
         
@@ -107,28 +592,34 @@ public class LeaveManagementApp {
                     return;
                 }
 
-                Employee targetEmp = model.findEmployeeById(empIdToRemove);
-                if (targetEmp == null) {
-                    view.showError("Employee with ID '" + empIdToRemove + "' not found.");
-                    return;
-                }
-
                 if (currentManager != null && currentManager.getId().equals(empIdToRemove)) {
                     view.showError("You cannot remove your own Manager account.");
                     return;
                 }
 
-                int confirm = JOptionPane.showConfirmDialog(view,
-                        "Are you sure you want to remove Employee '" + targetEmp.getName() + "' (" + empIdToRemove + ")?\nThis action cannot be undone and will delete all their leave requests.",
-                        "Confirm Employee Removal",
-                        JOptionPane.YES_NO_OPTION,
-                        JOptionPane.WARNING_MESSAGE);
+                onEdt(model.findEmployeeByIdAsync(empIdToRemove), targetEmp -> {
+                    if (targetEmp == null) {
+                        view.showError("Employee with ID '" + empIdToRemove + "' not found.");
+                        return;
+                    }
+
+                    int confirm = JOptionPane.showConfirmDialog(view,
+                            "Are you sure you want to remove Employee '" + targetEmp.getName() + "' (" + empIdToRemove + ")?\nThis action cannot be undone and will delete all their leave requests.",
+                            "Confirm Employee Removal",
+                            JOptionPane.YES_NO_OPTION,
+                            JOptionPane.WARNING_MESSAGE);
 
-                if (confirm == JOptionPane.YES_OPTION) {
-                    model.removeEmployee(empIdToRemove);
-                    view.showMessage("Employee '" + targetEmp.getName() + "' has been successfully removed.");
-                    view.resetDeleteEmployeeForm();
-                }
+                    if (confirm == JOptionPane.YES_OPTION) {
+                        onEdt(model.removeEmployeeAsync(currentManager, empIdToRemove), removed -> {
+                            if (!removed) {
+                                view.showError("Employee '" + targetEmp.getName() + "' could not be removed. Please try again.");
+                                return;
+                            }
+                            view.showMessage("Employee '" + targetEmp.getName() + "' has been successfully removed.");
+                            view.resetDeleteEmployeeForm();
+                        });
+                    }
+                });
             }
         }
 
@@ -137,26 +628,34 @@ public class LeaveManagementApp {
             @Override
             public void actionPerformed(ActionEvent e) {
                 String empId = view.getSubmitEmpId();
-                Employee employee = model.findEmployeeById(empId);
-                if (employee == null) {
-                    view.showError("Employee with ID '" + empId + "' not found.");
-                    return;
-                }
                 String leaveType = view.getLeaveType();
                 String startDate = view.getStartDate();
                 String endDate = view.getEndDate();
-                if (leaveType.isEmpty() || startDate.isEmpty() || endDate.isEmpty()) {
-                    view.showError("All leave request fields are required.");
-                    return;
-                }
-                try {
+                onEdt(model.findEmployeeByIdAsync(empId), employee -> {
+                    if (employee == null) {
+                        view.showError("Employee with ID '" + empId + "' not found.");
+                        return;
+                    }
+                    String problem = LeaveRequest.validate(leaveType, startDate, endDate);
+                    if (problem != null) {
+                        view.showError(problem);
+                        return;
+                    }
                     LeaveRequest request = new LeaveRequest(employee.getId(), leaveType, startDate, endDate);
-                    employee.submitLeaveRequest(model, request);
-                    view.showMessage("Leave request submitted successfully for " + employee.getName() + "!");
-                    view.resetSubmitForm();
-                } catch (InsufficientLeaveException ex) {
-                    view.showError("Submission failed: " + ex.getMessage());
-                }
+                    onEdt(model.submitLeaveRequestAsync(employee, request), saved -> {
+                        view.showMessage(saved.getId() > 0
+                                ? "Leave request submitted successfully for " + employee.getName() + "!"
+                                : "Leave request accepted for " + employee.getName() + ". It shows as " + SubmissionQueue.QUEUED
+                                        + " in the status view until it has been saved.");
+                        view.resetSubmitForm();
+                    }, ex -> {
+                        if (ex instanceof InsufficientLeaveException || ex instanceof LeavePolicyException) {
+                            view.showError("Submission failed: " + ex.getMessage());
+                        } else {
+                            view.showError("Operation failed: " + ex.getMessage());
+                        }
+                    });
+                });
             }
         }
 
@@ -164,14 +663,21 @@ public class LeaveManagementApp {
             @Override
             public void actionPerformed(ActionEvent e) {
                 String empId = view.getStatusEmpId();
-                Employee employee = model.findEmployeeById(empId);
-                if (employee == null) {
-                    view.showError("Employee with ID '" + empId + "' not found.");
-                    view.updateStatusResults("Enter a valid Employee ID to see status.");
+                try {
+                    if (!view.getStatusFilterFrom().isEmpty()) LocalDate.parse(view.getStatusFilterFrom());
+                    if (!view.getStatusFilterTo().isEmpty()) LocalDate.parse(view.getStatusFilterTo());
+                } catch (DateTimeParseException ex) {
+                    view.showError("Dates must use the YYYY-MM-DD format.");
                     return;
                 }
-                List<LeaveRequest> requests = model.getRequestsForEmployee(empId);
-                view.updateStatusResults(requests);
+                onEdt(model.findEmployeeByIdAsync(empId), employee -> {
+                    if (employee == null) {
+                        view.showError("Employee with ID '" + empId + "' not found.");
+                        view.clearStatusResults("Enter a valid Employee ID to see status.");
+                        return;
+                    }
+                    reloadHistory();
+                });
             }
         }
         
@@ -185,40 +691,114 @@ public class LeaveManagementApp {
                     view.showError("Employee ID and Name fields are required.");
                     return;
                 }
-                if (model.findEmployeeById(id) != null) {
-                    view.showError("An employee with ID '" + id + "' already exists.");
+                onEdt(model.findEmployeeByIdAsync(id), existing -> {
+                    if (existing != null) {
+                        view.showError("An employee with ID '" + id + "' already exists.");
+                        return;
+                    }
+                    Employee newEmp = isManager ? new Manager(id, name, DEFAULT_LEAVE_BALANCE) : new Employee(id, name, DEFAULT_LEAVE_BALANCE);
+                    onEdt(model.addEmployeeAsync(currentManager, newEmp), _ -> {
+                        view.showMessage("Employee '" + name + "' added successfully!");
+                        view.resetAddEmployeeForm();
+                    });
+                });
+            }
+        }
+
+        class ReportExportListener implements ActionListener {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                AnalyticsReport report = view.getShownReport();
+                if (report == null) {
+                    view.showError("Load a report first.");
                     return;
                 }
-                Employee newEmp = isManager ? new Manager(id, name, DEFAULT_LEAVE_BALANCE) : new Employee(id, name, DEFAULT_LEAVE_BALANCE);
-                model.addEmployee(newEmp);
-                view.showMessage("Employee '" + name + "' added successfully!");
-                view.resetAddEmployeeForm();
+                Path target = view.chooseReportExportFile(report.getType().getName() + ".csv");
+                if (target == null) return;
+                onEdt(model.runAsync(() -> {
+                    try (Writer out = Files.newBufferedWriter(target, StandardCharsets.UTF_8)) {
+                        report.write(ExportFormat.fromName(target.getFileName().toString()), out);
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                }), _ -> view.showMessage("Exported " + report.getRows().size() + " row(s) to " + target));
             }
         }
 
-        class ProcessRequestListener implements ActionListener {
-            private Manager manager;
-            public ProcessRequestListener(Manager manager) {
-                this.manager = manager;
-            }
+        class CoverageListener implements ActionListener {
             @Override
             public void actionPerformed(ActionEvent e) {
-                String command = e.getActionCommand();
-                String[] parts = command.split("_");
-                String action = parts[0];
-                int requestId = Integer.parseInt(parts[1]);
-                LeaveRequest request = model.findRequestById(requestId);
-                if (request != null) {
-                    if ("approve".equals(action)) {
-                        manager.approveLeaveRequest(model, request);
-                        view.showMessage("Request approved.");
-                    } else if ("reject".equals(action)) {
-                        manager.rejectLeaveRequest(model, request);
-                        view.showMessage("Request rejected.");
+                LocalDate from;
+                LocalDate to;
+                List<LeaveRequest> selected = view.getPendingRequestsModel().getRequests(view.getSelectedProcessRows());
+                PendingRequestQuery query = view.getPendingRequestQuery();
+                try {
+                    if (!selected.isEmpty()) {
+                        from = LocalDate.MAX;
+                        to = LocalDate.MIN;
+                        for (LeaveRequest req : selected) {
+                            LocalDate start = LocalDate.parse(req.getStartDate());
+                            LocalDate end = LocalDate.parse(req.getEndDate());
+                            if (start.isBefore(from)) from = start;
+                            if (end.isAfter(to)) to = end;
+                        }
+                    } else {
+                        from = query.getFromDate() != null ? LocalDate.parse(query.getFromDate()) : LocalDate.now();
+                        to = query.getToDate() != null ? LocalDate.parse(query.getToDate()) : from.plusDays(COVERAGE_DEFAULT_DAYS - 1);
                     }
-                    List<LeaveRequest> pendingRequests = model.getPendingRequests();
-                    view.updateProcessRequestsView(pendingRequests, this);
+                } catch (DateTimeParseException ex) {
+                    view.showError("Dates must use the YYYY-MM-DD format.");
+                    return;
+                }
+                if (to.isBefore(from) || ChronoUnit.DAYS.between(from, to) >= COVERAGE_MAX_DAYS) {
+                    view.showError("Choose a date range of at most " + COVERAGE_MAX_DAYS + " days.");
+                    return;
                 }
+                onEdt(model.getCoverageAsync(from, to), days -> view.showCoverage(days, model.getMaxAbsentPerDay()));
+            }
+        }
+
+        class ProcessSelectedListener implements ActionListener {
+            private final boolean approve;
+            public ProcessSelectedListener(boolean approve) {
+                this.approve = approve;
+            }
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                Manager manager = currentManager;
+                if (manager == null) return;
+                List<Integer> requestIds = view.getPendingRequestsModel().getRequestIds(view.getSelectedProcessRows());
+                if (requestIds.isEmpty()) {
+                    view.showError("Select at least one request first.");
+                    return;
+                }
+                if (!approve) {
+                    process(manager, requestIds);
+                    return;
+                }
+                List<LeaveRequest> selected = view.getPendingRequestsModel().getRequests(view.getSelectedProcessRows());
+                onEdt(model.checkCoverageAsync(selected), overLimit -> {
+                    if (!overLimit.isEmpty() && !view.confirmCoverageWarning(overLimit, model.getMaxAbsentPerDay())) return;
+                    process(manager, requestIds);
+                });
+            }
+
+            private void process(Manager manager, List<Integer> requestIds) {
+                CompletableFuture<Map<Integer, ProcessOutcome>> outcome = approve
+                        ? model.approveAllAsync(manager, requestIds)
+                        : model.rejectAllAsync(manager, requestIds);
+                onEdt(outcome, results -> {
+                    long applied = results.values().stream().filter(r -> r == ProcessOutcome.APPLIED).count();
+                    long failed = results.values().stream().filter(r -> r == ProcessOutcome.FAILED).count();
+                    long skipped = results.size() - applied - failed;
+                    String message = (approve ? "Approved " : "Rejected ") + applied + " request(s).";
+                    if (skipped > 0) message += "\n" + skipped + " request(s) were already processed or no longer exist.";
+                    if (failed > 0) message += "\n" + failed + " request(s) could not be saved and are still pending. Please try them again.";
+                    Set<Integer> settled = new HashSet<>();
+                    results.forEach((id, result) -> { if (result != ProcessOutcome.FAILED) settled.add(id); });
+                    view.getPendingRequestsModel().removeRequests(settled);
+                    view.showMessage(message);
+                });
             }
         }
     }
@@ -227,17 +807,34 @@ public class LeaveManagementApp {
         private CardLayout cardLayout = new CardLayout();
         private JPanel mainPanel = new JPanel(cardLayout);
 
-        private JButton menuSubmitBtn, menuViewStatusBtn, menuProcessBtn, menuAddEmpBtn, menuDeleteEmpBtn, menuExitBtn;
+        private JButton menuSubmitBtn, menuViewStatusBtn, menuProcessBtn, menuAddEmpBtn, menuDeleteEmpBtn, menuReportsBtn, menuExitBtn;
 
         private JTextField submitEmpId, leaveType, startDate, endDate;
         private JButton submitRequestBtn, submitBackBtn;
 
-        private JTextField statusEmpId;
-        private JButton statusSearchBtn, statusBackBtn;
-        private JTextArea statusResultsArea;
+        private JTextField statusEmpId, statusFilterType, statusFilterFrom, statusFilterTo;
+        private JComboBox<String> statusFilterStatus;
+        private JCheckBox statusIncludeArchived;
+        private JButton statusSearchBtn, statusFilterApplyBtn, statusBackBtn;
+        private JTable statusTable;
+        private LeaveHistoryTableModel leaveHistoryModel = new LeaveHistoryTableModel();
+        private JScrollPane statusScrollPane;
+        private JLabel statusSummaryLabel;
+        private LeaveHistorySummary statusSummary;
+        private List<ActionListener> statusSearchListeners = new ArrayList<>();
+        private List<ActionListener> statusLoadMoreListeners = new ArrayList<>();
 
-        private JPanel processRequestsPanel;
+        private JTable processRequestsTable;
+        private PendingRequestsTableModel pendingRequestsModel = new PendingRequestsTableModel();
+        private JScrollPane processScrollPane;
+        private JLabel processSummaryLabel;
+        private JTextField processFilterEmpId, processFilterType, processFilterFrom, processFilterTo;
+        private JButton processFilterApplyBtn;
+        private JButton processCoverageBtn;
         private JButton processBackBtn;
+        private JButton processApproveSelectedBtn, processRejectSelectedBtn, processSelectAllBtn;
+        private List<ActionListener> processQueryChangedListeners = new ArrayList<>();
+        private List<ActionListener> processLoadMoreListeners = new ArrayList<>();
 
         private JTextField addEmpId, addEmpName;
         private JCheckBox addEmpIsManager;
@@ -245,6 +842,14 @@ public class LeaveManagementApp {
 
         private JTextField deleteEmpIdField;
         private JButton deleteEmpConfirmBtn, deleteEmpBackBtn;
+
+        private JComboBox<AnalyticsReportType> reportTypeBox;
+        private DefaultTableModel reportTableModel;
+        private JLabel reportSummaryLabel;
+        private JButton reportRefreshBtn, reportRebuildBtn, reportExportBtn, reportBackBtn;
+        private AnalyticsReport shownReport;
+
+        private int busyCount;
         
         public LeaveManagementView() {
             super("Employee Leave Management System");
@@ -258,13 +863,32 @@ public class LeaveManagementApp {
             mainPanel.add(createProcessPanel(), "Process");
             mainPanel.add(createAddEmployeePanel(), "AddEmployee");
             mainPanel.add(createDeleteEmployeePanel(), "DeleteEmployee"); 
+            mainPanel.add(createReportsPanel(), "Reports");
             
             add(mainPanel);
+            setGlassPane(createBusyPane());
             switchToPanel("Menu");
         }
+
+        private JComponent createBusyPane() {
+            JPanel pane = new JPanel();
+            pane.setOpaque(false);
+            pane.setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+            pane.addMouseListener(new MouseAdapter() {});
+            pane.addKeyListener(new KeyAdapter() {});
+            pane.setFocusTraversalKeysEnabled(false);
+            return pane;
+        }
+
+        public void setBusy(boolean busy) {
+            busyCount = Math.max(0, busyCount + (busy ? 1 : -1));
+            Component glassPane = getGlassPane();
+            glassPane.setVisible(busyCount > 0);
+            if (busyCount > 0) glassPane.requestFocusInWindow();
+        }
         
         private JPanel createMenuPanel() {
-            JPanel panel = new JPanel(new GridLayout(6, 1, 10, 10)); 
+            JPanel panel = new JPanel(new GridLayout(7, 1, 10, 10)); 
             panel.setBorder(new EmptyBorder(50, 150, 50, 150));
             
             menuSubmitBtn = new JButton("Submit Leave Request");
@@ -272,6 +896,7 @@ public class LeaveManagementApp {
             menuProcessBtn = new JButton("Process Pending Requests (Manager)");
             menuAddEmpBtn = new JButton("Add New Employee (Manager)");
             menuDeleteEmpBtn = new JButton("Delete Employee by ID (Manager)"); 
+            menuReportsBtn = new JButton("Leave Reports (Manager)");
             menuExitBtn = new JButton("Exit");
             
             panel.add(menuSubmitBtn);
@@ -279,6 +904,7 @@ public class LeaveManagementApp {
             panel.add(menuProcessBtn);
             panel.add(menuAddEmpBtn);
             panel.add(menuDeleteEmpBtn); 
+            panel.add(menuReportsBtn);
             panel.add(menuExitBtn);
             return panel;
         }
@@ -343,16 +969,58 @@ public class LeaveManagementApp {
         private JPanel createStatusPanel() {
             JPanel panel = new JPanel(new BorderLayout(10, 10));
             panel.setBorder(new EmptyBorder(20, 20, 20, 20));
-            JPanel topPanel = new JPanel();
+
+            JPanel topPanel = new JPanel(new BorderLayout(5, 5));
+            JPanel searchPanel = new JPanel();
             statusEmpId = new JTextField(15);
+            statusIncludeArchived = new JCheckBox("Include archived");
             statusSearchBtn = new JButton("Show Status");
-            topPanel.add(new JLabel("Enter Your Employee ID:"));
-            topPanel.add(statusEmpId);
-            topPanel.add(statusSearchBtn);
+            statusSearchBtn.addActionListener(this::fireStatusSearch);
+            searchPanel.add(new JLabel("Enter Your Employee ID:"));
+            searchPanel.add(statusEmpId);
+            searchPanel.add(statusIncludeArchived);
+            searchPanel.add(statusSearchBtn);
+            topPanel.add(searchPanel, BorderLayout.NORTH);
+            JPanel filterPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+            statusFilterStatus = new JComboBox<>(new String[] { "All", "Pending", "Approved", "Rejected" });
+            statusFilterType = new JTextField(8);
+            statusFilterFrom = new JTextField(8);
+            statusFilterTo = new JTextField(8);
+            statusFilterApplyBtn = new JButton("Apply Filter");
+            statusFilterApplyBtn.addActionListener(this::fireStatusSearch);
+            filterPanel.add(new JLabel("Status:"));
+            filterPanel.add(statusFilterStatus);
+            filterPanel.add(new JLabel("Type:"));
+            filterPanel.add(statusFilterType);
+            filterPanel.add(new JLabel("From:"));
+            filterPanel.add(statusFilterFrom);
+            filterPanel.add(new JLabel("To:"));
+            filterPanel.add(statusFilterTo);
+            filterPanel.add(statusFilterApplyBtn);
+            topPanel.add(filterPanel, BorderLayout.CENTER);
+            statusSummaryLabel = new JLabel("Enter your Employee ID to see your leave history.");
+            topPanel.add(statusSummaryLabel, BorderLayout.SOUTH);
             panel.add(topPanel, BorderLayout.NORTH);
-            statusResultsArea = new JTextArea();
-            statusResultsArea.setEditable(false);
-            panel.add(new JScrollPane(statusResultsArea), BorderLayout.CENTER);
+
+            statusTable = new JTable(leaveHistoryModel);
+            statusTable.setFillsViewportHeight(true);
+            statusTable.getTableHeader().setReorderingAllowed(false);
+            statusTable.getTableHeader().addMouseListener(new MouseAdapter() {
+                @Override
+                public void mouseClicked(MouseEvent e) {
+                    int column = statusTable.columnAtPoint(e.getPoint());
+                    if (column < 0 || !leaveHistoryModel.toggleSort(statusTable.convertColumnIndexToModel(column))) return;
+                    statusTable.getTableHeader().repaint();
+                    if (leaveHistoryModel.getQuery() != null) {
+                        fireStatusSearch(new ActionEvent(statusTable, ActionEvent.ACTION_PERFORMED, "sort"));
+                    }
+                }
+            });
+            leaveHistoryModel.addTableModelListener(_ -> refreshStatusSummary());
+            statusScrollPane = new JScrollPane(statusTable);
+            statusScrollPane.getVerticalScrollBar().addAdjustmentListener(_ -> requestMoreStatusRowsIfVisible());
+            panel.add(statusScrollPane, BorderLayout.CENTER);
+
             statusBackBtn = new JButton("Back to Main Menu");
             panel.add(statusBackBtn, BorderLayout.SOUTH);
             return panel;
@@ -361,12 +1029,105 @@ public class LeaveManagementApp {
         private JPanel createProcessPanel() {
             JPanel panel = new JPanel(new BorderLayout(10, 10));
             panel.setBorder(new EmptyBorder(20, 20, 20, 20));
-            panel.add(new JLabel("Process Pending Requests", SwingConstants.CENTER), BorderLayout.NORTH);
-            processRequestsPanel = new JPanel();
-            processRequestsPanel.setLayout(new BoxLayout(processRequestsPanel, BoxLayout.Y_AXIS));
-            panel.add(new JScrollPane(processRequestsPanel), BorderLayout.CENTER);
+
+            JPanel topPanel = new JPanel(new BorderLayout(5, 5));
+            topPanel.add(new JLabel("Process Pending Requests", SwingConstants.CENTER), BorderLayout.NORTH);
+            JPanel filterPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+            processFilterEmpId = new JTextField(8);
+            processFilterType = new JTextField(8);
+            processFilterFrom = new JTextField(8);
+            processFilterTo = new JTextField(8);
+            processFilterApplyBtn = new JButton("Apply Filter");
+            processFilterApplyBtn.addActionListener(this::fireProcessQueryChanged);
+            filterPanel.add(new JLabel("Employee ID:"));
+            filterPanel.add(processFilterEmpId);
+            filterPanel.add(new JLabel("Type:"));
+            filterPanel.add(processFilterType);
+            filterPanel.add(new JLabel("From:"));
+            filterPanel.add(processFilterFrom);
+            filterPanel.add(new JLabel("To:"));
+            filterPanel.add(processFilterTo);
+            filterPanel.add(processFilterApplyBtn);
+            topPanel.add(filterPanel, BorderLayout.CENTER);
+            processSummaryLabel = new JLabel(" ");
+            topPanel.add(processSummaryLabel, BorderLayout.SOUTH);
+            panel.add(topPanel, BorderLayout.NORTH);
+
+            processRequestsTable = new JTable(pendingRequestsModel);
+            processRequestsTable.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
+            processRequestsTable.setFillsViewportHeight(true);
+            processRequestsTable.getTableHeader().setReorderingAllowed(false);
+            processRequestsTable.getTableHeader().addMouseListener(new MouseAdapter() {
+                @Override
+                public void mouseClicked(MouseEvent e) {
+                    int column = processRequestsTable.columnAtPoint(e.getPoint());
+                    if (column < 0) return;
+                    pendingRequestsModel.toggleSort(processRequestsTable.convertColumnIndexToModel(column));
+                    processRequestsTable.getTableHeader().repaint();
+                    fireProcessQueryChanged(new ActionEvent(processRequestsTable, ActionEvent.ACTION_PERFORMED, "sort"));
+                }
+            });
+            pendingRequestsModel.addTableModelListener(_ -> updateProcessSummary());
+            processScrollPane = new JScrollPane(processRequestsTable);
+            processScrollPane.getVerticalScrollBar().addAdjustmentListener(_ -> requestMoreProcessRowsIfVisible());
+            panel.add(processScrollPane, BorderLayout.CENTER);
+
+            processSelectAllBtn = new JButton("Select All");
+            processSelectAllBtn.addActionListener(_ -> processRequestsTable.selectAll());
+            processApproveSelectedBtn = new JButton("Approve Selected");
+            processRejectSelectedBtn = new JButton("Reject Selected");
+            processCoverageBtn = new JButton("Show Coverage");
             processBackBtn = new JButton("Back to Main Menu");
-            panel.add(processBackBtn, BorderLayout.SOUTH);
+            JPanel buttonPanel = new JPanel();
+            buttonPanel.add(processSelectAllBtn);
+            buttonPanel.add(processApproveSelectedBtn);
+            buttonPanel.add(processRejectSelectedBtn);
+            buttonPanel.add(processCoverageBtn);
+            buttonPanel.add(processBackBtn);
+            panel.add(buttonPanel, BorderLayout.SOUTH);
+            return panel;
+        }
+
+        private JPanel createReportsPanel() {
+            JPanel panel = new JPanel(new BorderLayout(10, 10));
+            panel.setBorder(new EmptyBorder(20, 20, 20, 20));
+
+            JPanel topPanel = new JPanel(new BorderLayout(5, 5));
+            topPanel.add(new JLabel("Leave Reports", SwingConstants.CENTER), BorderLayout.NORTH);
+            JPanel choicePanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+            reportTypeBox = new JComboBox<>(AnalyticsReportType.values());
+            reportRefreshBtn = new JButton("Refresh");
+            reportRebuildBtn = new JButton("Rebuild");
+            choicePanel.add(new JLabel("Report:"));
+            choicePanel.add(reportTypeBox);
+            choicePanel.add(reportRefreshBtn);
+            choicePanel.add(reportRebuildBtn);
+            topPanel.add(choicePanel, BorderLayout.CENTER);
+            reportSummaryLabel = new JLabel(" ");
+            topPanel.add(reportSummaryLabel, BorderLayout.SOUTH);
+            panel.add(topPanel, BorderLayout.NORTH);
+
+            reportTableModel = new DefaultTableModel() {
+                @Override
+                public boolean isCellEditable(int row, int column) { return false; }
+
+                @Override
+                public Class<?> getColumnClass(int column) {
+                    return getRowCount() > 0 && getValueAt(0, column) instanceof Number ? Number.class : Object.class;
+                }
+            };
+            JTable reportTable = new JTable(reportTableModel);
+            reportTable.setAutoCreateRowSorter(true);
+            reportTable.setFillsViewportHeight(true);
+            reportTable.getTableHeader().setReorderingAllowed(false);
+            panel.add(new JScrollPane(reportTable), BorderLayout.CENTER);
+
+            reportExportBtn = new JButton("Export...");
+            reportBackBtn = new JButton("Back to Main Menu");
+            JPanel buttonPanel = new JPanel();
+            buttonPanel.add(reportExportBtn);
+            buttonPanel.add(reportBackBtn);
+            panel.add(buttonPanel, BorderLayout.SOUTH);
             return panel;
         }
 
@@ -394,43 +1155,115 @@ public class LeaveManagementApp {
             return panel;
         }
         
-        public void updateStatusResults(List<LeaveRequest> requests) {
-            if (requests.isEmpty()) {
-                statusResultsArea.setText("No leave requests found for this employee.");
-                return;
+        public LeaveHistoryTableModel getLeaveHistoryModel() { return leaveHistoryModel; }
+
+        public LeaveHistoryQuery getLeaveHistoryQuery() {
+            String status = (String) statusFilterStatus.getSelectedItem();
+            return new LeaveHistoryQuery(getStatusEmpId(), "All".equals(status) ? null : status, statusFilterType.getText(),
+                    statusFilterFrom.getText(), statusFilterTo.getText(), leaveHistoryModel.getSortColumn(),
+                    leaveHistoryModel.isAscending(), statusIncludeArchived.isSelected());
+        }
+
+        public String getStatusFilterFrom() { return statusFilterFrom.getText().trim(); }
+        public String getStatusFilterTo() { return statusFilterTo.getText().trim(); }
+
+        public void updateStatusSummary(LeaveHistorySummary summary) {
+            statusSummary = summary;
+            refreshStatusSummary();
+        }
+
+        public void clearStatusResults(String message) {
+            statusSummary = null;
+            leaveHistoryModel.reset(null);
+            statusSummaryLabel.setText(message);
+        }
+
+        private void refreshStatusSummary() {
+            if (leaveHistoryModel.getQuery() == null) return;
+            int loaded = leaveHistoryModel.getRowCount();
+            int total = leaveHistoryModel.getTotalCount();
+            String prefix = statusSummary == null ? "" : statusSummary + " | ";
+            if (total < 0) {
+                statusSummaryLabel.setText(prefix + "Loaded " + loaded + " request(s)");
+            } else if (total == 0) {
+                statusSummaryLabel.setText(prefix + "No leave requests match.");
+            } else {
+                statusSummaryLabel.setText(prefix + "Showing " + loaded + " of " + total + " request(s)");
             }
-            StringBuilder sb = new StringBuilder("Leave History:\n");
-            for (LeaveRequest req : requests) {
-                sb.append(req.toString()).append("\n");
+        }
+
+        public void requestMoreStatusRowsIfVisible() {
+            if (!leaveHistoryModel.hasMore() || leaveHistoryModel.isLoading()) return;
+            JScrollBar bar = statusScrollPane.getVerticalScrollBar();
+            int threshold = statusTable.getRowHeight() * 20;
+            if (bar.getValue() + bar.getVisibleAmount() >= bar.getMaximum() - threshold) {
+                ActionEvent event = new ActionEvent(statusTable, ActionEvent.ACTION_PERFORMED, "loadMore");
+                SwingUtilities.invokeLater(() -> statusLoadMoreListeners.forEach(l -> l.actionPerformed(event)));
+            }
+        }
+
+        private void fireStatusSearch(ActionEvent e) {
+            statusSearchListeners.forEach(l -> l.actionPerformed(e));
+        }
+
+        public PendingRequestsTableModel getPendingRequestsModel() { return pendingRequestsModel; }
+
+        public AnalyticsReportType getSelectedReportType() { return (AnalyticsReportType) reportTypeBox.getSelectedItem(); }
+        public AnalyticsReport getShownReport() { return shownReport; }
+
+        public void showReport(AnalyticsReport report, long millis) {
+            shownReport = report;
+            Object[][] rows = report.getRows().toArray(new Object[0][]);
+            reportTableModel.setDataVector(rows, report.getColumns().toArray());
+            reportSummaryLabel.setText(report.getType().getTitle() + ": " + rows.length + " row(s) in " + millis + " ms");
+        }
+
+        public Path chooseReportExportFile(String suggestedName) {
+            JFileChooser chooser = new JFileChooser();
+            chooser.setDialogTitle("Export Report (.csv or .jsonl)");
+            chooser.setSelectedFile(new File(suggestedName));
+            return chooser.showSaveDialog(this) == JFileChooser.APPROVE_OPTION ? chooser.getSelectedFile().toPath() : null;
+        }
+
+        public int[] getSelectedProcessRows() {
+            int[] viewRows = processRequestsTable.getSelectedRows();
+            int[] modelRows = new int[viewRows.length];
+            for (int i = 0; i < viewRows.length; i++) {
+                modelRows[i] = processRequestsTable.convertRowIndexToModel(viewRows[i]);
+            }
+            return modelRows;
+        }
+
+        public PendingRequestQuery getPendingRequestQuery() {
+            return new PendingRequestQuery(processFilterEmpId.getText(), processFilterType.getText(),
+                    processFilterFrom.getText(), processFilterTo.getText(),
+                    pendingRequestsModel.getSortColumn(), pendingRequestsModel.isAscending());
+        }
+
+        public void requestMoreProcessRowsIfVisible() {
+            if (!pendingRequestsModel.hasMore() || pendingRequestsModel.isLoading()) return;
+            JScrollBar bar = processScrollPane.getVerticalScrollBar();
+            int threshold = processRequestsTable.getRowHeight() * 20;
+            if (bar.getValue() + bar.getVisibleAmount() >= bar.getMaximum() - threshold) {
+                ActionEvent event = new ActionEvent(processRequestsTable, ActionEvent.ACTION_PERFORMED, "loadMore");
+                SwingUtilities.invokeLater(() -> processLoadMoreListeners.forEach(l -> l.actionPerformed(event)));
             }
-            statusResultsArea.setText(sb.toString());
         }
 
-        public void updateStatusResults(String message) {
-            statusResultsArea.setText(message);
+        private void fireProcessQueryChanged(ActionEvent e) {
+            processQueryChangedListeners.forEach(l -> l.actionPerformed(e));
         }
 
-        public void updateProcessRequestsView(List<LeaveRequest> requests, ActionListener listener) {
-            processRequestsPanel.removeAll();
-            if (requests.isEmpty()) {
-                processRequestsPanel.add(new JLabel("No pending requests."));
+        public void updateProcessSummary() {
+            int loaded = pendingRequestsModel.getRowCount();
+            int total = pendingRequestsModel.getTotalCount();
+            if (total < 0) {
+                processSummaryLabel.setText("Loaded " + loaded + " pending request(s)");
+            } else if (total == 0) {
+                processSummaryLabel.setText("No pending requests.");
             } else {
-                for (LeaveRequest req : requests) {
-                    JPanel entryPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
-                    entryPanel.add(new JLabel(req.toString()));
-                    JButton approve = new JButton("Approve");
-                    approve.setActionCommand("approve_" + req.getId());
-                    approve.addActionListener(listener);
-                    JButton reject = new JButton("Reject");
-                    reject.setActionCommand("reject_" + req.getId());
-                    reject.addActionListener(listener);
-                    entryPanel.add(approve);
-                    entryPanel.add(reject);
-                    processRequestsPanel.add(entryPanel);
-                }
+                processSummaryLabel.setText("Showing " + loaded + " of " + total + " pending request(s)");
             }
-            processRequestsPanel.revalidate();
-            processRequestsPanel.repaint();
         }
 
         public String getSubmitEmpId() { return submitEmpId.getText().trim(); }
@@ -443,6 +1276,12 @@ public class LeaveManagementApp {
         public boolean isNewEmpManager() { return addEmpIsManager.isSelected(); }
         public String getDeleteEmpId() { return deleteEmpIdField.getText().trim(); } 
         
+        public void installEmployeeAutocomplete(Function<String, List<DirectoryEntry>> source) {
+            for (JTextField field : new JTextField[] { submitEmpId, statusEmpId, processFilterEmpId, deleteEmpIdField }) {
+                EmployeeAutocomplete.install(field, source);
+            }
+        }
+
         public void resetSubmitForm() { submitEmpId.setText(""); leaveType.setText(""); startDate.setText(""); endDate.setText(""); }
         public void resetAddEmployeeForm() { addEmpId.setText(""); addEmpName.setText(""); addEmpIsManager.setSelected(false); }
         public void resetDeleteEmployeeForm() { deleteEmpIdField.setText(""); } 
@@ -452,211 +1291,7368 @@ public class LeaveManagementApp {
         public void addMenuProcessListener(ActionListener l) { menuProcessBtn.addActionListener(l); }
         public void addMenuAddEmployeeListener(ActionListener l) { menuAddEmpBtn.addActionListener(l); }
         public void addMenuDeleteEmployeeListener(ActionListener l) { menuDeleteEmpBtn.addActionListener(l); } 
+        public void addMenuReportsListener(ActionListener l) { menuReportsBtn.addActionListener(l); }
         public void addMenuExitListener(ActionListener l) { menuExitBtn.addActionListener(l); }
         
         public void addSubmitBackListener(ActionListener l) { submitBackBtn.addActionListener(l); }
         public void addStatusBackListener(ActionListener l) { statusBackBtn.addActionListener(l); }
+        public void addStatusLoadMoreListener(ActionListener l) { statusLoadMoreListeners.add(l); }
         public void addProcessBackListener(ActionListener l) { processBackBtn.addActionListener(l); }
+        public void addProcessApproveSelectedListener(ActionListener l) { processApproveSelectedBtn.addActionListener(l); }
+        public void addProcessRejectSelectedListener(ActionListener l) { processRejectSelectedBtn.addActionListener(l); }
+        public void addProcessCoverageListener(ActionListener l) { processCoverageBtn.addActionListener(l); }
+        public void addProcessQueryChangedListener(ActionListener l) { processQueryChangedListeners.add(l); }
+        public void addProcessLoadMoreListener(ActionListener l) { processLoadMoreListeners.add(l); }
         public void addAddEmployeeBackListener(ActionListener l) { addEmpBackBtn.addActionListener(l); }
         public void addDeleteEmployeeBackListener(ActionListener l) { deleteEmpBackBtn.addActionListener(l); } 
+        public void addReportsBackListener(ActionListener l) { reportBackBtn.addActionListener(l); }
+        public void addReportChangedListener(ActionListener l) {
+            reportTypeBox.addActionListener(l);
+            reportRefreshBtn.addActionListener(l);
+        }
+        public void addReportRebuildListener(ActionListener l) { reportRebuildBtn.addActionListener(l); }
+        public void addReportExportListener(ActionListener l) { reportExportBtn.addActionListener(l); }
 
         public void addSubmitRequestListener(ActionListener l) { submitRequestBtn.addActionListener(l); }
-        public void addViewStatusSearchListener(ActionListener l) { statusSearchBtn.addActionListener(l); }
+        public void addViewStatusSearchListener(ActionListener l) { statusSearchListeners.add(l); }
         public void addAddEmployeeConfirmListener(ActionListener l) { addEmpConfirmBtn.addActionListener(l); }
         public void addDeleteEmployeeConfirmListener(ActionListener l) { deleteEmpConfirmBtn.addActionListener(l); } 
         
         public void switchToPanel(String name) { cardLayout.show(mainPanel, name); }
         public void showMessage(String msg) { JOptionPane.showMessageDialog(this, msg); }
+
+        public boolean confirmCoverageWarning(List<DayCoverage> overLimit, int maxAbsentPerDay) {
+            StringBuilder sb = new StringBuilder("Approving these requests puts more than " + maxAbsentPerDay
+                    + " people on approved leave on:\n");
+            for (int i = 0; i < Math.min(overLimit.size(), 10); i++) {
+                DayCoverage day = overLimit.get(i);
+                sb.append("  ").append(day.getDate()).append(" (").append(day.getApproved()).append(" off)\n");
+            }
+            if (overLimit.size() > 10) sb.append("  ... and ").append(overLimit.size() - 10).append(" more day(s)\n");
+            sb.append("\nApprove anyway?");
+            return JOptionPane.showConfirmDialog(this, sb.toString(), "Coverage Warning",
+                    JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE) == JOptionPane.YES_OPTION;
+        }
+
+        public void showCoverage(List<DayCoverage> days, int maxAbsentPerDay) {
+            Object[][] data = new Object[days.size()][];
+            for (int i = 0; i < days.size(); i++) {
+                DayCoverage day = days.get(i);
+                data[i] = new Object[] { day.getDate().toString(), day.getDate().getDayOfWeek().toString().substring(0, 3),
+                        day.getApproved(), day.getPending(), day.getApproved() > maxAbsentPerDay ? "Over limit" : "" };
+            }
+            JTable table = new JTable(data, new Object[] { "Date", "Day", "Approved", "Pending", "" });
+            table.setEnabled(false);
+            JScrollPane scrollPane = new JScrollPane(table);
+            scrollPane.setPreferredSize(new Dimension(420, 300));
+            JOptionPane.showMessageDialog(this, scrollPane, "Absence Coverage (limit " + maxAbsentPerDay + " per day)",
+                    JOptionPane.PLAIN_MESSAGE);
+        }
         public void showError(String msg) { JOptionPane.showMessageDialog(this, msg, "Error", JOptionPane.ERROR_MESSAGE); }
     }
 
-    static class DatabaseManager {
-        private static final String DB_URL = "jdbc:mysql://localhost:3306/leave_system_db";
-        private static final String USER = "YOUR DB USERNAME";
-        private static final String PASS = "YOUR DB PASSWORD";
+    enum PendingSort {
+        REQUEST_ID("request_id"), EMPLOYEE("employee_id"), TYPE("leave_type"), START_DATE("start_date"), END_DATE("end_date");
 
-        public DatabaseManager() throws SQLException {
-            getConnection().close(); 
-        }
+        private final String column;
+        PendingSort(String column) { this.column = column; }
+        public String getColumn() { return column; }
+    }
 
-        private Connection getConnection() throws SQLException {
-            return DriverManager.getConnection(DB_URL, USER, PASS);
-        }
-        
-        public List<Employee> getAllEmployees() {
-            List<Employee> employees = new ArrayList<>();
-            String sql = "SELECT * FROM employees ORDER BY name";
-            try (Connection conn = getConnection();
-                Statement stmt = conn.createStatement();
-                ResultSet rs = stmt.executeQuery(sql)) {
-                while (rs.next()) {
-                    String id = rs.getString("id");
-                    String name = rs.getString("name");
-                    int balance = rs.getInt("leave_balance");
-                    boolean isManager = rs.getBoolean("is_manager");
-                    if (isManager) {
-                        employees.add(new Manager(id, name, balance));
-                    } else {
-                        employees.add(new Employee(id, name, balance));
-                    }
-                }
-            } catch (SQLException e) {
-                e.printStackTrace();
-            }
-            return employees;
+    static class PendingRequestQuery {
+        private final String employeeId;
+        private final String leaveType;
+        private final String fromDate;
+        private final String toDate;
+        private final PendingSort sort;
+        private final boolean ascending;
+
+        public PendingRequestQuery(String employeeId, String leaveType, String fromDate, String toDate,
+                                   PendingSort sort, boolean ascending) {
+            this.employeeId = blankToNull(employeeId);
+            this.leaveType = blankToNull(leaveType);
+            this.fromDate = blankToNull(fromDate);
+            this.toDate = blankToNull(toDate);
+            this.sort = sort == null ? PendingSort.REQUEST_ID : sort;
+            this.ascending = ascending;
         }
 
-        public Employee findEmployeeById(String employeeId) {
-            String sql = "SELECT * FROM employees WHERE id = ?";
-            try (Connection conn = getConnection();
-                PreparedStatement pstmt = conn.prepareStatement(sql)) {
-                pstmt.setString(1, employeeId);
-                try (ResultSet rs = pstmt.executeQuery()) {
-                    if (rs.next()) {
-                        String name = rs.getString("name");
-                        int balance = rs.getInt("leave_balance");
-                        boolean isManager = rs.getBoolean("is_manager");
-                        if (isManager) {
-                            return new Manager(employeeId, name, balance);
-                        } else {
-                            return new Employee(employeeId, name, balance);
-                        }
-                    }
-                }
-            } catch (SQLException e) {
-                e.printStackTrace();
-            }
-            return null;
+        public static PendingRequestQuery all() {
+            return new PendingRequestQuery(null, null, null, null, PendingSort.REQUEST_ID, true);
         }
 
-        public void addEmployee(Employee emp) {
-            String sql = "INSERT INTO employees(id, name, leave_balance, is_manager) VALUES(?, ?, ?, ?)";
-            try (Connection conn = getConnection();
-                PreparedStatement pstmt = conn.prepareStatement(sql)) {
-                pstmt.setString(1, emp.getId());
-                pstmt.setString(2, emp.getName());
-                pstmt.setInt(3, emp.getLeaveBalance());
-                pstmt.setBoolean(4, emp instanceof Manager);
-                pstmt.executeUpdate();
-            } catch (SQLException e) {
-                e.printStackTrace();
-            }
+        public String getEmployeeId() { return employeeId; }
+        public String getLeaveType() { return leaveType; }
+        public String getFromDate() { return fromDate; }
+        public String getToDate() { return toDate; }
+        public PendingSort getSort() { return sort; }
+        public boolean isAscending() { return ascending; }
+    }
+
+    enum HistorySort {
+        REQUEST_ID("request_id"), TYPE("leave_type"), START_DATE("start_date"), END_DATE("end_date"), STATUS("status");
+
+        private final String column;
+        HistorySort(String column) { this.column = column; }
+        public String getColumn() { return column; }
+    }
+
+    static class LeaveHistoryQuery {
+        private final String employeeId;
+        private final String status;
+        private final String leaveType;
+        private final String fromDate;
+        private final String toDate;
+        private final HistorySort sort;
+        private final boolean ascending;
+        private final boolean includeArchived;
+
+        public LeaveHistoryQuery(String employeeId, String status, String leaveType, String fromDate, String toDate,
+                                 HistorySort sort, boolean ascending, boolean includeArchived) {
+            this.employeeId = employeeId.trim();
+            this.status = blankToNull(status);
+            this.leaveType = blankToNull(leaveType);
+            this.fromDate = blankToNull(fromDate);
+            this.toDate = blankToNull(toDate);
+            this.sort = sort == null ? HistorySort.START_DATE : sort;
+            this.ascending = ascending;
+            this.includeArchived = includeArchived;
         }
 
-        public void removeEmployee(String employeeId) {
-            String deleteRequestsSql = "DELETE FROM leave_requests WHERE employee_id = ?";
-            String deleteEmployeeSql = "DELETE FROM employees WHERE id = ?";
-            try (Connection conn = getConnection()) {
-                conn.setAutoCommit(false);
-                try (PreparedStatement pstmtRequests = conn.prepareStatement(deleteRequestsSql)) {
-                    pstmtRequests.setString(1, employeeId);
-                    pstmtRequests.executeUpdate();
-                }
-                try (PreparedStatement pstmtEmployee = conn.prepareStatement(deleteEmployeeSql)) {
-                    pstmtEmployee.setString(1, employeeId);
-                    pstmtEmployee.executeUpdate();
-                }
-                conn.commit();
-            } catch (SQLException e) {
-                e.printStackTrace();
-            }
+        public boolean matches(LeaveRequest req) {
+            if (!employeeId.equals(req.getEmployeeId())) return false;
+            if (status != null && !status.equalsIgnoreCase(req.getStatus())) return false;
+            if (leaveType != null && !leaveType.equalsIgnoreCase(req.getLeaveType())) return false;
+            if (fromDate != null && req.getEndDate().compareTo(fromDate) < 0) return false;
+            if (toDate != null && req.getStartDate().compareTo(toDate) > 0) return false;
+            return true;
         }
 
-        public void addLeaveRequest(LeaveRequest req) {
-            String sql = "INSERT INTO leave_requests(employee_id, leave_type, start_date, end_date, status) VALUES(?, ?, ?, ?, ?)";
-            try (Connection conn = getConnection();
-                PreparedStatement pstmt = conn.prepareStatement(sql)) {
-                pstmt.setString(1, req.getEmployeeId());
+        public String getEmployeeId() { return employeeId; }
+        public String getStatus() { return status; }
+        public String getLeaveType() { return leaveType; }
+        public String getFromDate() { return fromDate; }
+        public String getToDate() { return toDate; }
+        public HistorySort getSort() { return sort; }
+        public boolean isAscending() { return ascending; }
+        public boolean isIncludeArchived() { return includeArchived; }
+    }
+
+    static class LeaveHistorySummary {
+        private static final List<String> STATUS_ORDER = List.of("Pending", "Approved", "Rejected");
+
+        private final int balance;
+        private final Map<String, int[]> byStatus;
+        private final int queued;
+
+        LeaveHistorySummary(int balance, Map<String, int[]> byStatus, int queued) {
+            this.balance = balance;
+            this.byStatus = byStatus;
+            this.queued = queued;
+        }
+
+        public LeaveHistorySummary withQueued(int queued) {
+            return new LeaveHistorySummary(balance, byStatus, queued);
+        }
+
+        public int getBalance() { return balance; }
+        public int getQueued() { return queued; }
+        public int getRequests(String status) { return byStatus.getOrDefault(status, new int[2])[0]; }
+        public int getDays(String status) { return byStatus.getOrDefault(status, new int[2])[1]; }
+
+        public int getTotalRequests() {
+            int total = 0;
+            for (int[] counts : byStatus.values()) total += counts[0];
+            return total;
+        }
+
+        private List<String> statuses() {
+            List<String> statuses = new ArrayList<>(STATUS_ORDER);
+            for (String status : byStatus.keySet()) {
+                if (!statuses.contains(status)) statuses.add(status);
+            }
+            return statuses;
+        }
+
+        public Map<String, Object> toJson() {
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("balance", balance);
+            json.put("totalRequests", getTotalRequests());
+            for (String status : statuses()) {
+                Map<String, Object> counts = new LinkedHashMap<>();
+                counts.put("requests", getRequests(status));
+                counts.put("days", getDays(status));
+                json.put(status.toLowerCase(), counts);
+            }
+            if (queued > 0) json.put("queued", queued);
+            return json;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder("Balance: ").append(balance).append(" days | ");
+            String separator = "";
+            for (String status : statuses()) {
+                sb.append(separator).append(getRequests(status)).append(' ').append(status)
+                        .append(" (").append(getDays(status)).append(" days)");
+                separator = ", ";
+            }
+            if (queued > 0) sb.append(" | ").append(queued).append(" still being saved");
+            return sb.toString();
+        }
+    }
+
+    static class LeaveRequestFilter {
+        private final String employeeId;
+        private final String status;
+        private final String fromDate;
+        private final String toDate;
+        private final int afterRequestId;
+        private final int upToRequestId;
+
+        public LeaveRequestFilter(String employeeId, String status, String fromDate, String toDate) {
+            this(employeeId, status, fromDate, toDate, 0, Integer.MAX_VALUE);
+        }
+
+        public LeaveRequestFilter(String employeeId, String status, String fromDate, String toDate, int afterRequestId, int upToRequestId) {
+            this.employeeId = blankToNull(employeeId);
+            this.status = blankToNull(status);
+            this.fromDate = blankToNull(fromDate);
+            this.toDate = blankToNull(toDate);
+            this.afterRequestId = afterRequestId;
+            this.upToRequestId = upToRequestId;
+        }
+
+        public boolean matches(LeaveRequest req) {
+            if (req.getId() <= afterRequestId || req.getId() > upToRequestId) return false;
+            if (employeeId != null && !employeeId.equals(req.getEmployeeId())) return false;
+            if (status != null && !status.equalsIgnoreCase(req.getStatus())) return false;
+            if (fromDate != null && req.getEndDate().compareTo(fromDate) < 0) return false;
+            if (toDate != null && req.getStartDate().compareTo(toDate) > 0) return false;
+            return true;
+        }
+
+        public String getEmployeeId() { return employeeId; }
+        public String getStatus() { return status; }
+        public String getFromDate() { return fromDate; }
+        public String getToDate() { return toDate; }
+        public int getAfterRequestId() { return afterRequestId; }
+        public int getUpToRequestId() { return upToRequestId; }
+        public boolean hasRequestIdRange() { return afterRequestId > 0 || upToRequestId < Integer.MAX_VALUE; }
+    }
+
+    interface LeaveRequestSink {
+        void accept(LeaveRequest req) throws IOException;
+    }
+
+    abstract static class PagedRequestsTableModel<Q> extends AbstractTableModel {
+        protected final List<LeaveRequest> rows = new ArrayList<>();
+        private Q query;
+        private boolean hasMore;
+        private boolean loading;
+        protected int totalCount = -1;
+
+        PagedRequestsTableModel(Q query) {
+            this.query = query;
+            this.hasMore = query != null;
+        }
+
+        @Override
+        public int getRowCount() { return rows.size(); }
+
+        public Q getQuery() { return query; }
+        public boolean hasMore() { return hasMore; }
+        public boolean isLoading() { return loading; }
+        public int getTotalCount() { return totalCount; }
+
+        public void reset(Q query) {
+            this.query = query;
+            rows.clear();
+            hasMore = query != null;
+            loading = false;
+            totalCount = -1;
+            fireTableDataChanged();
+        }
+
+        public boolean beginLoading() {
+            if (loading || !hasMore) return false;
+            loading = true;
+            return true;
+        }
+
+        public void endLoading(Q forQuery) {
+            if (forQuery == query) loading = false;
+        }
+
+        public void appendPage(Q forQuery, List<LeaveRequest> page, boolean more) {
+            if (forQuery != query) return;
+            loading = false;
+            hasMore = more;
+            if (page.isEmpty()) return;
+            int first = rows.size();
+            rows.addAll(page);
+            fireTableRowsInserted(first, rows.size() - 1);
+        }
+
+        public void setTotalCount(Q forQuery, int count) {
+            if (forQuery != query) return;
+            totalCount = count;
+        }
+
+        public LeaveRequest getLastRequest() {
+            return rows.isEmpty() ? null : rows.get(rows.size() - 1);
+        }
+    }
+
+    static class PendingRequestsTableModel extends PagedRequestsTableModel<PendingRequestQuery> {
+        private static final String[] COLUMN_NAMES = { "Request #", "Employee ID", "Leave Type", "From", "To" };
+        private static final PendingSort[] COLUMN_SORTS = {
+                PendingSort.REQUEST_ID, PendingSort.EMPLOYEE, PendingSort.TYPE, PendingSort.START_DATE, PendingSort.END_DATE };
+
+        private PendingSort sortColumn = PendingSort.REQUEST_ID;
+        private boolean ascending = true;
+
+        PendingRequestsTableModel() {
+            super(PendingRequestQuery.all());
+        }
+
+        @Override
+        public int getColumnCount() { return COLUMN_NAMES.length; }
+
+        @Override
+        public String getColumnName(int column) {
+            if (COLUMN_SORTS[column] != sortColumn) return COLUMN_NAMES[column];
+            return COLUMN_NAMES[column] + (ascending ? " \u25B2" : " \u25BC");
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            return column == 0 ? Integer.class : String.class;
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            LeaveRequest req = rows.get(row);
+            switch (column) {
+                case 0: return req.getId();
+                case 1: return req.getEmployeeId();
+                case 2: return req.getLeaveType();
+                case 3: return req.getStartDate();
+                default: return req.getEndDate();
+            }
+        }
+
+        public void toggleSort(int column) {
+            PendingSort selected = COLUMN_SORTS[column];
+            ascending = selected != sortColumn || !ascending;
+            sortColumn = selected;
+            fireTableStructureChanged();
+        }
+
+        public PendingSort getSortColumn() { return sortColumn; }
+        public boolean isAscending() { return ascending; }
+
+        public List<Integer> getRequestIds(int[] modelRows) {
+            List<Integer> ids = new ArrayList<>();
+            for (int row : modelRows) ids.add(rows.get(row).getId());
+            return ids;
+        }
+
+        public List<LeaveRequest> getRequests(int[] modelRows) {
+            List<LeaveRequest> selected = new ArrayList<>();
+            for (int row : modelRows) selected.add(rows.get(row));
+            return selected;
+        }
+
+        public void removeRequests(Set<Integer> requestIds) {
+            for (int row = rows.size() - 1; row >= 0; row--) {
+                if (requestIds.contains(rows.get(row).getId())) {
+                    rows.remove(row);
+                    if (totalCount > 0) totalCount--;
+                    fireTableRowsDeleted(row, row);
+                }
+            }
+        }
+    }
+
+    static class LeaveHistoryTableModel extends PagedRequestsTableModel<LeaveHistoryQuery> {
+        private static final String[] COLUMN_NAMES = { "Request #", "Leave Type", "From", "To", "Days", "Status" };
+        private static final HistorySort[] COLUMN_SORTS = {
+                HistorySort.REQUEST_ID, HistorySort.TYPE, HistorySort.START_DATE, HistorySort.END_DATE, null, HistorySort.STATUS };
+
+        private HistorySort sortColumn = HistorySort.START_DATE;
+        private boolean ascending;
+
+        LeaveHistoryTableModel() {
+            super(null);
+        }
+
+        @Override
+        public int getColumnCount() { return COLUMN_NAMES.length; }
+
+        @Override
+        public String getColumnName(int column) {
+            if (COLUMN_SORTS[column] != sortColumn) return COLUMN_NAMES[column];
+            return COLUMN_NAMES[column] + (ascending ? " \u25B2" : " \u25BC");
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            return column == 0 || column == 4 ? Integer.class : String.class;
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            LeaveRequest req = rows.get(row);
+            switch (column) {
+                case 0: return req.getId();
+                case 1: return req.getLeaveType();
+                case 2: return req.getStartDate();
+                case 3: return req.getEndDate();
+                case 4: return req.getDays();
+                default: return req.getStatus();
+            }
+        }
+
+        public boolean toggleSort(int column) {
+            HistorySort selected = COLUMN_SORTS[column];
+            if (selected == null) return false;
+            ascending = selected != sortColumn || !ascending;
+            sortColumn = selected;
+            fireTableStructureChanged();
+            return true;
+        }
+
+        public HistorySort getSortColumn() { return sortColumn; }
+        public boolean isAscending() { return ascending; }
+    }
+
+    static class EmployeeAutocomplete {
+        private final JTextField field;
+        private final Function<String, List<DirectoryEntry>> source;
+        private final DefaultListModel<DirectoryEntry> suggestions = new DefaultListModel<>();
+        private final JList<DirectoryEntry> list = new JList<>(suggestions);
+        private final JPopupMenu popup = new JPopupMenu();
+        private boolean accepting;
+
+        private EmployeeAutocomplete(JTextField field, Function<String, List<DirectoryEntry>> source) {
+            this.field = field;
+            this.source = source;
+            list.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+            list.setFocusable(false);
+            list.addMouseListener(new MouseAdapter() {
+                @Override
+                public void mouseClicked(MouseEvent e) {
+                    int index = list.locationToIndex(e.getPoint());
+                    if (index >= 0) accept(suggestions.get(index));
+                }
+            });
+            popup.setFocusable(false);
+            popup.add(new JScrollPane(list));
+            field.getDocument().addDocumentListener(new DocumentListener() {
+                @Override public void insertUpdate(DocumentEvent e) { changed(); }
+                @Override public void removeUpdate(DocumentEvent e) { changed(); }
+                @Override public void changedUpdate(DocumentEvent e) { }
+            });
+            field.addKeyListener(new KeyAdapter() {
+                @Override
+                public void keyPressed(KeyEvent e) {
+                    if (!popup.isVisible()) return;
+                    int selected = list.getSelectedIndex();
+                    switch (e.getKeyCode()) {
+                        case KeyEvent.VK_DOWN -> select(Math.min(selected + 1, suggestions.size() - 1));
+                        case KeyEvent.VK_UP -> select(Math.max(selected - 1, 0));
+                        case KeyEvent.VK_ESCAPE -> popup.setVisible(false);
+                        case KeyEvent.VK_ENTER, KeyEvent.VK_TAB -> {
+                            if (selected < 0) return;
+                            accept(suggestions.get(selected));
+                        }
+                        default -> { return; }
+                    }
+                    e.consume();
+                }
+            });
+            field.addFocusListener(new FocusAdapter() {
+                @Override
+                public void focusLost(FocusEvent e) { popup.setVisible(false); }
+            });
+        }
+
+        static void install(JTextField field, Function<String, List<DirectoryEntry>> source) {
+            new EmployeeAutocomplete(field, source);
+        }
+
+        private void changed() {
+            if (accepting) return;
+            SwingUtilities.invokeLater(this::refresh);
+        }
+
+        private void refresh() {
+            String text = field.getText().trim();
+            List<DirectoryEntry> matches = text.isEmpty() || !field.isShowing() ? List.of() : source.apply(text);
+            if (matches.isEmpty() || (matches.size() == 1 && matches.get(0).getId().equals(text))) {
+                popup.setVisible(false);
+                return;
+            }
+            suggestions.clear();
+            matches.forEach(suggestions::addElement);
+            list.setVisibleRowCount(suggestions.size());
+            popup.setPopupSize(Math.max(field.getWidth(), list.getPreferredScrollableViewportSize().width + 24),
+                    list.getPreferredScrollableViewportSize().height + 8);
+            if (!popup.isVisible()) popup.show(field, 0, field.getHeight());
+            else popup.revalidate();
+        }
+
+        private void select(int index) {
+            if (index < 0) return;
+            list.setSelectedIndex(index);
+            list.ensureIndexIsVisible(index);
+        }
+
+        private void accept(DirectoryEntry entry) {
+            accepting = true;
+            try {
+                field.setText(entry.getId());
+            } finally {
+                accepting = false;
+            }
+            popup.setVisible(false);
+            field.requestFocusInWindow();
+        }
+    }
+
+    interface LeaveStore {
+        List<Employee> getAllEmployees();
+        long streamEmployees(Consumer<Employee> sink);
+        Employee findEmployeeById(String employeeId);
+        void addEmployee(Employee emp);
+        boolean removeEmployee(String employeeId);
+        int addLeaveRequest(LeaveRequest req);
+        List<LeaveRequest> getRequestsForEmployee(String employeeId);
+        List<LeaveRequest> getArchivedRequestsForEmployee(String employeeId);
+        List<LeaveRequest> getRequestHistoryPage(LeaveHistoryQuery query, LeaveRequest after, int limit);
+        LeaveHistorySummary summarizeRequestHistory(LeaveHistoryQuery query);
+        List<LeaveRequest> archiveRequests(LocalDate cutoff, int afterRequestId, int chunkSize);
+        List<LeaveRequest> getPendingRequests();
+        List<LeaveRequest> getPendingRequestsPage(PendingRequestQuery query, LeaveRequest after, int limit);
+        int countPendingRequests(PendingRequestQuery query);
+        LeaveRequest findRequestById(int requestId);
+        int getMaxRequestId();
+        void updateLeaveRequestStatus(int requestId, String status);
+        ProcessOutcome approveLeaveRequest(int requestId, String employeeId, int days);
+        ProcessOutcome rejectLeaveRequest(int requestId);
+        BulkProcessResult processRequests(List<Integer> requestIds, String newStatus);
+        void adjustEmployeeBalance(String employeeId, int delta);
+        void updateEmployeeBalance(String employeeId, int newBalance);
+        long streamLeaveRequests(LeaveRequestFilter filter, LeaveRequestSink sink) throws IOException;
+        List<LedgerEntry> getLedger(String employeeId);
+        int getLedgerBalance(String employeeId);
+        int snapshotBalances();
+        BalanceRebuildResult rebuildBalances(String afterEmployeeId, String upToEmployeeId);
+        AccrualProgress beginAccrual(String period);
+        AccrualProgress accrueNextChunk(AccrualProgress progress, AccrualPolicy policy, int chunkSize);
+        Set<String> findExistingEmployeeIds(Collection<String> employeeIds);
+        int importEmployees(List<Employee> batch);
+        int importLeaveRequests(List<LeaveRequest> batch);
+        void close();
+
+        default ConnectionPool.PoolStats getPoolStats() { return null; }
+        default List<String> getReplicaStatus() { return List.of(); }
+
+        static LeaveStore open(String engine) throws SQLException, IOException {
+            if ("embedded".equalsIgnoreCase(engine)) {
+                return new EmbeddedLeaveStore(Paths.get(System.getProperty("leave.embedded.dir", "data")));
+            }
+            if (engine == null || "mysql".equalsIgnoreCase(engine)) {
+                return new DatabaseManager();
+            }
+            throw new IllegalArgumentException("Unknown storage engine '" + engine + "'. Use 'mysql' or 'embedded'.");
+        }
+    }
+
+    static class DatabaseManager implements LeaveStore {
+        private static final String DB_URL = "jdbc:mysql://localhost:3306/leave_system_db?rewriteBatchedStatements=true";
+        private static final String USER = "YOUR DB USERNAME";
+        private static final String PASS = "YOUR DB PASSWORD";
+
+        private static final int POOL_MIN_SIZE = Integer.getInteger("leave.pool.minSize", 2);
+        private static final int POOL_MAX_SIZE = Integer.getInteger("leave.pool.maxSize", 10);
+        private static final long POOL_IDLE_TIMEOUT_MILLIS = Long.getLong("leave.pool.idleTimeoutMillis", 300_000L);
+        private static final long POOL_BORROW_TIMEOUT_MILLIS = Long.getLong("leave.pool.borrowTimeoutMillis", 30_000L);
+
+        private static final int BATCH_CHUNK_SIZE = 500;
+        private static final int MULTI_ROW_INSERT_SIZE = 1_000;
+        private static final int DELETE_CHUNK_SIZE = Integer.getInteger("leave.delete.chunkSize", 1_000);
+        private static final String LEDGER_INSERT_SQL = "INSERT INTO balance_ledger(employee_id, delta, reason, reference) VALUES(?, ?, ?, ?)";
+        private static final int EXPORT_FETCH_SIZE = Integer.getInteger("leave.export.fetchSize", Integer.MIN_VALUE);
+
+        private final ConnectionPool pool;
+        private final ReplicaRouter replicas;
+
+        public DatabaseManager() throws SQLException {
+            pool = new ConnectionPool(withBatchRewrite(System.getProperty("leave.db.url", DB_URL)), USER, PASS, POOL_MIN_SIZE, POOL_MAX_SIZE,
+                    POOL_IDLE_TIMEOUT_MILLIS, POOL_BORROW_TIMEOUT_MILLIS);
+            try (Connection conn = getConnection()) {
+                SchemaMigrator.migrate(conn);
+            } catch (SQLException e) {
+                pool.close();
+                throw e;
+            }
+            pool.warmUp();
+            try {
+                replicas = ReplicaRouter.fromSystemProperties(USER, PASS, POOL_MIN_SIZE, POOL_MAX_SIZE, POOL_IDLE_TIMEOUT_MILLIS);
+            } catch (RuntimeException e) {
+                pool.close();
+                throw e;
+            }
+        }
+
+        /**
+         * Connector/J sends a JDBC batch as one statement per row unless rewriteBatchedStatements is on,
+         * so the flag is added to a leave.db.url that does not set it either way.
+         */
+        static String withBatchRewrite(String url) {
+            if (url.contains("rewriteBatchedStatements=")) return url;
+            return url + (url.indexOf('?') < 0 ? "?" : "&") + "rewriteBatchedStatements=true";
+        }
+
+        private Connection getConnection() throws SQLException {
+            return pool.borrow();
+        }
+
+        private void wrote(String employeeId) {
+            if (replicas == null) return;
+            replicas.wrote();
+            replicas.wrote(employeeId);
+        }
+
+        private <T> T read(String operation, String employeeId, T failed, ReadQuery<T> query) {
+            ReplicaRouter.Replica replica = replicas == null ? null : replicas.choose(employeeId);
+            if (replica != null) {
+                try (Connection conn = replica.borrow()) {
+                    return query.run(conn);
+                } catch (SQLException e) {
+                    replicas.failed(replica, e);
+                    DataLayerMetrics.getInstance().recordError(operation + "[replica]", e);
+                }
+            }
+            try (Connection conn = pool.borrow()) {
+                return query.run(conn);
+            } catch (SQLException e) {
+                DataLayerMetrics.getInstance().recordError(operation, e);
+            }
+            return failed;
+        }
+
+        private interface ReadQuery<T> {
+            T run(Connection conn) throws SQLException;
+        }
+
+        public ConnectionPool.PoolStats getPoolStats() { return pool.getStats(); }
+
+        public List<String> getReplicaStatus() { return replicas == null ? List.of() : replicas.describe(); }
+
+        public void close() {
+            if (replicas != null) replicas.close();
+            pool.close();
+        }
+        
+        public List<Employee> getAllEmployees() {
+            return read("getAllEmployees", null, new ArrayList<>(), conn -> {
+                List<Employee> employees = new ArrayList<>();
+                try (Statement stmt = conn.createStatement();
+                    ResultSet rs = stmt.executeQuery("SELECT * FROM employees ORDER BY name")) {
+                    while (rs.next()) {
+                        String id = rs.getString("id");
+                        String name = rs.getString("name");
+                        int balance = rs.getInt("leave_balance");
+                        boolean isManager = rs.getBoolean("is_manager");
+                        if (isManager) {
+                            employees.add(new Manager(id, name, balance));
+                        } else {
+                            employees.add(new Employee(id, name, balance));
+                        }
+                    }
+                }
+                return employees;
+            });
+        }
+
+        public long streamEmployees(Consumer<Employee> sink) {
+            return read("streamEmployees", null, 0L, conn -> {
+                long rows = 0;
+                try (PreparedStatement pstmt = conn.prepareStatement("SELECT id, name, leave_balance, is_manager FROM employees ORDER BY id",
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                    pstmt.setFetchSize(EXPORT_FETCH_SIZE);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            String id = rs.getString("id");
+                            String name = rs.getString("name");
+                            int balance = rs.getInt("leave_balance");
+                            sink.accept(rs.getBoolean("is_manager") ? new Manager(id, name, balance) : new Employee(id, name, balance));
+                            rows++;
+                        }
+                    }
+                }
+                return rows;
+            });
+        }
+
+        public Employee findEmployeeById(String employeeId) {
+            return read("findEmployeeById", employeeId, null, conn -> {
+                try (PreparedStatement pstmt = conn.prepareStatement("SELECT * FROM employees WHERE id = ?")) {
+                    pstmt.setString(1, employeeId);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        if (rs.next()) {
+                            String name = rs.getString("name");
+                            int balance = rs.getInt("leave_balance");
+                            boolean isManager = rs.getBoolean("is_manager");
+                            if (isManager) {
+                                return new Manager(employeeId, name, balance);
+                            } else {
+                                return new Employee(employeeId, name, balance);
+                            }
+                        }
+                    }
+                }
+                return null;
+            });
+        }
+
+        public void addEmployee(Employee emp) {
+            String sql = "INSERT INTO employees(id, name, leave_balance, is_manager) VALUES(?, ?, ?, ?)";
+            try (Connection conn = getConnection()) {
+                conn.setAutoCommit(false);
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    pstmt.setString(1, emp.getId());
+                    pstmt.setString(2, emp.getName());
+                    pstmt.setInt(3, emp.getLeaveBalance());
+                    pstmt.setBoolean(4, emp instanceof Manager);
+                    pstmt.executeUpdate();
+                    appendLedger(conn, emp.getId(), emp.getLeaveBalance(), LedgerEntry.OPENING, null);
+                    conn.commit();
+                    wrote(emp.getId());
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                }
+            } catch (SQLException e) {
+                DataLayerMetrics.getInstance().recordError("addEmployee", e);
+            }
+        }
+
+        public boolean removeEmployee(String employeeId) {
+            String lockSql = "SELECT leave_balance FROM employees WHERE id = ? FOR UPDATE";
+            String deleteSnapshotSql = "DELETE FROM balance_snapshots WHERE employee_id = ?";
+            String deleteEmployeeSql = "DELETE FROM employees WHERE id = ?";
+            try (Connection conn = getConnection()) {
+                conn.setAutoCommit(false);
+                try {
+                    // The row lock makes new requests for this employee wait on the foreign key check, so the
+                    // chunked deletes leave nothing behind. Everything commits or rolls back together.
+                    int balance;
+                    try (PreparedStatement pstmtLock = conn.prepareStatement(lockSql)) {
+                        pstmtLock.setString(1, employeeId);
+                        try (ResultSet rs = pstmtLock.executeQuery()) {
+                            if (!rs.next()) {
+                                conn.rollback();
+                                return false;
+                            }
+                            balance = rs.getInt(1);
+                        }
+                    }
+                    deleteInChunks(conn, "DELETE FROM leave_requests WHERE employee_id = ? LIMIT ?", employeeId);
+                    deleteInChunks(conn, "DELETE FROM leave_requests_archive WHERE employee_id = ? LIMIT ?", employeeId);
+                    if (balance != 0) appendLedger(conn, employeeId, -balance, LedgerEntry.CLOSED, null);
+                    try (PreparedStatement pstmtSnapshot = conn.prepareStatement(deleteSnapshotSql)) {
+                        pstmtSnapshot.setString(1, employeeId);
+                        pstmtSnapshot.executeUpdate();
+                    }
+                    try (PreparedStatement pstmtEmployee = conn.prepareStatement(deleteEmployeeSql)) {
+                        pstmtEmployee.setString(1, employeeId);
+                        pstmtEmployee.executeUpdate();
+                    }
+                    conn.commit();
+                    wrote(employeeId);
+                    return true;
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                }
+            } catch (SQLException e) {
+                DataLayerMetrics.getInstance().recordError("removeEmployee", e);
+            }
+            return false;
+        }
+
+        private static void deleteInChunks(Connection conn, String sql, String employeeId) throws SQLException {
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setString(1, employeeId);
+                pstmt.setInt(2, DELETE_CHUNK_SIZE);
+                int deleted;
+                do {
+                    deleted = pstmt.executeUpdate();
+                } while (deleted == DELETE_CHUNK_SIZE);
+            }
+        }
+
+        public int addLeaveRequest(LeaveRequest req) {
+            String sql = "INSERT INTO leave_requests(employee_id, leave_type, start_date, end_date, status) VALUES(?, ?, ?, ?, ?)";
+            try (Connection conn = getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                pstmt.setString(1, req.getEmployeeId());
                 pstmt.setString(2, req.getLeaveType());
-                pstmt.setString(3, req.getStartDate());
-                pstmt.setString(4, req.getEndDate());
+                pstmt.setDate(3, Date.valueOf(req.getStartDate()));
+                pstmt.setDate(4, Date.valueOf(req.getEndDate()));
                 pstmt.setString(5, req.getStatus());
                 pstmt.executeUpdate();
+                wrote(req.getEmployeeId());
+                try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                    if (keys.next()) return keys.getInt(1);
+                }
             } catch (SQLException e) {
-                e.printStackTrace();
+                DataLayerMetrics.getInstance().recordError("addLeaveRequest", e);
+            }
+            return -1;
+        }
+
+        public List<LeaveRequest> getRequestsForEmployee(String employeeId) {
+            return read("getRequestsForEmployee", employeeId, new ArrayList<>(),
+                    conn -> queryRequests(conn, "SELECT * FROM leave_requests WHERE employee_id = ? ORDER BY request_id", employeeId));
+        }
+
+        public List<LeaveRequest> getArchivedRequestsForEmployee(String employeeId) {
+            return read("getArchivedRequestsForEmployee", employeeId, new ArrayList<>(),
+                    conn -> queryRequests(conn, "SELECT * FROM leave_requests_archive WHERE employee_id = ? ORDER BY request_id", employeeId));
+        }
+
+        public List<LeaveRequest> getRequestHistoryPage(LeaveHistoryQuery query, LeaveRequest after, int limit) {
+            List<Object> params = new ArrayList<>();
+            String sql = historyBranch("leave_requests", query, after, limit, params);
+            if (query.isIncludeArchived()) {
+                sql = "(" + sql + ") UNION ALL (" + historyBranch("leave_requests_archive", query, after, limit, params) + ")"
+                        + historyOrder(query) + " LIMIT ?";
+                params.add(limit);
+            }
+            String statement = sql;
+            return read("getRequestHistoryPage", query.getEmployeeId(), new ArrayList<>(),
+                    conn -> queryRequests(conn, statement, params));
+        }
+
+        private static String historyBranch(String table, LeaveHistoryQuery query, LeaveRequest after, int limit, List<Object> params) {
+            StringBuilder sql = new StringBuilder("SELECT request_id, employee_id, leave_type, start_date, end_date, status FROM ").append(table);
+            appendHistoryFilters(sql, params, query);
+            if (after != null) {
+                String comparison = query.isAscending() ? ">" : "<";
+                if (query.getSort() == HistorySort.REQUEST_ID) {
+                    sql.append(" AND request_id ").append(comparison).append(" ?");
+                } else {
+                    String column = query.getSort().getColumn();
+                    Object afterValue = historySortValue(after, query.getSort());
+                    sql.append(" AND (").append(column).append(' ').append(comparison).append(" ? OR (")
+                            .append(column).append(" = ? AND request_id ").append(comparison).append(" ?))");
+                    params.add(afterValue);
+                    params.add(afterValue);
+                }
+                params.add(after.getId());
+            }
+            sql.append(historyOrder(query)).append(" LIMIT ?");
+            params.add(limit);
+            return sql.toString();
+        }
+
+        private static String historyOrder(LeaveHistoryQuery query) {
+            String direction = query.isAscending() ? "ASC" : "DESC";
+            if (query.getSort() == HistorySort.REQUEST_ID) return " ORDER BY request_id " + direction;
+            return " ORDER BY " + query.getSort().getColumn() + ' ' + direction + ", request_id " + direction;
+        }
+
+        private static void appendHistoryFilters(StringBuilder sql, List<Object> params, LeaveHistoryQuery query) {
+            sql.append(" WHERE employee_id = ?");
+            params.add(query.getEmployeeId());
+            if (query.getStatus() != null) {
+                sql.append(" AND status = ?");
+                params.add(query.getStatus());
+            }
+            if (query.getLeaveType() != null) {
+                sql.append(" AND leave_type = ?");
+                params.add(query.getLeaveType());
+            }
+            if (query.getFromDate() != null) {
+                sql.append(" AND end_date >= ?");
+                params.add(query.getFromDate());
+            }
+            if (query.getToDate() != null) {
+                sql.append(" AND start_date <= ?");
+                params.add(query.getToDate());
+            }
+        }
+
+        private static Object historySortValue(LeaveRequest req, HistorySort sort) {
+            switch (sort) {
+                case TYPE: return req.getLeaveType();
+                case START_DATE: return req.getStartDate();
+                case END_DATE: return req.getEndDate();
+                case STATUS: return req.getStatus();
+                default: return req.getId();
+            }
+        }
+
+        public LeaveHistorySummary summarizeRequestHistory(LeaveHistoryQuery query) {
+            List<Object> params = new ArrayList<>();
+            StringBuilder rows = new StringBuilder("SELECT status, DATEDIFF(end_date, start_date) + 1 AS days FROM leave_requests");
+            appendHistoryFilters(rows, params, query);
+            if (query.isIncludeArchived()) {
+                rows.append(" UNION ALL SELECT status, DATEDIFF(end_date, start_date) + 1 FROM leave_requests_archive");
+                appendHistoryFilters(rows, params, query);
+            }
+            String sql = "SELECT status, COUNT(*), SUM(days) FROM (" + rows + ") h GROUP BY status";
+            return read("summarizeRequestHistory", query.getEmployeeId(), null, conn -> {
+                int balance;
+                try (PreparedStatement pstmt = conn.prepareStatement("SELECT leave_balance FROM employees WHERE id = ?")) {
+                    pstmt.setString(1, query.getEmployeeId());
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        if (!rs.next()) return null;
+                        balance = rs.getInt(1);
+                    }
+                }
+                Map<String, int[]> byStatus = new LinkedHashMap<>();
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    bindParameters(pstmt, params);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) byStatus.put(rs.getString(1), new int[] { rs.getInt(2), rs.getInt(3) });
+                    }
+                }
+                return new LeaveHistorySummary(balance, byStatus, 0);
+            });
+        }
+
+        private static List<LeaveRequest> queryRequests(Connection conn, String sql, List<Object> params) throws SQLException {
+            List<LeaveRequest> requests = new ArrayList<>();
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                bindParameters(pstmt, params);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        requests.add(mapRowToLeaveRequest(rs));
+                    }
+                }
+            }
+            return requests;
+        }
+
+        private static List<LeaveRequest> queryRequests(Connection conn, String sql, String employeeId) throws SQLException {
+            return queryRequests(conn, sql, List.of(employeeId));
+        }
+
+        public List<LeaveRequest> archiveRequests(LocalDate cutoff, int afterRequestId, int chunkSize) {
+            List<LeaveRequest> archived = new ArrayList<>();
+            String selectSql = "SELECT * FROM leave_requests WHERE request_id > ? AND status IN ('Approved', 'Rejected')"
+                    + " AND end_date < ? ORDER BY request_id LIMIT ? FOR UPDATE";
+            try (Connection conn = getConnection()) {
+                conn.setAutoCommit(false);
+                try {
+                    try (PreparedStatement select = conn.prepareStatement(selectSql)) {
+                        select.setInt(1, afterRequestId);
+                        select.setDate(2, Date.valueOf(cutoff));
+                        select.setInt(3, chunkSize);
+                        try (ResultSet rs = select.executeQuery()) {
+                            while (rs.next()) archived.add(mapRowToLeaveRequest(rs));
+                        }
+                    }
+                    if (!archived.isEmpty()) {
+                        insertRows(conn, "INSERT IGNORE INTO leave_requests_archive(request_id, employee_id, leave_type, start_date, end_date, status) VALUES ",
+                                6, archived, (pstmt, i, req) -> {
+                                    pstmt.setInt(i, req.getId());
+                                    pstmt.setString(i + 1, req.getEmployeeId());
+                                    pstmt.setString(i + 2, req.getLeaveType());
+                                    pstmt.setDate(i + 3, Date.valueOf(req.getStartDate()));
+                                    pstmt.setDate(i + 4, Date.valueOf(req.getEndDate()));
+                                    pstmt.setString(i + 5, req.getStatus());
+                                });
+                        String deleteSql = "DELETE FROM leave_requests WHERE request_id IN ("
+                                + String.join(", ", Collections.nCopies(archived.size(), "?")) + ")";
+                        try (PreparedStatement delete = conn.prepareStatement(deleteSql)) {
+                            for (int i = 0; i < archived.size(); i++) delete.setInt(i + 1, archived.get(i).getId());
+                            delete.executeUpdate();
+                        }
+                    }
+                    conn.commit();
+                    if (replicas != null) archived.forEach(req -> replicas.wrote(req.getEmployeeId()));
+                    return archived;
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                }
+            } catch (SQLException e) {
+                DataLayerMetrics.getInstance().recordError("archiveRequests", e);
+            }
+            return null;
+        }
+
+        /**
+         * Inserts a batch from the SubmissionQueue and returns the request id of every submission now stored.
+         * A submission that is already stored (a re-send after a crash) keeps its row. A submission whose
+         * employee has been removed is left out, so it comes back without an id and the queue rejects it;
+         * any other failure fails the whole batch instead of silently dropping or truncating rows.
+         */
+        public Map<String, Integer> insertSubmissions(List<QueuedSubmission> batch) {
+            String selectSql = "SELECT submission_id, request_id FROM leave_requests WHERE submission_id IN ("
+                    + String.join(", ", Collections.nCopies(batch.size(), "?")) + ")";
+            List<String> employeeIds = batch.stream().map(s -> s.getRequest().getEmployeeId()).distinct().toList();
+            String employeesSql = "SELECT id FROM employees WHERE id IN ("
+                    + String.join(", ", Collections.nCopies(employeeIds.size(), "?")) + ") LOCK IN SHARE MODE";
+            try (Connection conn = getConnection()) {
+                conn.setAutoCommit(false);
+                try {
+                    Set<String> existing = new HashSet<>();
+                    try (PreparedStatement select = conn.prepareStatement(employeesSql)) {
+                        for (int i = 0; i < employeeIds.size(); i++) select.setString(i + 1, employeeIds.get(i));
+                        try (ResultSet rs = select.executeQuery()) {
+                            while (rs.next()) existing.add(rs.getString(1));
+                        }
+                    }
+                    List<QueuedSubmission> insertable = new ArrayList<>(batch.size());
+                    for (QueuedSubmission submission : batch) {
+                        if (existing.contains(submission.getRequest().getEmployeeId())) insertable.add(submission);
+                    }
+                    insertRows(conn, "INSERT INTO leave_requests(employee_id, leave_type, start_date, end_date, status, submission_id) VALUES ",
+                            " ON DUPLICATE KEY UPDATE submission_id = submission_id", 6, insertable, (pstmt, i, submission) -> {
+                                LeaveRequest req = submission.getRequest();
+                                pstmt.setString(i, req.getEmployeeId());
+                                pstmt.setString(i + 1, req.getLeaveType());
+                                pstmt.setDate(i + 2, Date.valueOf(req.getStartDate()));
+                                pstmt.setDate(i + 3, Date.valueOf(req.getEndDate()));
+                                pstmt.setString(i + 4, req.getStatus());
+                                pstmt.setString(i + 5, submission.getSubmissionId());
+                            });
+                    Map<String, Integer> requestIds = new HashMap<>();
+                    try (PreparedStatement select = conn.prepareStatement(selectSql)) {
+                        for (int i = 0; i < batch.size(); i++) select.setString(i + 1, batch.get(i).getSubmissionId());
+                        try (ResultSet rs = select.executeQuery()) {
+                            while (rs.next()) requestIds.put(rs.getString(1), rs.getInt(2));
+                        }
+                    }
+                    conn.commit();
+                    if (replicas != null) batch.forEach(submission -> replicas.wrote(submission.getRequest().getEmployeeId()));
+                    return requestIds;
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                }
+            } catch (SQLException e) {
+                DataLayerMetrics.getInstance().recordError("insertSubmissions", e);
+            }
+            return null;
+        }
+
+        public List<LeaveRequest> getPendingRequests() {
+            return read("getPendingRequests", null, new ArrayList<>(),
+                    conn -> queryRequests(conn, "SELECT * FROM leave_requests WHERE status = 'Pending'", List.of()));
+        }
+        
+        public List<LeaveRequest> getPendingRequestsPage(PendingRequestQuery query, LeaveRequest after, int limit) {
+            List<Object> params = new ArrayList<>();
+            StringBuilder sql = new StringBuilder("SELECT * FROM leave_requests");
+            appendPendingFilters(sql, params, query);
+            String column = query.getSort().getColumn();
+            String direction = query.isAscending() ? "ASC" : "DESC";
+            String comparison = query.isAscending() ? ">" : "<";
+            if (after != null) {
+                if (query.getSort() == PendingSort.REQUEST_ID) {
+                    sql.append(" AND request_id ").append(comparison).append(" ?");
+                } else {
+                    Object afterValue = sortValue(after, query.getSort());
+                    sql.append(" AND (").append(column).append(' ').append(comparison).append(" ? OR (")
+                            .append(column).append(" = ? AND request_id ").append(comparison).append(" ?))");
+                    params.add(afterValue);
+                    params.add(afterValue);
+                }
+                params.add(after.getId());
+            }
+            sql.append(" ORDER BY ");
+            if (query.getSort() != PendingSort.REQUEST_ID) {
+                sql.append(column).append(' ').append(direction).append(", ");
+            }
+            sql.append("request_id ").append(direction).append(" LIMIT ?");
+            params.add(limit);
+            return read("getPendingRequestsPage", query.getEmployeeId(), new ArrayList<>(),
+                    conn -> queryRequests(conn, sql.toString(), params));
+        }
+
+        public int countPendingRequests(PendingRequestQuery query) {
+            List<Object> params = new ArrayList<>();
+            StringBuilder sql = new StringBuilder("SELECT COUNT(*) FROM leave_requests");
+            appendPendingFilters(sql, params, query);
+            return read("countPendingRequests", query.getEmployeeId(), 0, conn -> {
+                try (PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+                    bindParameters(pstmt, params);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        return rs.next() ? rs.getInt(1) : 0;
+                    }
+                }
+            });
+        }
+
+        private void appendPendingFilters(StringBuilder sql, List<Object> params, PendingRequestQuery query) {
+            sql.append(" WHERE status = 'Pending'");
+            if (query.getEmployeeId() != null) {
+                sql.append(" AND employee_id = ?");
+                params.add(query.getEmployeeId());
+            }
+            if (query.getLeaveType() != null) {
+                sql.append(" AND leave_type = ?");
+                params.add(query.getLeaveType());
+            }
+            if (query.getFromDate() != null) {
+                sql.append(" AND end_date >= ?");
+                params.add(query.getFromDate());
+            }
+            if (query.getToDate() != null) {
+                sql.append(" AND start_date <= ?");
+                params.add(query.getToDate());
+            }
+        }
+
+        private static Object sortValue(LeaveRequest req, PendingSort sort) {
+            switch (sort) {
+                case EMPLOYEE: return req.getEmployeeId();
+                case TYPE: return req.getLeaveType();
+                case START_DATE: return req.getStartDate();
+                case END_DATE: return req.getEndDate();
+                default: return req.getId();
+            }
+        }
+
+        private static void bindParameters(PreparedStatement pstmt, List<Object> params) throws SQLException {
+            for (int i = 0; i < params.size(); i++) {
+                pstmt.setObject(i + 1, params.get(i));
+            }
+        }
+        
+        public LeaveRequest findRequestById(int requestId) {
+            String sql = "SELECT * FROM leave_requests WHERE request_id = ?";
+            try (Connection conn = getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setInt(1, requestId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (rs.next()) {
+                        return mapRowToLeaveRequest(rs);
+                    }
+                }
+            } catch (SQLException e) {
+                DataLayerMetrics.getInstance().recordError("findRequestById", e);
+            }
+            return null;
+        }
+
+        public int getMaxRequestId() {
+            try (Connection conn = pool.borrow();
+                Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(request_id), 0) FROM leave_requests")) {
+                return rs.next() ? rs.getInt(1) : 0;
+            } catch (SQLException e) {
+                DataLayerMetrics.getInstance().recordError("getMaxRequestId", e);
+            }
+            return -1;
+        }
+
+        public void updateLeaveRequestStatus(int requestId, String status) {
+            String sql = "UPDATE leave_requests SET status = ? WHERE request_id = ?";
+            try (Connection conn = getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setString(1, status);
+                pstmt.setInt(2, requestId);
+                if (pstmt.executeUpdate() > 0) wrote(null);
+            } catch (SQLException e) {
+                DataLayerMetrics.getInstance().recordError("updateLeaveRequestStatus", e);
+            }
+        }
+        
+        public ProcessOutcome approveLeaveRequest(int requestId, String employeeId, int days) {
+            String approveSql = "UPDATE leave_requests SET status = 'Approved' WHERE request_id = ? AND status = 'Pending'";
+            String debitSql = "UPDATE employees SET leave_balance = leave_balance - ? WHERE id = ?";
+            try (Connection conn = getConnection()) {
+                conn.setAutoCommit(false);
+                try (PreparedStatement approveStmt = conn.prepareStatement(approveSql);
+                     PreparedStatement debitStmt = conn.prepareStatement(debitSql)) {
+                    approveStmt.setInt(1, requestId);
+                    if (approveStmt.executeUpdate() == 0) {
+                        conn.rollback();
+                        return ProcessOutcome.ALREADY_PROCESSED;
+                    }
+                    debitStmt.setInt(1, days);
+                    debitStmt.setString(2, employeeId);
+                    debitStmt.executeUpdate();
+                    appendLedger(conn, employeeId, -days, LedgerEntry.LEAVE_APPROVED, String.valueOf(requestId));
+                    conn.commit();
+                    wrote(employeeId);
+                    return ProcessOutcome.APPLIED;
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                }
+            } catch (SQLException e) {
+                DataLayerMetrics.getInstance().recordError("approveLeaveRequest", e);
+            }
+            return ProcessOutcome.FAILED;
+        }
+
+        public BulkProcessResult processRequests(List<Integer> requestIds, String newStatus) {
+            Map<Integer, ProcessOutcome> outcomes = new LinkedHashMap<>();
+            // Sorted by employee id so concurrent bulk decisions lock employee rows in the same order.
+            Map<String, Integer> debits = new TreeMap<>();
+            List<LeaveRequest> applied = new ArrayList<>();
+            for (Integer id : requestIds) outcomes.put(id, ProcessOutcome.NOT_FOUND);
+            if (requestIds.isEmpty()) return new BulkProcessResult(outcomes, debits, applied);
+
+            boolean debit = "Approved".equals(newStatus);
+            String updateSql = "UPDATE leave_requests SET status = ? WHERE request_id = ? AND status = 'Pending'";
+            String debitSql = "UPDATE employees SET leave_balance = leave_balance - ? WHERE id = ?";
+            try (Connection conn = getConnection()) {
+                conn.setAutoCommit(false);
+                try {
+                    Map<Integer, LeaveRequest> pendingRequests = new LinkedHashMap<>();
+                    for (int from = 0; from < requestIds.size(); from += BATCH_CHUNK_SIZE) {
+                        List<Integer> chunk = requestIds.subList(from, Math.min(from + BATCH_CHUNK_SIZE, requestIds.size()));
+                        String lockSql = "SELECT * FROM leave_requests WHERE request_id IN ("
+                                + String.join(",", Collections.nCopies(chunk.size(), "?")) + ") FOR UPDATE";
+                        try (PreparedStatement lockStmt = conn.prepareStatement(lockSql)) {
+                            for (int i = 0; i < chunk.size(); i++) lockStmt.setInt(i + 1, chunk.get(i));
+                            try (ResultSet rs = lockStmt.executeQuery()) {
+                                while (rs.next()) {
+                                    LeaveRequest req = mapRowToLeaveRequest(rs);
+                                    if ("Pending".equals(req.getStatus())) {
+                                        pendingRequests.put(req.getId(), req);
+                                    } else {
+                                        outcomes.put(req.getId(), ProcessOutcome.ALREADY_PROCESSED);
+                                    }
+                                }
+                            }
+                        }
+                    }
+
+                    try (PreparedStatement updateStmt = conn.prepareStatement(updateSql)) {
+                        List<Integer> batched = new ArrayList<>(pendingRequests.keySet());
+                        for (Integer id : batched) {
+                            updateStmt.setString(1, newStatus);
+                            updateStmt.setInt(2, id);
+                            updateStmt.addBatch();
+                        }
+                        int[] counts = updateStmt.executeBatch();
+                        for (int i = 0; i < counts.length; i++) {
+                            Integer id = batched.get(i);
+                            if (counts[i] == 0) {
+                                outcomes.put(id, ProcessOutcome.ALREADY_PROCESSED);
+                                continue;
+                            }
+                            outcomes.put(id, ProcessOutcome.APPLIED);
+                            LeaveRequest req = pendingRequests.get(id);
+                            applied.add(req);
+                            if (debit) debits.merge(req.getEmployeeId(), req.getDays(), Integer::sum);
+                        }
+                    }
+
+                    if (!debits.isEmpty()) {
+                        try (PreparedStatement debitStmt = conn.prepareStatement(debitSql)) {
+                            for (Map.Entry<String, Integer> entry : debits.entrySet()) {
+                                debitStmt.setInt(1, entry.getValue());
+                                debitStmt.setString(2, entry.getKey());
+                                debitStmt.addBatch();
+                            }
+                            debitStmt.executeBatch();
+                        }
+                        try (PreparedStatement ledgerStmt = conn.prepareStatement(LEDGER_INSERT_SQL)) {
+                            for (LeaveRequest req : applied) {
+                                ledgerStmt.setString(1, req.getEmployeeId());
+                                ledgerStmt.setInt(2, -req.getDays());
+                                ledgerStmt.setString(3, LedgerEntry.LEAVE_APPROVED);
+                                ledgerStmt.setString(4, String.valueOf(req.getId()));
+                                ledgerStmt.addBatch();
+                            }
+                            ledgerStmt.executeBatch();
+                        }
+                    }
+                    conn.commit();
+                    if (!applied.isEmpty()) wrote(null);
+                    if (replicas != null) applied.forEach(req -> replicas.wrote(req.getEmployeeId()));
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                }
+            } catch (SQLException e) {
+                DataLayerMetrics.getInstance().recordError("processRequests", e);
+                for (Integer id : requestIds) outcomes.put(id, ProcessOutcome.FAILED);
+                debits.clear();
+                applied.clear();
+            }
+            return new BulkProcessResult(outcomes, debits, applied);
+        }
+
+        public ProcessOutcome rejectLeaveRequest(int requestId) {
+            String sql = "UPDATE leave_requests SET status = 'Rejected' WHERE request_id = ? AND status = 'Pending'";
+            try (Connection conn = getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setInt(1, requestId);
+                if (pstmt.executeUpdate() == 0) return ProcessOutcome.ALREADY_PROCESSED;
+                wrote(null);
+                return ProcessOutcome.APPLIED;
+            } catch (SQLException e) {
+                DataLayerMetrics.getInstance().recordError("rejectLeaveRequest", e);
+            }
+            return ProcessOutcome.FAILED;
+        }
+
+        public void adjustEmployeeBalance(String employeeId, int delta) {
+            String sql = "UPDATE employees SET leave_balance = leave_balance + ? WHERE id = ?";
+            try (Connection conn = getConnection()) {
+                conn.setAutoCommit(false);
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    pstmt.setInt(1, delta);
+                    pstmt.setString(2, employeeId);
+                    if (pstmt.executeUpdate() > 0) appendLedger(conn, employeeId, delta, LedgerEntry.ADJUSTMENT, null);
+                    conn.commit();
+                    wrote(employeeId);
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                }
+            } catch (SQLException e) {
+                DataLayerMetrics.getInstance().recordError("adjustEmployeeBalance", e);
+            }
+        }
+        
+        public void updateEmployeeBalance(String employeeId, int newBalance) {
+            String lockSql = "SELECT leave_balance FROM employees WHERE id = ? FOR UPDATE";
+            String sql = "UPDATE employees SET leave_balance = ? WHERE id = ?";
+            try (Connection conn = getConnection()) {
+                conn.setAutoCommit(false);
+                try (PreparedStatement lockStmt = conn.prepareStatement(lockSql);
+                     PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    lockStmt.setString(1, employeeId);
+                    try (ResultSet rs = lockStmt.executeQuery()) {
+                        if (rs.next() && rs.getInt(1) != newBalance) {
+                            pstmt.setInt(1, newBalance);
+                            pstmt.setString(2, employeeId);
+                            pstmt.executeUpdate();
+                            appendLedger(conn, employeeId, newBalance - rs.getInt(1), LedgerEntry.ADJUSTMENT, null);
+                        }
+                    }
+                    conn.commit();
+                    wrote(employeeId);
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                }
+            } catch (SQLException e) {
+                DataLayerMetrics.getInstance().recordError("updateEmployeeBalance", e);
+            }
+        }
+
+        private static void appendLedger(Connection conn, String employeeId, int delta, String reason, String reference) throws SQLException {
+            try (PreparedStatement pstmt = conn.prepareStatement(LEDGER_INSERT_SQL)) {
+                pstmt.setString(1, employeeId);
+                pstmt.setInt(2, delta);
+                pstmt.setString(3, reason);
+                pstmt.setString(4, reference);
+                pstmt.executeUpdate();
+            }
+        }
+
+        public long streamLeaveRequests(LeaveRequestFilter filter, LeaveRequestSink sink) throws IOException {
+            List<Object> params = new ArrayList<>();
+            StringBuilder sql = new StringBuilder("SELECT * FROM leave_requests WHERE 1 = 1");
+            if (filter.getEmployeeId() != null) {
+                sql.append(" AND employee_id = ?");
+                params.add(filter.getEmployeeId());
+            }
+            if (filter.getStatus() != null) {
+                sql.append(" AND status = ?");
+                params.add(filter.getStatus());
+            }
+            if (filter.getFromDate() != null) {
+                sql.append(" AND end_date >= ?");
+                params.add(filter.getFromDate());
+            }
+            if (filter.getToDate() != null) {
+                sql.append(" AND start_date <= ?");
+                params.add(filter.getToDate());
+            }
+            if (filter.hasRequestIdRange()) {
+                sql.append(" AND request_id > ? AND request_id <= ?");
+                params.add(filter.getAfterRequestId());
+                params.add(filter.getUpToRequestId());
+            }
+            sql.append(" ORDER BY request_id");
+            long rows = 0;
+            try (Connection conn = getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql.toString(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                pstmt.setFetchSize(EXPORT_FETCH_SIZE);
+                bindParameters(pstmt, params);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        sink.accept(mapRowToLeaveRequest(rs));
+                        rows++;
+                    }
+                }
+            } catch (SQLException e) {
+                DataLayerMetrics.getInstance().recordError("streamLeaveRequests", e);
+                throw new IOException("Export stopped after " + rows + " rows: " + e.getMessage(), e);
+            }
+            return rows;
+        }
+
+        public List<LedgerEntry> getLedger(String employeeId) {
+            List<LedgerEntry> entries = new ArrayList<>();
+            String sql = "SELECT * FROM balance_ledger WHERE employee_id = ? ORDER BY entry_id";
+            try (Connection conn = getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setString(1, employeeId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        entries.add(new LedgerEntry(rs.getLong("entry_id"), rs.getString("employee_id"), rs.getInt("delta"),
+                                rs.getString("reason"), rs.getString("reference"), rs.getTimestamp("created_at").getTime()));
+                    }
+                }
+            } catch (SQLException e) {
+                DataLayerMetrics.getInstance().recordError("getLedger", e);
+            }
+            return entries;
+        }
+
+        public int getLedgerBalance(String employeeId) {
+            String sql = "SELECT COALESCE(s.balance, 0) + COALESCE(SUM(l.delta), 0)"
+                    + " FROM (SELECT ? AS employee_id) e"
+                    + " LEFT JOIN balance_snapshots s ON s.employee_id = e.employee_id"
+                    + " LEFT JOIN balance_ledger l ON l.employee_id = e.employee_id AND l.entry_id > COALESCE(s.last_entry_id, 0)"
+                    + " GROUP BY s.balance";
+            try (Connection conn = getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setString(1, employeeId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (rs.next()) return rs.getInt(1);
+                }
+            } catch (SQLException e) {
+                DataLayerMetrics.getInstance().recordError("getLedgerBalance", e);
+            }
+            return 0;
+        }
+
+        public long getLastShippedAuditSequence() {
+            try (Connection conn = getConnection();
+                Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(sequence), 0) FROM audit_events")) {
+                return rs.next() ? rs.getLong(1) : 0;
+            } catch (SQLException e) {
+                DataLayerMetrics.getInstance().recordError("getLastShippedAuditSequence", e);
+            }
+            return -1;
+        }
+
+        public boolean shipAuditEvents(List<AuditEvent> events) {
+            try (Connection conn = getConnection()) {
+                conn.setAutoCommit(false);
+                try {
+                    insertRows(conn, "INSERT IGNORE INTO audit_events(sequence, occurred_at, action, actor, employee_id, request_id, detail) VALUES ",
+                            7, events, (pstmt, i, event) -> {
+                                pstmt.setLong(i, event.getSequence());
+                                pstmt.setTimestamp(i + 1, new Timestamp(event.getOccurredAt()));
+                                pstmt.setString(i + 2, event.getAction().name());
+                                pstmt.setString(i + 3, event.getActor());
+                                pstmt.setString(i + 4, event.getEmployeeId());
+                                if (event.getRequestId() == 0) pstmt.setNull(i + 5, Types.INTEGER);
+                                else pstmt.setInt(i + 5, event.getRequestId());
+                                String detail = event.getDetail();
+                                pstmt.setString(i + 6, detail != null && detail.length() > 255 ? detail.substring(0, 255) : detail);
+                            });
+                    conn.commit();
+                    return true;
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                }
+            } catch (SQLException e) {
+                DataLayerMetrics.getInstance().recordError("shipAuditEvents", e);
+            }
+            return false;
+        }
+
+        public int snapshotBalances() {
+            String sql = "INSERT INTO balance_snapshots(employee_id, balance, last_entry_id)"
+                    + " SELECT l.employee_id, COALESCE(s.balance, 0) + SUM(l.delta), MAX(l.entry_id)"
+                    + " FROM balance_ledger l LEFT JOIN balance_snapshots s ON s.employee_id = l.employee_id"
+                    + " WHERE l.entry_id > COALESCE(s.last_entry_id, 0)"
+                    + " GROUP BY l.employee_id, s.balance"
+                    + " ON DUPLICATE KEY UPDATE balance = VALUES(balance), last_entry_id = VALUES(last_entry_id), taken_at = CURRENT_TIMESTAMP";
+            try (Connection conn = getConnection();
+                Statement stmt = conn.createStatement()) {
+                return stmt.executeUpdate(sql);
+            } catch (SQLException e) {
+                DataLayerMetrics.getInstance().recordError("snapshotBalances", e);
+            }
+            return 0;
+        }
+
+        public BalanceRebuildResult rebuildBalances(String afterEmployeeId, String upToEmployeeId) {
+            String lockSql = "SELECT COUNT(*) FROM employees WHERE id > ? AND id <= ? FOR UPDATE";
+            String sumSql = "SELECT e.id, e.leave_balance, COUNT(l.entry_id), COALESCE(SUM(l.delta), 0), MAX(l.entry_id)"
+                    + " FROM employees e LEFT JOIN balance_ledger l ON l.employee_id = e.id"
+                    + " WHERE e.id > ? AND e.id <= ? GROUP BY e.id, e.leave_balance";
+            String fixSql = "UPDATE employees SET leave_balance = ? WHERE id = ?";
+            String snapshotSql = "INSERT INTO balance_snapshots(employee_id, balance, last_entry_id) VALUES(?, ?, ?)"
+                    + " ON DUPLICATE KEY UPDATE balance = VALUES(balance), last_entry_id = VALUES(last_entry_id), taken_at = CURRENT_TIMESTAMP";
+            try (Connection conn = getConnection()) {
+                conn.setAutoCommit(false);
+                try (PreparedStatement lockStmt = conn.prepareStatement(lockSql);
+                     PreparedStatement sumStmt = conn.prepareStatement(sumSql);
+                     PreparedStatement fixStmt = conn.prepareStatement(fixSql);
+                     PreparedStatement snapshotStmt = conn.prepareStatement(snapshotSql)) {
+                    lockStmt.setString(1, afterEmployeeId);
+                    lockStmt.setString(2, upToEmployeeId);
+                    lockStmt.executeQuery().close();
+                    sumStmt.setString(1, afterEmployeeId);
+                    sumStmt.setString(2, upToEmployeeId);
+                    int checked = 0;
+                    int corrected = 0;
+                    int withoutLedger = 0;
+                    try (ResultSet rs = sumStmt.executeQuery()) {
+                        while (rs.next()) {
+                            checked++;
+                            if (rs.getInt(3) == 0) {
+                                withoutLedger++;
+                                continue;
+                            }
+                            String id = rs.getString(1);
+                            int ledgerBalance = rs.getInt(4);
+                            if (ledgerBalance != rs.getInt(2)) {
+                                fixStmt.setInt(1, ledgerBalance);
+                                fixStmt.setString(2, id);
+                                fixStmt.addBatch();
+                                corrected++;
+                            }
+                            snapshotStmt.setString(1, id);
+                            snapshotStmt.setInt(2, ledgerBalance);
+                            snapshotStmt.setLong(3, rs.getLong(5));
+                            snapshotStmt.addBatch();
+                        }
+                    }
+                    if (corrected > 0) fixStmt.executeBatch();
+                    snapshotStmt.executeBatch();
+                    conn.commit();
+                    return new BalanceRebuildResult(checked, corrected, withoutLedger);
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                }
+            } catch (SQLException e) {
+                DataLayerMetrics.getInstance().recordError("rebuildBalances", e);
+                throw new IllegalStateException("Could not rebuild balances for ('" + afterEmployeeId + "', '" + upToEmployeeId + "']", e);
+            }
+        }
+
+        public AccrualProgress beginAccrual(String period) {
+            try (Connection conn = getConnection()) {
+                try (PreparedStatement pstmt = conn.prepareStatement("INSERT IGNORE INTO accrual_runs(period) VALUES(?)")) {
+                    pstmt.setString(1, period);
+                    pstmt.executeUpdate();
+                }
+                return readAccrualProgress(conn, period, false);
+            } catch (SQLException e) {
+                DataLayerMetrics.getInstance().recordError("beginAccrual", e);
+            }
+            return null;
+        }
+
+        public AccrualProgress accrueNextChunk(AccrualProgress progress, AccrualPolicy policy, int chunkSize) {
+            String period = progress.getPeriod();
+            String boundsSql = "SELECT MAX(id), COUNT(*) FROM (SELECT id FROM employees WHERE id > ? ORDER BY id LIMIT ?) chunk";
+            String accrued = "GREATEST(LEAST(leave_balance, ?), LEAST(?, LEAST(leave_balance, ?) + ?))";
+            String lockRangeSql = "SELECT COUNT(*) FROM employees WHERE id > ? AND id <= ? FOR UPDATE";
+            String ledgerSql = "INSERT INTO balance_ledger(employee_id, delta, reason, reference)"
+                    + " SELECT id, " + accrued + " - leave_balance, '" + LedgerEntry.ACCRUAL + "', ? FROM employees"
+                    + " WHERE id > ? AND id <= ? AND " + accrued + " <> leave_balance";
+            String creditSql = "UPDATE employees SET leave_balance = " + accrued + " WHERE id > ? AND id <= ?";
+            String advanceSql = "UPDATE accrual_runs SET last_employee_id = ?, employees_credited = employees_credited + ? WHERE period = ?";
+            String completeSql = "UPDATE accrual_runs SET completed_at = CURRENT_TIMESTAMP WHERE period = ?";
+            try (Connection conn = getConnection()) {
+                conn.setAutoCommit(false);
+                try {
+                    AccrualProgress current = readAccrualProgress(conn, period, true);
+                    if (current == null || current.isCompleted()) {
+                        conn.commit();
+                        return current;
+                    }
+                    String after = current.getLastEmployeeId() == null ? "" : current.getLastEmployeeId();
+                    String upTo = null;
+                    int count = 0;
+                    try (PreparedStatement pstmt = conn.prepareStatement(boundsSql)) {
+                        pstmt.setString(1, after);
+                        pstmt.setInt(2, chunkSize);
+                        try (ResultSet rs = pstmt.executeQuery()) {
+                            if (rs.next()) {
+                                upTo = rs.getString(1);
+                                count = rs.getInt(2);
+                            }
+                        }
+                    }
+                    if (count == 0) {
+                        try (PreparedStatement pstmt = conn.prepareStatement(completeSql)) {
+                            pstmt.setString(1, period);
+                            pstmt.executeUpdate();
+                        }
+                        conn.commit();
+                        return new AccrualProgress(period, current.getLastEmployeeId(), current.getEmployeesCredited(), true);
+                    }
+                    int carryCap = policy.carryOverCap(YearMonth.parse(period));
+                    try (PreparedStatement pstmt = conn.prepareStatement(lockRangeSql)) {
+                        pstmt.setString(1, after);
+                        pstmt.setString(2, upTo);
+                        pstmt.executeQuery().close();
+                    }
+                    try (PreparedStatement pstmt = conn.prepareStatement(ledgerSql)) {
+                        pstmt.setInt(1, carryCap);
+                        pstmt.setInt(2, policy.getMaxBalance());
+                        pstmt.setInt(3, carryCap);
+                        pstmt.setInt(4, policy.getDaysPerMonth());
+                        pstmt.setString(5, period);
+                        pstmt.setString(6, after);
+                        pstmt.setString(7, upTo);
+                        pstmt.setInt(8, carryCap);
+                        pstmt.setInt(9, policy.getMaxBalance());
+                        pstmt.setInt(10, carryCap);
+                        pstmt.setInt(11, policy.getDaysPerMonth());
+                        pstmt.executeUpdate();
+                    }
+                    try (PreparedStatement pstmt = conn.prepareStatement(creditSql)) {
+                        pstmt.setInt(1, carryCap);
+                        pstmt.setInt(2, policy.getMaxBalance());
+                        pstmt.setInt(3, carryCap);
+                        pstmt.setInt(4, policy.getDaysPerMonth());
+                        pstmt.setString(5, after);
+                        pstmt.setString(6, upTo);
+                        pstmt.executeUpdate();
+                    }
+                    try (PreparedStatement pstmt = conn.prepareStatement(advanceSql)) {
+                        pstmt.setString(1, upTo);
+                        pstmt.setInt(2, count);
+                        pstmt.setString(3, period);
+                        pstmt.executeUpdate();
+                    }
+                    conn.commit();
+                    return new AccrualProgress(period, upTo, current.getEmployeesCredited() + count, false);
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                }
+            } catch (SQLException e) {
+                DataLayerMetrics.getInstance().recordError("accrueNextChunk", e);
+            }
+            return null;
+        }
+
+        private static AccrualProgress readAccrualProgress(Connection conn, String period, boolean forUpdate) throws SQLException {
+            String sql = "SELECT last_employee_id, employees_credited, completed_at FROM accrual_runs WHERE period = ?"
+                    + (forUpdate ? " FOR UPDATE" : "");
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setString(1, period);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (!rs.next()) return null;
+                    return new AccrualProgress(period, rs.getString("last_employee_id"), rs.getInt("employees_credited"),
+                            rs.getTimestamp("completed_at") != null);
+                }
+            }
+        }
+
+        public Set<String> findExistingEmployeeIds(Collection<String> employeeIds) {
+            Set<String> existing = new HashSet<>();
+            if (employeeIds.isEmpty()) return existing;
+            List<String> ids = new ArrayList<>(employeeIds);
+            try (Connection conn = getConnection()) {
+                for (int from = 0; from < ids.size(); from += BATCH_CHUNK_SIZE) {
+                    List<String> chunk = ids.subList(from, Math.min(from + BATCH_CHUNK_SIZE, ids.size()));
+                    String sql = "SELECT id FROM employees WHERE id IN (" + String.join(",", Collections.nCopies(chunk.size(), "?")) + ")";
+                    try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                        for (int i = 0; i < chunk.size(); i++) pstmt.setString(i + 1, chunk.get(i));
+                        try (ResultSet rs = pstmt.executeQuery()) {
+                            while (rs.next()) existing.add(rs.getString(1));
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                DataLayerMetrics.getInstance().recordError("findExistingEmployeeIds", e);
+            }
+            return existing;
+        }
+
+        public int importEmployees(List<Employee> batch) {
+            if (batch.isEmpty()) return 0;
+            try (Connection conn = getConnection()) {
+                conn.setAutoCommit(false);
+                try {
+                    int inserted = insertRows(conn, "INSERT INTO employees(id, name, leave_balance, is_manager) VALUES ", 4, batch,
+                            (pstmt, index, emp) -> {
+                                pstmt.setString(index, emp.getId());
+                                pstmt.setString(index + 1, emp.getName());
+                                pstmt.setInt(index + 2, emp.getLeaveBalance());
+                                pstmt.setBoolean(index + 3, emp instanceof Manager);
+                            });
+                    insertRows(conn, "INSERT INTO balance_ledger(employee_id, delta, reason) VALUES ", 3, batch,
+                            (pstmt, index, emp) -> {
+                                pstmt.setString(index, emp.getId());
+                                pstmt.setInt(index + 1, emp.getLeaveBalance());
+                                pstmt.setString(index + 2, LedgerEntry.OPENING);
+                            });
+                    conn.commit();
+                    return inserted;
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                }
+            } catch (SQLException e) {
+                DataLayerMetrics.getInstance().recordError("importEmployees", e);
+            }
+            return 0;
+        }
+
+        public int importLeaveRequests(List<LeaveRequest> batch) {
+            if (batch.isEmpty()) return 0;
+            try (Connection conn = getConnection()) {
+                conn.setAutoCommit(false);
+                try {
+                    int inserted = insertRows(conn, "INSERT INTO leave_requests(employee_id, leave_type, start_date, end_date, status) VALUES ", 5, batch,
+                            (pstmt, index, req) -> {
+                                pstmt.setString(index, req.getEmployeeId());
+                                pstmt.setString(index + 1, req.getLeaveType());
+                                pstmt.setDate(index + 2, Date.valueOf(req.getStartDate()));
+                                pstmt.setDate(index + 3, Date.valueOf(req.getEndDate()));
+                                pstmt.setString(index + 4, req.getStatus());
+                            });
+                    conn.commit();
+                    return inserted;
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                }
+            } catch (SQLException e) {
+                DataLayerMetrics.getInstance().recordError("importLeaveRequests", e);
+            }
+            return 0;
+        }
+
+        private static <T> int insertRows(Connection conn, String insertPrefix, int columns, List<T> rows, RowBinder<T> binder) throws SQLException {
+            return insertRows(conn, insertPrefix, "", columns, rows, binder);
+        }
+
+        private static <T> int insertRows(Connection conn, String insertPrefix, String insertSuffix, int columns, List<T> rows,
+                RowBinder<T> binder) throws SQLException {
+            String tuple = "(" + String.join(", ", Collections.nCopies(columns, "?")) + ")";
+            int inserted = 0;
+            for (int from = 0; from < rows.size(); from += MULTI_ROW_INSERT_SIZE) {
+                List<T> slice = rows.subList(from, Math.min(from + MULTI_ROW_INSERT_SIZE, rows.size()));
+                String sql = insertPrefix + String.join(", ", Collections.nCopies(slice.size(), tuple)) + insertSuffix;
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < slice.size(); i++) {
+                        binder.bind(pstmt, i * columns + 1, slice.get(i));
+                    }
+                    inserted += pstmt.executeUpdate();
+                }
+            }
+            return inserted;
+        }
+
+        private interface RowBinder<T> {
+            void bind(PreparedStatement pstmt, int firstIndex, T row) throws SQLException;
+        }
+
+        static LeaveRequest mapRowToLeaveRequest(ResultSet rs) throws SQLException {
+            int id = rs.getInt("request_id");
+            String empId = rs.getString("employee_id");
+            String type = rs.getString("leave_type");
+            String start = rs.getString("start_date");
+            String end = rs.getString("end_date");
+            String status = rs.getString("status");
+            return new LeaveRequest(id, empId, type, start, end, status);
+        }
+    }
+
+    public interface DataLayerMetricsMBean {
+        String[] getOperationSummaries();
+        String[] getStatementSummaries();
+        long getTotalCalls();
+        long getTotalErrors();
+        long getSlowQueryThresholdMillis();
+        void setSlowQueryThresholdMillis(long millis);
+        String describe(String name);
+        void reset();
+    }
+
+    static class DataLayerMetrics implements DataLayerMetricsMBean {
+        private static final Logger LOG = Logger.getLogger("LeaveManagementApp.DataLayerMetrics");
+        private static final Path LOG_DIR = Paths.get(System.getProperty("leave.metrics.dir", "logs"));
+        private static final long DUMP_INTERVAL_SECONDS = Long.getLong("leave.metrics.dumpIntervalSeconds", 60L);
+        private static final DataLayerMetrics INSTANCE = new DataLayerMetrics();
+
+        private final ConcurrentHashMap<String, OperationStats> operations = new ConcurrentHashMap<>();
+        private final ConcurrentHashMap<String, OperationStats> statements = new ConcurrentHashMap<>();
+        private volatile long slowQueryThresholdNanos =
+                TimeUnit.MILLISECONDS.toNanos(Long.getLong("leave.metrics.slowQueryMillis", 500L));
+        private final Path dumpFile = LOG_DIR.resolve("leave-metrics.log");
+        private final Path slowQueryFile = LOG_DIR.resolve("leave-slow-queries.log");
+
+        private DataLayerMetrics() {
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(
+                        new StandardMBean(this, DataLayerMetricsMBean.class),
+                        new ObjectName("LeaveManagementApp:type=DataLayerMetrics"));
+            } catch (Exception e) {
+                LOG.log(Level.WARNING, "Could not register the data layer metrics MBean", e);
+            }
+            if (DUMP_INTERVAL_SECONDS > 0) {
+                ScheduledExecutorService dumper = Executors.newSingleThreadScheduledExecutor(r -> {
+                    Thread t = new Thread(r, "data-layer-metrics-dump");
+                    t.setDaemon(true);
+                    return t;
+                });
+                dumper.scheduleAtFixedRate(this::dump, DUMP_INTERVAL_SECONDS, DUMP_INTERVAL_SECONDS, TimeUnit.SECONDS);
+            }
+        }
+
+        public static DataLayerMetrics getInstance() { return INSTANCE; }
+
+        public LeaveStore instrument(LeaveStore store) {
+            return (LeaveStore) Proxy.newProxyInstance(LeaveStore.class.getClassLoader(), new Class<?>[] { LeaveStore.class },
+                    (proxy, method, args) -> {
+                        if (method.getDeclaringClass() == Object.class) {
+                            return method.invoke(store, args);
+                        }
+                        long start = System.nanoTime();
+                        boolean failed = false;
+                        try {
+                            return method.invoke(store, args);
+                        } catch (InvocationTargetException e) {
+                            failed = true;
+                            throw e.getCause();
+                        } finally {
+                            recordOperation(method.getName(), System.nanoTime() - start, failed);
+                        }
+                    });
+        }
+
+        public Statement instrument(Statement statement, String sql) {
+            Class<?> type = statement instanceof CallableStatement ? CallableStatement.class
+                    : statement instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+            StatementTracer tracer = new StatementTracer(statement, sql);
+            return (Statement) Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[] { type }, tracer);
+        }
+
+        public void recordOperation(String operation, long nanos, boolean failed) {
+            operations.computeIfAbsent(operation, OperationStats::new).record(nanos, failed);
+        }
+
+        public void recordError(String operation, SQLException e) {
+            operations.computeIfAbsent(operation, OperationStats::new).errors.increment();
+            LOG.log(Level.SEVERE, "Data layer operation '" + operation + "' failed: " + e.getMessage(), e);
+        }
+
+        private void recordStatement(String sql, long nanos, boolean failed, Map<Integer, Object> params) {
+            statements.computeIfAbsent(normalize(sql), OperationStats::new).record(nanos, failed);
+            if (nanos >= slowQueryThresholdNanos) {
+                appendLine(slowQueryFile, String.format("%s %8.1f ms %s params=%s",
+                        Instant.now(), nanos / 1e6, normalize(sql), params));
+            }
+        }
+
+        private static String normalize(String sql) {
+            return sql == null ? "<batch>" : sql.trim().replaceAll("\\s+", " ");
+        }
+
+        @Override
+        public String[] getOperationSummaries() { return summarize(operations); }
+
+        @Override
+        public String[] getStatementSummaries() { return summarize(statements); }
+
+        @Override
+        public long getTotalCalls() {
+            return operations.values().stream().mapToLong(s -> s.histogram.getCount()).sum();
+        }
+
+        @Override
+        public long getTotalErrors() {
+            return operations.values().stream().mapToLong(s -> s.errors.sum()).sum();
+        }
+
+        @Override
+        public long getSlowQueryThresholdMillis() { return TimeUnit.NANOSECONDS.toMillis(slowQueryThresholdNanos); }
+
+        @Override
+        public void setSlowQueryThresholdMillis(long millis) { slowQueryThresholdNanos = TimeUnit.MILLISECONDS.toNanos(millis); }
+
+        @Override
+        public String describe(String name) {
+            OperationStats stats = operations.get(name);
+            if (stats == null) stats = statements.get(normalize(name));
+            return stats == null ? "No data for '" + name + "'" : stats.toString();
+        }
+
+        @Override
+        public void reset() {
+            operations.clear();
+            statements.clear();
+        }
+
+        public OperationStats getOperationStats(String operation) { return operations.get(operation); }
+
+        private static String[] summarize(Map<String, OperationStats> stats) {
+            return stats.values().stream()
+                    .sorted(Comparator.comparing(OperationStats::getName))
+                    .map(OperationStats::toString)
+                    .toArray(String[]::new);
+        }
+
+        private void dump() {
+            StringBuilder sb = new StringBuilder("=== ").append(Instant.now()).append(" ===\n");
+            for (String line : getOperationSummaries()) sb.append("op   ").append(line).append('\n');
+            for (String line : getStatementSummaries()) sb.append("sql  ").append(line).append('\n');
+            appendLine(dumpFile, sb.toString());
+        }
+
+        private static synchronized void appendLine(Path file, String line) {
+            try {
+                Files.createDirectories(file.getParent());
+                Files.writeString(file, line + System.lineSeparator(), StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            } catch (IOException e) {
+                LOG.log(Level.WARNING, "Could not write " + file, e);
+            }
+        }
+
+        static class OperationStats {
+            private final String name;
+            private final LongAdder errors = new LongAdder();
+            private final LatencyHistogram histogram = new LatencyHistogram();
+
+            OperationStats(String name) {
+                this.name = name;
+            }
+
+            void record(long nanos, boolean failed) {
+                histogram.record(nanos);
+                if (failed) errors.increment();
+            }
+
+            public String getName() { return name; }
+            public long getCount() { return histogram.getCount(); }
+            public long getErrors() { return errors.sum(); }
+            public LatencyHistogram getHistogram() { return histogram; }
+
+            @Override
+            public String toString() {
+                return String.format("%s count=%d errors=%d p50=%.3fms p99=%.3fms max=%.3fms",
+                        name, histogram.getCount(), errors.sum(),
+                        histogram.getPercentile(50) / 1e6, histogram.getPercentile(99) / 1e6, histogram.getMax() / 1e6);
+            }
+        }
+
+        private class StatementTracer implements InvocationHandler {
+            private final Statement target;
+            private final String preparedSql;
+            private final Map<Integer, Object> params = new TreeMap<>();
+
+            StatementTracer(Statement target, String preparedSql) {
+                this.target = target;
+                this.preparedSql = preparedSql;
+            }
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                String name = method.getName();
+                if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                    params.put((Integer) args[0], args[1]);
+                } else if ("clearParameters".equals(name)) {
+                    params.clear();
+                }
+                if (!name.startsWith("execute")) {
+                    return invokeTarget(method, args);
+                }
+                String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : preparedSql;
+                Map<Integer, Object> boundParams = new TreeMap<>(params);
+                long start = System.nanoTime();
+                boolean failed = false;
+                try {
+                    return invokeTarget(method, args);
+                } catch (SQLException e) {
+                    failed = true;
+                    throw e;
+                } finally {
+                    recordStatement(sql, System.nanoTime() - start, failed, boundParams);
+                }
+            }
+
+            private Object invokeTarget(Method method, Object[] args) throws Throwable {
+                try {
+                    return method.invoke(target, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+        }
+    }
+
+    static class LatencyHistogram {
+        private static final int SUB_BUCKET_BITS = 5;
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+        private static final int BUCKETS = 64 * SUB_BUCKETS;
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder total = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+
+        public void record(long value) {
+            if (value < 0) value = 0;
+            counts.incrementAndGet(indexFor(value));
+            count.increment();
+            total.add(value);
+            max.accumulateAndGet(value, Math::max);
+        }
+
+        public long getCount() { return count.sum(); }
+        public long getMax() { return max.get(); }
+        public double getMean() { long n = count.sum(); return n == 0 ? 0 : (double) total.sum() / n; }
+
+        public long getPercentile(double percentile) {
+            long n = count.sum();
+            if (n == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * n));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts.get(i);
+                if (seen >= rank) return Math.min(upperBound(i), max.get());
+            }
+            return max.get();
+        }
+
+        static int indexFor(long value) {
+            if (value < 2 * SUB_BUCKETS) return (int) value;
+            int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+            return shift * SUB_BUCKETS + (int) (value >>> shift);
+        }
+
+        static long upperBound(int index) {
+            if (index < 2 * SUB_BUCKETS) return index;
+            int shift = index / SUB_BUCKETS - 1;
+            long mantissa = index % SUB_BUCKETS + SUB_BUCKETS;
+            return ((mantissa + 1) << shift) - 1;
+        }
+    }
+
+    static class SchemaMigrator {
+        private static final String LOCK_NAME = "leave_system_schema_migration";
+        private static final int LOCK_TIMEOUT_SECONDS = 60;
+
+        private static final List<Migration> MIGRATIONS = List.of(
+                new Migration(1, "Create employees and leave_requests tables",
+                        "CREATE TABLE IF NOT EXISTS employees ("
+                                + " id VARCHAR(50) NOT NULL PRIMARY KEY,"
+                                + " name VARCHAR(100) NOT NULL,"
+                                + " leave_balance INT NOT NULL DEFAULT 0,"
+                                + " is_manager BOOLEAN NOT NULL DEFAULT FALSE"
+                                + ") ENGINE=InnoDB",
+                        "CREATE TABLE IF NOT EXISTS leave_requests ("
+                                + " request_id INT NOT NULL AUTO_INCREMENT PRIMARY KEY,"
+                                + " employee_id VARCHAR(50) NOT NULL,"
+                                + " leave_type VARCHAR(50) NOT NULL,"
+                                + " start_date DATE NOT NULL,"
+                                + " end_date DATE NOT NULL,"
+                                + " status VARCHAR(20) NOT NULL DEFAULT 'Pending',"
+                                + " CONSTRAINT fk_leave_requests_employee FOREIGN KEY (employee_id) REFERENCES employees(id)"
+                                + ") ENGINE=InnoDB"),
+                new Migration(2, "Store leave dates as DATE",
+                        "ALTER TABLE leave_requests MODIFY start_date DATE NOT NULL, MODIFY end_date DATE NOT NULL"),
+                new Migration(3, "Index pending queue and employee history lookups",
+                        createIndex("leave_requests", "idx_leave_requests_status_id", "(status, request_id)"),
+                        createIndex("leave_requests", "idx_leave_requests_employee_start", "(employee_id, start_date)")),
+                new Migration(4, "Track leave accrual runs",
+                        "CREATE TABLE IF NOT EXISTS accrual_runs ("
+                                + " period CHAR(7) NOT NULL PRIMARY KEY,"
+                                + " last_employee_id VARCHAR(50) NULL,"
+                                + " employees_credited INT NOT NULL DEFAULT 0,"
+                                + " started_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,"
+                                + " completed_at TIMESTAMP NULL"
+                                + ") ENGINE=InnoDB"),
+                new Migration(5, "Record balance changes in a ledger with per-employee snapshots",
+                        sql("CREATE TABLE IF NOT EXISTS balance_ledger ("
+                                + " entry_id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,"
+                                + " employee_id VARCHAR(50) NOT NULL,"
+                                + " delta INT NOT NULL,"
+                                + " reason VARCHAR(20) NOT NULL,"
+                                + " reference VARCHAR(64) NULL,"
+                                + " created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,"
+                                + " INDEX idx_balance_ledger_employee_entry (employee_id, entry_id)"
+                                + ") ENGINE=InnoDB"),
+                        sql("CREATE TABLE IF NOT EXISTS balance_snapshots ("
+                                + " employee_id VARCHAR(50) NOT NULL PRIMARY KEY,"
+                                + " balance INT NOT NULL,"
+                                + " last_entry_id BIGINT NOT NULL,"
+                                + " taken_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP"
+                                + ") ENGINE=InnoDB"),
+                        sql("INSERT INTO balance_ledger(employee_id, delta, reason)"
+                                + " SELECT id, leave_balance, 'OPENING' FROM employees e WHERE leave_balance <> 0"
+                                + " AND NOT EXISTS (SELECT 1 FROM balance_ledger l WHERE l.employee_id = e.id AND l.reason = 'OPENING')")),
+                new Migration(6, "Receive audit events shipped from the local audit journal",
+                        "CREATE TABLE IF NOT EXISTS audit_events ("
+                                + " sequence BIGINT NOT NULL PRIMARY KEY,"
+                                + " occurred_at TIMESTAMP(3) NOT NULL,"
+                                + " action VARCHAR(20) NOT NULL,"
+                                + " actor VARCHAR(50) NULL,"
+                                + " employee_id VARCHAR(50) NULL,"
+                                + " request_id INT NULL,"
+                                + " detail VARCHAR(255) NULL,"
+                                + " INDEX idx_audit_events_employee (employee_id, sequence),"
+                                + " INDEX idx_audit_events_occurred (occurred_at)"
+                                + ") ENGINE=InnoDB"),
+                new Migration(7, "Move processed leave requests to a compressed archive table",
+                        "CREATE TABLE IF NOT EXISTS leave_requests_archive ("
+                                + " request_id INT NOT NULL PRIMARY KEY,"
+                                + " employee_id VARCHAR(50) NOT NULL,"
+                                + " leave_type VARCHAR(50) NOT NULL,"
+                                + " start_date DATE NOT NULL,"
+                                + " end_date DATE NOT NULL,"
+                                + " status VARCHAR(20) NOT NULL,"
+                                + " archived_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,"
+                                + " INDEX idx_leave_requests_archive_employee (employee_id, request_id)"
+                                + ") ENGINE=InnoDB ROW_FORMAT=COMPRESSED"),
+                new Migration(8, "Deduplicate leave requests sent from the local submission queue",
+                        addColumn("leave_requests", "submission_id", "CHAR(36) NULL"),
+                        createIndex("leave_requests", "uq_leave_requests_submission", "(submission_id)", true)),
+                new Migration(9, "Index employee history filtered by status",
+                        createIndex("leave_requests", "idx_leave_requests_employee_status", "(employee_id, status, start_date)"))
+        );
+
+        public static int latestVersion() {
+            return MIGRATIONS.get(MIGRATIONS.size() - 1).version;
+        }
+
+        public static void migrate(Connection conn) throws SQLException {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("CREATE TABLE IF NOT EXISTS schema_version ("
+                        + " version INT NOT NULL PRIMARY KEY,"
+                        + " description VARCHAR(200) NOT NULL,"
+                        + " applied_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP"
+                        + ") ENGINE=InnoDB");
+            }
+            acquireLock(conn);
+            try {
+                int current = currentVersion(conn);
+                if (current > latestVersion()) {
+                    throw new SQLException("Database schema version " + current
+                            + " is newer than this application supports (" + latestVersion() + ").");
+                }
+                for (Migration migration : MIGRATIONS) {
+                    if (migration.version <= current) continue;
+                    for (MigrationStep step : migration.steps) step.apply(conn);
+                    try (PreparedStatement pstmt = conn.prepareStatement(
+                            "INSERT INTO schema_version(version, description) VALUES(?, ?)")) {
+                        pstmt.setInt(1, migration.version);
+                        pstmt.setString(2, migration.description);
+                        pstmt.executeUpdate();
+                    }
+                }
+                int applied = currentVersion(conn);
+                if (applied != latestVersion()) {
+                    throw new SQLException("Schema migration incomplete: expected version " + latestVersion() + " but found " + applied);
+                }
+            } finally {
+                releaseLock(conn);
+            }
+        }
+
+        public static int currentVersion(Connection conn) throws SQLException {
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(version), 0) FROM schema_version")) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+
+        private static void acquireLock(Connection conn) throws SQLException {
+            try (PreparedStatement pstmt = conn.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+                pstmt.setString(1, LOCK_NAME);
+                pstmt.setInt(2, LOCK_TIMEOUT_SECONDS);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (!rs.next() || rs.getInt(1) != 1) {
+                        throw new SQLTimeoutException("Timed out waiting for the schema migration lock");
+                    }
+                }
+            }
+        }
+
+        private static void releaseLock(Connection conn) throws SQLException {
+            try (PreparedStatement pstmt = conn.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+                pstmt.setString(1, LOCK_NAME);
+                pstmt.executeQuery().close();
+            }
+        }
+
+        // MySQL commits DDL implicitly, so a migration interrupted half way is re-run from its first step. Every
+        // step therefore has to be safe to apply twice.
+        private static MigrationStep sql(String statement) {
+            return conn -> {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.executeUpdate(statement);
+                }
+            };
+        }
+
+        private static MigrationStep createIndex(String table, String index, String columns) {
+            return createIndex(table, index, columns, false);
+        }
+
+        private static MigrationStep createIndex(String table, String index, String columns, boolean unique) {
+            return conn -> {
+                if (exists(conn, "SELECT 1 FROM information_schema.statistics"
+                        + " WHERE table_schema = DATABASE() AND table_name = ? AND index_name = ?", table, index)) return;
+                sql("CREATE " + (unique ? "UNIQUE " : "") + "INDEX " + index + " ON " + table + " " + columns).apply(conn);
+            };
+        }
+
+        private static MigrationStep addColumn(String table, String column, String definition) {
+            return conn -> {
+                if (exists(conn, "SELECT 1 FROM information_schema.columns"
+                        + " WHERE table_schema = DATABASE() AND table_name = ? AND column_name = ?", table, column)) return;
+                sql("ALTER TABLE " + table + " ADD COLUMN " + column + " " + definition).apply(conn);
+            };
+        }
+
+        private static boolean exists(Connection conn, String query, String table, String name) throws SQLException {
+            try (PreparedStatement pstmt = conn.prepareStatement(query)) {
+                pstmt.setString(1, table);
+                pstmt.setString(2, name);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    return rs.next();
+                }
+            }
+        }
+
+        private interface MigrationStep {
+            void apply(Connection conn) throws SQLException;
+        }
+
+        private static class Migration {
+            private final int version;
+            private final String description;
+            private final List<MigrationStep> steps = new ArrayList<>();
+
+            Migration(int version, String description, String... statements) {
+                this.version = version;
+                this.description = description;
+                for (String statement : statements) steps.add(sql(statement));
+            }
+
+            Migration(int version, String description, MigrationStep... steps) {
+                this.version = version;
+                this.description = description;
+                this.steps.addAll(List.of(steps));
+            }
+        }
+    }
+
+    static class ConnectionPool {
+        private static final Logger LOG = Logger.getLogger("LeaveManagementApp.ConnectionPool");
+        private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+        private static final long VALIDATION_SKIP_MILLIS = 500;
+        private static final long HOUSEKEEPING_INTERVAL_MILLIS = 30_000;
+
+        private final String url;
+        private final String user;
+        private final String pass;
+        private final int minSize;
+        private final int maxSize;
+        private final long idleTimeoutMillis;
+        private final long borrowTimeoutMillis;
+
+        private final Deque<PooledConnection> idle = new ArrayDeque<>();
+        private final Semaphore permits;
+        private final AtomicInteger totalConnections = new AtomicInteger();
+        private final AtomicInteger activeConnections = new AtomicInteger();
+        private final AtomicLong borrowCount = new AtomicLong();
+        private final AtomicLong totalWaitNanos = new AtomicLong();
+        private final AtomicLong maxWaitNanos = new AtomicLong();
+        private final ScheduledExecutorService housekeeper;
+        private volatile boolean closed;
+
+        public ConnectionPool(String url, String user, String pass, int minSize, int maxSize,
+                              long idleTimeoutMillis, long borrowTimeoutMillis) {
+            if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+                throw new IllegalArgumentException("Invalid pool size: min=" + minSize + ", max=" + maxSize);
+            }
+            this.url = url;
+            this.user = user;
+            this.pass = pass;
+            this.minSize = minSize;
+            this.maxSize = maxSize;
+            this.idleTimeoutMillis = idleTimeoutMillis;
+            this.borrowTimeoutMillis = borrowTimeoutMillis;
+            this.permits = new Semaphore(maxSize, true);
+            this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "connection-pool-housekeeper");
+                t.setDaemon(true);
+                return t;
+            });
+            housekeeper.scheduleWithFixedDelay(this::evictIdle, HOUSEKEEPING_INTERVAL_MILLIS,
+                    HOUSEKEEPING_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        }
+
+        public void warmUp() {
+            housekeeper.execute(this::fillToMinimum);
+        }
+
+        public Connection borrow() throws SQLException {
+            if (closed) throw new SQLException("Connection pool is closed");
+            long waitStart = System.nanoTime();
+            try {
+                if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                    throw new SQLTimeoutException("Timed out after " + borrowTimeoutMillis + " ms waiting for a database connection");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for a database connection", e);
+            }
+            recordWait(System.nanoTime() - waitStart);
+
+            try {
+                PooledConnection pooled;
+                while ((pooled = pollIdle()) != null) {
+                    if (isUsable(pooled)) break;
+                    discard(pooled);
+                }
+                if (pooled == null) {
+                    pooled = open();
+                }
+                activeConnections.incrementAndGet();
+                borrowCount.incrementAndGet();
+                return pooled.lease();
+            } catch (SQLException | RuntimeException e) {
+                permits.release();
+                throw e;
+            }
+        }
+
+        private void release(PooledConnection pooled) {
+            activeConnections.decrementAndGet();
+            try {
+                if (closed || pooled.physical.isClosed()) {
+                    discard(pooled);
+                    return;
+                }
+                if (!pooled.physical.getAutoCommit()) {
+                    pooled.physical.rollback();
+                    pooled.physical.setAutoCommit(true);
+                }
+                pooled.lastUsedMillis = System.currentTimeMillis();
+                synchronized (idle) {
+                    idle.push(pooled);
+                }
+            } catch (SQLException e) {
+                discard(pooled);
+            } finally {
+                permits.release();
+            }
+        }
+
+        private PooledConnection pollIdle() {
+            synchronized (idle) {
+                return idle.poll();
+            }
+        }
+
+        private boolean isUsable(PooledConnection pooled) {
+            if (System.currentTimeMillis() - pooled.lastUsedMillis < VALIDATION_SKIP_MILLIS) {
+                return true;
+            }
+            try {
+                return pooled.physical.isValid(VALIDATION_TIMEOUT_SECONDS);
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        private PooledConnection open() throws SQLException {
+            Connection physical = DriverManager.getConnection(url, user, pass);
+            totalConnections.incrementAndGet();
+            return new PooledConnection(physical);
+        }
+
+        private void discard(PooledConnection pooled) {
+            totalConnections.decrementAndGet();
+            try {
+                pooled.physical.close();
+            } catch (SQLException ignored) {
+            }
+        }
+
+        private void recordWait(long nanos) {
+            totalWaitNanos.addAndGet(nanos);
+            maxWaitNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        private void fillToMinimum() {
+            while (!closed && totalConnections.get() < minSize && permits.tryAcquire()) {
+                try {
+                    PooledConnection pooled = open();
+                    synchronized (idle) {
+                        idle.addLast(pooled);
+                    }
+                } catch (SQLException e) {
+                    LOG.log(Level.WARNING, "Could not open a pooled database connection", e);
+                    return;
+                } finally {
+                    permits.release();
+                }
+            }
+        }
+
+        private void evictIdle() {
+            long cutoff = System.currentTimeMillis() - idleTimeoutMillis;
+            List<PooledConnection> evicted = new ArrayList<>();
+            synchronized (idle) {
+                Iterator<PooledConnection> it = idle.descendingIterator();
+                while (it.hasNext() && totalConnections.get() - evicted.size() > minSize) {
+                    PooledConnection pooled = it.next();
+                    if (pooled.lastUsedMillis < cutoff) {
+                        it.remove();
+                        evicted.add(pooled);
+                    }
+                }
+            }
+            evicted.forEach(this::discard);
+            fillToMinimum();
+        }
+
+        public void close() {
+            closed = true;
+            housekeeper.shutdownNow();
+            List<PooledConnection> remaining;
+            synchronized (idle) {
+                remaining = new ArrayList<>(idle);
+                idle.clear();
+            }
+            remaining.forEach(this::discard);
+        }
+
+        public PoolStats getStats() {
+            int idleCount;
+            synchronized (idle) {
+                idleCount = idle.size();
+            }
+            long borrows = borrowCount.get();
+            return new PoolStats(activeConnections.get(), idleCount, totalConnections.get(), maxSize,
+                    permits.getQueueLength(), borrows,
+                    TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.get()),
+                    TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get()));
+        }
+
+        private class PooledConnection {
+            private final Connection physical;
+            private volatile long lastUsedMillis = System.currentTimeMillis();
+
+            PooledConnection(Connection physical) {
+                this.physical = physical;
+            }
+
+            Connection lease() {
+                return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                        new Class<?>[] { Connection.class }, new Lease(this));
+            }
+        }
+
+        private class Lease implements InvocationHandler {
+            private final PooledConnection pooled;
+            private boolean open = true;
+
+            Lease(PooledConnection pooled) {
+                this.pooled = pooled;
+            }
+
+            private synchronized boolean isOpen() {
+                return open;
+            }
+
+            private synchronized boolean end() {
+                if (!open) return false;
+                open = false;
+                return true;
+            }
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                    case "close":
+                        if (end()) release(pooled);
+                        return null;
+                    case "isClosed":
+                        return !isOpen() || pooled.physical.isClosed();
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "toString":
+                        return "PooledConnection[" + pooled.physical + "]";
+                    default:
+                        if (!isOpen()) throw new SQLException("Connection has been returned to the pool");
+                        Object result;
+                        try {
+                            result = method.invoke(pooled.physical, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                        if (result instanceof Statement) {
+                            String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+                            return DataLayerMetrics.getInstance().instrument((Statement) result, sql);
+                        }
+                        return result;
+                }
+            }
+        }
+
+        static class PoolStats {
+            private final int active;
+            private final int idle;
+            private final int total;
+            private final int maxSize;
+            private final int waitingThreads;
+            private final long borrowCount;
+            private final long totalWaitMillis;
+            private final long maxWaitMillis;
+
+            PoolStats(int active, int idle, int total, int maxSize, int waitingThreads,
+                      long borrowCount, long totalWaitMillis, long maxWaitMillis) {
+                this.active = active;
+                this.idle = idle;
+                this.total = total;
+                this.maxSize = maxSize;
+                this.waitingThreads = waitingThreads;
+                this.borrowCount = borrowCount;
+                this.totalWaitMillis = totalWaitMillis;
+                this.maxWaitMillis = maxWaitMillis;
+            }
+            public int getActive() { return active; }
+            public int getIdle() { return idle; }
+            public int getTotal() { return total; }
+            public int getMaxSize() { return maxSize; }
+            public int getWaitingThreads() { return waitingThreads; }
+            public long getBorrowCount() { return borrowCount; }
+            public long getTotalWaitMillis() { return totalWaitMillis; }
+            public long getMaxWaitMillis() { return maxWaitMillis; }
+            public double getAverageWaitMillis() { return borrowCount == 0 ? 0 : (double) totalWaitMillis / borrowCount; }
+
+            @Override
+            public String toString() {
+                return String.format("Pool[active=%d, idle=%d, total=%d/%d, waiting=%d, borrows=%d, avgWait=%.2fms, maxWait=%dms]",
+                        active, idle, total, maxSize, waitingThreads, borrowCount, getAverageWaitMillis(), maxWaitMillis);
+            }
+        }
+    }
+
+    static class ReplicaRouter {
+        private static final Logger LOG = Logger.getLogger("LeaveManagementApp.ReplicaRouter");
+        private static final String DEFAULT_SESSION = "";
+        private static final ThreadLocal<String> SESSION = new ThreadLocal<>();
+
+        private final List<Replica> replicas = new ArrayList<>();
+        private final boolean leastBusy;
+        private final long maxLagSeconds;
+        private final long retryMillis;
+        private final long readYourWritesNanos;
+        private final AtomicInteger next = new AtomicInteger();
+        private final ConcurrentHashMap<String, Long> lastWriteNanos = new ConcurrentHashMap<>();
+        private final ScheduledExecutorService monitor;
+
+        ReplicaRouter(List<String> urls, String user, String pass, int minSize, int maxSize, long idleTimeoutMillis,
+                      long borrowTimeoutMillis, boolean leastBusy, long maxLagSeconds, long lagCheckMillis, long retryMillis) {
+            this.leastBusy = leastBusy;
+            this.maxLagSeconds = maxLagSeconds;
+            this.retryMillis = retryMillis;
+            this.readYourWritesNanos = TimeUnit.SECONDS.toNanos(maxLagSeconds + 1) + TimeUnit.MILLISECONDS.toNanos(lagCheckMillis);
+            for (String url : urls) {
+                replicas.add(new Replica(url, new ConnectionPool(url, user, pass, minSize, maxSize, idleTimeoutMillis, borrowTimeoutMillis)));
+            }
+            monitor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "replica-lag-monitor");
+                t.setDaemon(true);
+                return t;
+            });
+            checkLag();
+            monitor.scheduleWithFixedDelay(this::checkLag, lagCheckMillis, lagCheckMillis, TimeUnit.MILLISECONDS);
+        }
+
+        static ReplicaRouter fromSystemProperties(String user, String pass, int minSize, int maxSize, long idleTimeoutMillis) {
+            List<String> urls = new ArrayList<>();
+            for (String url : System.getProperty("leave.db.replicas", "").split(",")) {
+                if (!url.isBlank()) urls.add(url.trim());
+            }
+            if (urls.isEmpty()) return null;
+            String balancing = System.getProperty("leave.db.replicaBalancing", "round-robin");
+            if (!"round-robin".equals(balancing) && !"least-busy".equals(balancing)) {
+                throw new IllegalArgumentException("Unknown replica balancing '" + balancing + "'. Use 'round-robin' or 'least-busy'.");
+            }
+            return new ReplicaRouter(urls, user, pass, minSize, maxSize, idleTimeoutMillis, Long.getLong("leave.db.replicaBorrowTimeoutMillis", 1_000L),
+                    "least-busy".equals(balancing), Long.getLong("leave.db.maxReplicaLagSeconds", 5L),
+                    Long.getLong("leave.db.lagCheckMillis", 2_000L), Long.getLong("leave.db.replicaRetryMillis", 30_000L));
+        }
+
+        static void bindSession(String sessionId) {
+            if (sessionId == null || sessionId.isBlank()) SESSION.remove();
+            else SESSION.set(sessionId);
+        }
+
+        static void bindSessionIfAbsent(String sessionId) {
+            if (SESSION.get() == null) bindSession(sessionId);
+        }
+
+        static void clearSession() {
+            SESSION.remove();
+        }
+
+        private static String session() {
+            String session = SESSION.get();
+            return session == null ? DEFAULT_SESSION : session;
+        }
+
+        void wrote() {
+            lastWriteNanos.put(session(), System.nanoTime());
+        }
+
+        void wrote(String key) {
+            if (key != null) lastWriteNanos.put("employee:" + key, System.nanoTime());
+        }
+
+        Replica choose(String employeeId) {
+            if (recentlyWrote(session()) || (employeeId != null && recentlyWrote("employee:" + employeeId))) return null;
+            long now = System.currentTimeMillis();
+            Replica chosen = null;
+            int start = next.getAndIncrement() & Integer.MAX_VALUE;
+            for (int i = 0; i < replicas.size(); i++) {
+                Replica replica = replicas.get((start + i) % replicas.size());
+                if (!replica.isUsable(now, maxLagSeconds)) continue;
+                if (!leastBusy) return replica;
+                if (chosen == null || replica.load() < chosen.load()) chosen = replica;
+            }
+            return chosen;
+        }
+
+        private boolean recentlyWrote(String key) {
+            Long at = lastWriteNanos.get(key);
+            if (at == null) return false;
+            if (System.nanoTime() - at < readYourWritesNanos) return true;
+            lastWriteNanos.remove(key, at);
+            return false;
+        }
+
+        void failed(Replica replica, SQLException e) {
+            String state = e.getSQLState();
+            boolean connectionProblem = e instanceof SQLTransientConnectionException || e instanceof SQLNonTransientConnectionException
+                    || (state != null && state.startsWith("08"));
+            if (connectionProblem) markDown(replica, e.getMessage());
+        }
+
+        private void markDown(Replica replica, String reason) {
+            if (replica.downUntilMillis == 0) LOG.warning("Replica " + replica.url + " taken out of rotation: " + reason);
+            replica.downUntilMillis = System.currentTimeMillis() + retryMillis;
+        }
+
+        private void checkLag() {
+            long now = System.currentTimeMillis();
+            lastWriteNanos.values().removeIf(at -> System.nanoTime() - at >= readYourWritesNanos);
+            for (Replica replica : replicas) {
+                if (replica.downUntilMillis > now) continue;
+                long lag;
+                try (Connection conn = replica.pool.borrow()) {
+                    lag = replicationLag(conn);
+                } catch (SQLException e) {
+                    markDown(replica, e.getMessage());
+                    continue;
+                }
+                if (replica.downUntilMillis != 0) LOG.info("Replica " + replica.url + " is back in rotation");
+                replica.downUntilMillis = 0;
+                boolean wasCurrent = replica.lagSeconds >= 0 && replica.lagSeconds <= maxLagSeconds;
+                if (wasCurrent && (lag < 0 || lag > maxLagSeconds)) {
+                    LOG.warning("Replica " + replica.url + " is " + (lag < 0 ? "not replicating" : lag + " s behind") + ", reading from the primary");
+                }
+                replica.lagSeconds = lag;
+            }
+        }
+
+        private static long replicationLag(Connection conn) throws SQLException {
+            String[][] variants = { { "SHOW REPLICA STATUS", "Seconds_Behind_Source" }, { "SHOW SLAVE STATUS", "Seconds_Behind_Master" } };
+            SQLException failure = null;
+            for (String[] variant : variants) {
+                try (Statement stmt = conn.createStatement();
+                     ResultSet rs = stmt.executeQuery(variant[0])) {
+                    if (!rs.next()) return -1;
+                    long lag = rs.getLong(variant[1]);
+                    return rs.wasNull() ? -1 : lag;
+                } catch (SQLSyntaxErrorException e) {
+                    failure = e;
+                }
+            }
+            throw failure;
+        }
+
+        List<String> describe() {
+            long now = System.currentTimeMillis();
+            List<String> states = new ArrayList<>();
+            for (Replica replica : replicas) {
+                String state = replica.downUntilMillis > now ? "down"
+                        : replica.lagSeconds < 0 ? "not replicating"
+                        : replica.lagSeconds > maxLagSeconds ? "lagging " + replica.lagSeconds + " s"
+                        : "up, lag " + replica.lagSeconds + " s";
+                states.add(replica.url + " " + state + " " + replica.pool.getStats());
+            }
+            return states;
+        }
+
+        void close() {
+            monitor.shutdownNow();
+            for (Replica replica : replicas) replica.pool.close();
+        }
+
+        static class Replica {
+            private final String url;
+            private final ConnectionPool pool;
+            private volatile long lagSeconds = -1;
+            private volatile long downUntilMillis;
+
+            Replica(String url, ConnectionPool pool) {
+                this.url = url;
+                this.pool = pool;
+            }
+
+            Connection borrow() throws SQLException { return pool.borrow(); }
+
+            boolean isUsable(long now, long maxLagSeconds) {
+                return downUntilMillis <= now && lagSeconds >= 0 && lagSeconds <= maxLagSeconds;
+            }
+
+            int load() {
+                ConnectionPool.PoolStats stats = pool.getStats();
+                return stats.getActive() + stats.getWaitingThreads();
+            }
+        }
+    }
+
+    static class EmbeddedLeaveStore implements LeaveStore {
+        private static final Logger LOG = Logger.getLogger("LeaveManagementApp.EmbeddedLeaveStore");
+        private static final int SNAPSHOT_MAGIC = 0x4C534E50;
+        private static final int SNAPSHOT_VERSION = 5;
+        private static final long SNAPSHOT_EVERY_RECORDS = Long.getLong("leave.embedded.snapshotEveryRecords", 50_000L);
+        private static final long SYNC_INTERVAL_MILLIS = Long.getLong("leave.embedded.syncIntervalMillis", 1_000L);
+        private static final int ARCHIVE_CACHE_EMPLOYEES = Integer.getInteger("leave.embedded.archiveCacheEmployees", 256);
+
+        private static final byte OP_PUT_EMPLOYEE = 1;
+        private static final byte OP_REMOVE_EMPLOYEE = 2;
+        private static final byte OP_PUT_REQUEST = 3;
+        private static final byte OP_SET_STATUS = 4;
+        private static final byte OP_SET_BALANCE = 5;
+        private static final byte OP_ACCRUAL = 6;
+        private static final byte OP_LEDGER = 7;
+        private static final byte OP_ARCHIVE = 8;
+        private static final byte OP_JOURNAL_GENERATION = 9;
+        private static final int LEDGER_SNAPSHOT_EVERY = Integer.getInteger("leave.ledger.snapshotEvery", 32);
+        private static final int EXPORT_WINDOW = 1_024;
+
+        private final Path snapshotPath;
+        private final Path archivePath;
+        private final MappedJournal journal;
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private final Map<String, EmployeeRecord> employees = new HashMap<>();
+        private final IntObjectHashMap<LeaveRequest> requests = new IntObjectHashMap<>();
+        private final Map<String, IntArrayList> requestsByEmployee = new HashMap<>();
+        private final BitSet pendingIds = new BitSet();
+        private final Map<String, AccrualProgress> accrualRuns = new HashMap<>();
+        private final Map<String, EmployeeLedger> ledgers = new HashMap<>();
+        private long nextEntryId = 1;
+        private final Map<String, Integer> archiveRemovedUpTo = new HashMap<>();
+        private final Map<String, List<Long>> archiveBlocksByEmployee = new HashMap<>();
+        private final Map<String, List<LeaveRequest>> archivedByEmployee = Collections.synchronizedMap(
+                new LinkedHashMap<String, List<LeaveRequest>>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<String, List<LeaveRequest>> eldest) {
+                        return size() > ARCHIVE_CACHE_EMPLOYEES;
+                    }
+                });
+        private long archiveLength;
+        private final ScheduledExecutorService syncer;
+        private int nextRequestId = 1;
+        private long recordsSinceSnapshot;
+        private long journalGeneration;
+        private boolean journalReplayed;
+        private boolean staleJournal;
+        private final AtomicBoolean snapshotScheduled = new AtomicBoolean();
+
+        public EmbeddedLeaveStore(Path directory) throws IOException {
+            Files.createDirectories(directory);
+            snapshotPath = directory.resolve("leave-snapshot.dat");
+            archivePath = directory.resolve("leave-archive.dat");
+            archiveLength = recoverArchive();
+            indexArchive();
+            loadSnapshot();
+            journal = new MappedJournal(directory.resolve("leave-journal.log"));
+            recordsSinceSnapshot = journal.replay(this::replayRecord);
+            if (staleJournal) {
+                LOG.warning("Skipped a journal already contained in " + snapshotPath + "; the last snapshot was interrupted");
+                journal.reset();
+                markJournal();
+                recordsSinceSnapshot = 0;
+            }
+            syncer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "embedded-store-sync");
+                t.setDaemon(true);
+                return t;
+            });
+            syncer.scheduleWithFixedDelay(this::sync, SYNC_INTERVAL_MILLIS, SYNC_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        }
+
+        public List<Employee> getAllEmployees() {
+            lock.readLock().lock();
+            try {
+                List<Employee> result = new ArrayList<>(employees.size());
+                for (EmployeeRecord record : employees.values()) result.add(record.toEmployee());
+                result.sort(Comparator.comparing(Employee::getName));
+                return result;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        public long streamEmployees(Consumer<Employee> sink) {
+            List<EmployeeRecord> records;
+            lock.readLock().lock();
+            try {
+                records = new ArrayList<>(employees.values());
+            } finally {
+                lock.readLock().unlock();
+            }
+            records.sort(Comparator.comparing(record -> record.id));
+            for (EmployeeRecord record : records) sink.accept(record.toEmployee());
+            return records.size();
+        }
+
+        public Employee findEmployeeById(String employeeId) {
+            lock.readLock().lock();
+            try {
+                EmployeeRecord record = employees.get(employeeId);
+                return record == null ? null : record.toEmployee();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        public void addEmployee(Employee emp) {
+            lock.writeLock().lock();
+            try {
+                if (employees.containsKey(emp.getId())) return;
+                putEmployee(emp);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        private void putEmployee(Employee emp) {
+            EmployeeRecord record = new EmployeeRecord(emp.getId(), emp.getName(), 0, emp instanceof Manager);
+            log(putEmployeeRecord(record));
+            employees.put(record.id, record);
+            if (emp.getLeaveBalance() != 0) ledger(record.id, emp.getLeaveBalance(), LedgerEntry.OPENING, null);
+        }
+
+        public boolean removeEmployee(String employeeId) {
+            lock.writeLock().lock();
+            try {
+                EmployeeRecord record = employees.get(employeeId);
+                if (record == null) return false;
+                if (record.balance != 0) ledger(employeeId, -record.balance, LedgerEntry.CLOSED, null);
+                log(removeEmployeeRecord(employeeId));
+                dropEmployee(employeeId);
+                return true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        public int addLeaveRequest(LeaveRequest req) {
+            lock.writeLock().lock();
+            try {
+                LeaveRequest stored = new LeaveRequest(nextRequestId, req.getEmployeeId(), req.getLeaveType(),
+                        req.getStartDate(), req.getEndDate(), req.getStatus());
+                log(putRequestRecord(stored));
+                indexRequest(stored);
+                return stored.getId();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        public List<LeaveRequest> getRequestsForEmployee(String employeeId) {
+            lock.readLock().lock();
+            try {
+                List<LeaveRequest> result = new ArrayList<>();
+                IntArrayList ids = requestsByEmployee.get(employeeId);
+                if (ids != null) {
+                    for (int i = 0; i < ids.size(); i++) result.add(requests.get(ids.get(i)));
+                }
+                return result;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        public List<LeaveRequest> getArchivedRequestsForEmployee(String employeeId) {
+            List<LeaveRequest> cached = archivedByEmployee.get(employeeId);
+            if (cached != null) return new ArrayList<>(cached);
+            long length;
+            int removedUpTo;
+            List<Long> blocks;
+            lock.readLock().lock();
+            try {
+                length = archiveLength;
+                removedUpTo = archiveRemovedUpTo.getOrDefault(employeeId, 0);
+                blocks = new ArrayList<>(archiveBlocksByEmployee.getOrDefault(employeeId, List.of()));
+            } finally {
+                lock.readLock().unlock();
+            }
+            Map<Integer, LeaveRequest> found = new TreeMap<>();
+            if (!blocks.isEmpty()) {
+                try (FileChannel channel = FileChannel.open(archivePath, StandardOpenOption.READ)) {
+                    for (long position : blocks) readArchiveBlock(readArchiveFrame(channel, position), employeeId, removedUpTo, found);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Could not read the leave archive", e);
+                }
+            }
+            List<LeaveRequest> archived = List.copyOf(found.values());
+            lock.readLock().lock();
+            try {
+                // Appends and employee removals change these under the write lock and drop the cached entry.
+                if (archiveLength == length && archiveRemovedUpTo.getOrDefault(employeeId, 0) == removedUpTo) {
+                    archivedByEmployee.put(employeeId, archived);
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            return new ArrayList<>(archived);
+        }
+
+        public List<LeaveRequest> getRequestHistoryPage(LeaveHistoryQuery query, LeaveRequest after, int limit) {
+            Comparator<LeaveRequest> order = historyOrder(query);
+            List<LeaveRequest> candidates = new ArrayList<>();
+            for (LeaveRequest req : history(query)) {
+                if (after == null || order.compare(req, after) > 0) candidates.add(req);
+            }
+            candidates.sort(order);
+            return new ArrayList<>(candidates.subList(0, Math.min(limit, candidates.size())));
+        }
+
+        public LeaveHistorySummary summarizeRequestHistory(LeaveHistoryQuery query) {
+            Employee employee = findEmployeeById(query.getEmployeeId());
+            if (employee == null) return null;
+            Map<String, int[]> byStatus = new LinkedHashMap<>();
+            for (LeaveRequest req : history(query)) {
+                int[] counts = byStatus.computeIfAbsent(req.getStatus(), _ -> new int[2]);
+                counts[0]++;
+                counts[1] += req.getDays();
+            }
+            return new LeaveHistorySummary(employee.getLeaveBalance(), byStatus, 0);
+        }
+
+        private List<LeaveRequest> history(LeaveHistoryQuery query) {
+            List<LeaveRequest> matching = new ArrayList<>();
+            for (LeaveRequest req : getRequestsForEmployee(query.getEmployeeId())) {
+                if (query.matches(req)) matching.add(req);
+            }
+            if (query.isIncludeArchived()) {
+                for (LeaveRequest req : getArchivedRequestsForEmployee(query.getEmployeeId())) {
+                    if (query.matches(req)) matching.add(req);
+                }
+            }
+            return matching;
+        }
+
+        private static Comparator<LeaveRequest> historyOrder(LeaveHistoryQuery query) {
+            Comparator<LeaveRequest> order;
+            switch (query.getSort()) {
+                case TYPE: order = Comparator.comparing(LeaveRequest::getLeaveType); break;
+                case START_DATE: order = Comparator.comparing(LeaveRequest::getStartDate); break;
+                case END_DATE: order = Comparator.comparing(LeaveRequest::getEndDate); break;
+                case STATUS: order = Comparator.comparing(LeaveRequest::getStatus); break;
+                default: order = (a, b) -> 0;
+            }
+            order = order.thenComparingInt(LeaveRequest::getId);
+            return query.isAscending() ? order : order.reversed();
+        }
+
+        public List<LeaveRequest> archiveRequests(LocalDate cutoff, int afterRequestId, int chunkSize) {
+            String cutoffDate = cutoff.toString();
+            lock.writeLock().lock();
+            try {
+                List<LeaveRequest> archived = new ArrayList<>();
+                for (int id = afterRequestId + 1; id < nextRequestId && archived.size() < chunkSize; id++) {
+                    LeaveRequest req = requests.get(id);
+                    if (req == null || req.getEndDate().compareTo(cutoffDate) >= 0) continue;
+                    if ("Approved".equals(req.getStatus()) || "Rejected".equals(req.getStatus())) archived.add(req);
+                }
+                if (archived.isEmpty()) return archived;
+                appendArchiveBlock(archived);
+                RecordBuilder b = new RecordBuilder(OP_ARCHIVE).putInt(archived.size());
+                int[] ids = new int[archived.size()];
+                for (int i = 0; i < ids.length; i++) {
+                    ids[i] = archived.get(i).getId();
+                    b.putInt(ids[i]);
+                }
+                log(b.toBytes());
+                dropRequests(ids);
+                return archived;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not write the leave archive", e);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        private void appendArchiveBlock(List<LeaveRequest> block) throws IOException {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(compressed, 1 << 16))) {
+                out.writeInt(block.size());
+                for (LeaveRequest req : block) out.writeInt(req.getId());
+                for (LeaveRequest req : block) out.writeUTF(req.getEmployeeId());
+                for (LeaveRequest req : block) out.writeUTF(req.getLeaveType());
+                for (LeaveRequest req : block) out.writeInt((int) LocalDate.parse(req.getStartDate()).toEpochDay());
+                for (LeaveRequest req : block) out.writeInt((int) LocalDate.parse(req.getEndDate()).toEpochDay());
+                for (LeaveRequest req : block) out.writeUTF(req.getStatus());
+            }
+            ByteBuffer framed = ByteBuffer.allocate(4 + compressed.size());
+            framed.putInt(compressed.size()).put(compressed.toByteArray()).flip();
+            try (FileChannel channel = FileChannel.open(archivePath, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                channel.position(archiveLength);
+                while (framed.hasRemaining()) channel.write(framed);
+                channel.force(false);
+            }
+            Set<String> blockEmployees = new HashSet<>();
+            for (LeaveRequest req : block) blockEmployees.add(req.getEmployeeId());
+            indexArchiveBlock(archiveLength, blockEmployees);
+            archiveLength += 4 + compressed.size();
+        }
+
+        private void indexArchive() throws IOException {
+            if (archiveLength == 0) return;
+            try (FileChannel channel = FileChannel.open(archivePath, StandardOpenOption.READ)) {
+                for (long position = 0; position < archiveLength; ) {
+                    byte[] block = readArchiveFrame(channel, position);
+                    indexArchiveBlock(position, readArchiveBlockEmployees(block));
+                    position += 4 + block.length;
+                }
+            }
+        }
+
+        private void indexArchiveBlock(long position, Set<String> blockEmployees) {
+            for (String employeeId : blockEmployees) {
+                archiveBlocksByEmployee.computeIfAbsent(employeeId, _ -> new ArrayList<>()).add(position);
+                archivedByEmployee.remove(employeeId);
+            }
+        }
+
+        private static byte[] readArchiveFrame(FileChannel channel, long position) throws IOException {
+            ByteBuffer header = ByteBuffer.allocate(4);
+            readFully(channel, header, position);
+            ByteBuffer block = ByteBuffer.allocate(header.getInt(0));
+            readFully(channel, block, position + 4);
+            return block.array();
+        }
+
+        private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) throw new EOFException("Truncated leave archive");
+            }
+        }
+
+        private static Set<String> readArchiveBlockEmployees(byte[] block) throws IOException {
+            try (DataInputStream in = new DataInputStream(new GZIPInputStream(new ByteArrayInputStream(block), 1 << 16))) {
+                int count = in.readInt();
+                in.skipNBytes(4L * count);
+                Set<String> blockEmployees = new HashSet<>();
+                for (int i = 0; i < count; i++) blockEmployees.add(in.readUTF());
+                return blockEmployees;
+            }
+        }
+
+        private static void readArchiveBlock(byte[] block, String employeeId, int removedUpTo, Map<Integer, LeaveRequest> found) throws IOException {
+            try (DataInputStream in = new DataInputStream(new GZIPInputStream(new ByteArrayInputStream(block), 1 << 16))) {
+                int count = in.readInt();
+                int[] ids = new int[count];
+                for (int i = 0; i < count; i++) ids[i] = in.readInt();
+                BitSet matches = new BitSet(count);
+                for (int i = 0; i < count; i++) {
+                    if (in.readUTF().equals(employeeId) && ids[i] > removedUpTo) matches.set(i);
+                }
+                if (matches.isEmpty()) return;
+                String[] types = new String[count];
+                for (int i = 0; i < count; i++) types[i] = in.readUTF();
+                int[] starts = new int[count];
+                for (int i = 0; i < count; i++) starts[i] = in.readInt();
+                int[] ends = new int[count];
+                for (int i = 0; i < count; i++) ends[i] = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    String status = in.readUTF();
+                    if (!matches.get(i)) continue;
+                    found.put(ids[i], new LeaveRequest(ids[i], employeeId, types[i], LocalDate.ofEpochDay(starts[i]).toString(),
+                            LocalDate.ofEpochDay(ends[i]).toString(), status));
+                }
+            }
+        }
+
+        private long recoverArchive() throws IOException {
+            if (!Files.exists(archivePath)) return 0;
+            try (FileChannel channel = FileChannel.open(archivePath, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                long size = channel.size();
+                long position = 0;
+                ByteBuffer header = ByteBuffer.allocate(4);
+                while (position + 4 <= size) {
+                    header.clear();
+                    if (channel.read(header, position) < 4) break;
+                    int length = header.getInt(0);
+                    if (length <= 0 || position + 4 + length > size) break;
+                    position += 4 + length;
+                }
+                if (position < size) channel.truncate(position);
+                return position;
+            }
+        }
+
+        public List<LeaveRequest> getPendingRequests() {
+            lock.readLock().lock();
+            try {
+                List<LeaveRequest> result = new ArrayList<>(pendingIds.cardinality());
+                for (int id = pendingIds.nextSetBit(0); id >= 0; id = pendingIds.nextSetBit(id + 1)) {
+                    result.add(requests.get(id));
+                }
+                return result;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        public List<LeaveRequest> getPendingRequestsPage(PendingRequestQuery query, LeaveRequest after, int limit) {
+            lock.readLock().lock();
+            try {
+                List<LeaveRequest> page = new ArrayList<>();
+                if (query.getSort() == PendingSort.REQUEST_ID) {
+                    if (query.isAscending()) {
+                        int start = after == null ? 0 : after.getId() + 1;
+                        for (int id = pendingIds.nextSetBit(start); id >= 0 && page.size() < limit; id = pendingIds.nextSetBit(id + 1)) {
+                            LeaveRequest req = requests.get(id);
+                            if (matches(query, req)) page.add(req);
+                        }
+                    } else {
+                        int start = after == null ? pendingIds.length() - 1 : after.getId() - 1;
+                        for (int id = pendingIds.previousSetBit(start); id >= 0 && page.size() < limit; id = pendingIds.previousSetBit(id - 1)) {
+                            LeaveRequest req = requests.get(id);
+                            if (matches(query, req)) page.add(req);
+                        }
+                    }
+                    return page;
+                }
+                Comparator<LeaveRequest> order = pendingOrder(query);
+                List<LeaveRequest> candidates = new ArrayList<>();
+                for (int id = pendingIds.nextSetBit(0); id >= 0; id = pendingIds.nextSetBit(id + 1)) {
+                    LeaveRequest req = requests.get(id);
+                    if (matches(query, req) && (after == null || order.compare(req, after) > 0)) candidates.add(req);
+                }
+                candidates.sort(order);
+                return new ArrayList<>(candidates.subList(0, Math.min(limit, candidates.size())));
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        public int countPendingRequests(PendingRequestQuery query) {
+            lock.readLock().lock();
+            try {
+                int count = 0;
+                for (int id = pendingIds.nextSetBit(0); id >= 0; id = pendingIds.nextSetBit(id + 1)) {
+                    if (matches(query, requests.get(id))) count++;
+                }
+                return count;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        public LeaveRequest findRequestById(int requestId) {
+            lock.readLock().lock();
+            try {
+                return requests.get(requestId);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        public int getMaxRequestId() {
+            lock.readLock().lock();
+            try {
+                return nextRequestId - 1;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        public void updateLeaveRequestStatus(int requestId, String status) {
+            lock.writeLock().lock();
+            try {
+                if (requests.get(requestId) == null) return;
+                log(setStatusRecord(requestId, status));
+                applyStatus(requestId, status);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        public ProcessOutcome approveLeaveRequest(int requestId, String employeeId, int days) {
+            lock.writeLock().lock();
+            try {
+                LeaveRequest req = requests.get(requestId);
+                if (req == null) return ProcessOutcome.NOT_FOUND;
+                if (!"Pending".equals(req.getStatus())) return ProcessOutcome.ALREADY_PROCESSED;
+                log(setStatusRecord(requestId, "Approved"));
+                applyStatus(requestId, "Approved");
+                ledger(employeeId, -days, LedgerEntry.LEAVE_APPROVED, String.valueOf(requestId));
+                return ProcessOutcome.APPLIED;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        public ProcessOutcome rejectLeaveRequest(int requestId) {
+            lock.writeLock().lock();
+            try {
+                LeaveRequest req = requests.get(requestId);
+                if (req == null) return ProcessOutcome.NOT_FOUND;
+                if (!"Pending".equals(req.getStatus())) return ProcessOutcome.ALREADY_PROCESSED;
+                log(setStatusRecord(requestId, "Rejected"));
+                applyStatus(requestId, "Rejected");
+                return ProcessOutcome.APPLIED;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        public BulkProcessResult processRequests(List<Integer> requestIds, String newStatus) {
+            Map<Integer, ProcessOutcome> outcomes = new LinkedHashMap<>();
+            Map<String, Integer> debits = new TreeMap<>();
+            List<LeaveRequest> applied = new ArrayList<>();
+            boolean debit = "Approved".equals(newStatus);
+            lock.writeLock().lock();
+            try {
+                for (Integer id : requestIds) {
+                    LeaveRequest req = requests.get(id);
+                    if (req == null) {
+                        outcomes.put(id, ProcessOutcome.NOT_FOUND);
+                    } else if (!"Pending".equals(req.getStatus())) {
+                        outcomes.put(id, ProcessOutcome.ALREADY_PROCESSED);
+                    } else {
+                        log(setStatusRecord(id, newStatus));
+                        applyStatus(id, newStatus);
+                        outcomes.put(id, ProcessOutcome.APPLIED);
+                        applied.add(req);
+                        if (debit) debits.merge(req.getEmployeeId(), req.getDays(), Integer::sum);
+                    }
+                }
+                if (debit) {
+                    for (LeaveRequest req : applied) {
+                        ledger(req.getEmployeeId(), -req.getDays(), LedgerEntry.LEAVE_APPROVED, String.valueOf(req.getId()));
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return new BulkProcessResult(outcomes, debits, applied);
+        }
+
+        public void adjustEmployeeBalance(String employeeId, int delta) {
+            lock.writeLock().lock();
+            try {
+                if (employees.containsKey(employeeId)) ledger(employeeId, delta, LedgerEntry.ADJUSTMENT, null);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        public void updateEmployeeBalance(String employeeId, int newBalance) {
+            lock.writeLock().lock();
+            try {
+                EmployeeRecord record = employees.get(employeeId);
+                if (record == null || record.balance == newBalance) return;
+                ledger(employeeId, newBalance - record.balance, LedgerEntry.ADJUSTMENT, null);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        public long streamLeaveRequests(LeaveRequestFilter filter, LeaveRequestSink sink) throws IOException {
+            int[] employeeIds = null;
+            int upperBound;
+            lock.readLock().lock();
+            try {
+                upperBound = nextRequestId;
+                if (filter.getEmployeeId() != null) {
+                    IntArrayList ids = requestsByEmployee.get(filter.getEmployeeId());
+                    employeeIds = new int[ids == null ? 0 : ids.size()];
+                    for (int i = 0; i < employeeIds.length; i++) employeeIds[i] = ids.get(i);
+                    Arrays.sort(employeeIds);
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            int first = employeeIds != null ? 0 : Math.max(0, filter.getAfterRequestId() + 1);
+            int total = employeeIds != null ? employeeIds.length : (int) Math.min(upperBound, filter.getUpToRequestId() + 1L);
+            List<LeaveRequest> window = new ArrayList<>(EXPORT_WINDOW);
+            long rows = 0;
+            for (int from = first; from < total; from += EXPORT_WINDOW) {
+                window.clear();
+                lock.readLock().lock();
+                try {
+                    for (int i = from; i < Math.min(from + EXPORT_WINDOW, total); i++) {
+                        LeaveRequest req = requests.get(employeeIds != null ? employeeIds[i] : i);
+                        if (req != null && filter.matches(req)) window.add(req);
+                    }
+                } finally {
+                    lock.readLock().unlock();
+                }
+                for (LeaveRequest req : window) {
+                    sink.accept(req);
+                    rows++;
+                }
+            }
+            return rows;
+        }
+
+        public List<LedgerEntry> getLedger(String employeeId) {
+            lock.readLock().lock();
+            try {
+                EmployeeLedger ledger = ledgers.get(employeeId);
+                return ledger == null ? new ArrayList<>() : new ArrayList<>(ledger.entries);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        public int getLedgerBalance(String employeeId) {
+            lock.readLock().lock();
+            try {
+                EmployeeLedger ledger = ledgers.get(employeeId);
+                return ledger == null ? 0 : ledger.balance();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        public int snapshotBalances() {
+            lock.writeLock().lock();
+            try {
+                int taken = 0;
+                for (EmployeeLedger ledger : ledgers.values()) {
+                    if (ledger.snapshotIndex == ledger.entries.size()) continue;
+                    ledger.snapshot();
+                    taken++;
+                }
+                return taken;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        public BalanceRebuildResult rebuildBalances(String afterEmployeeId, String upToEmployeeId) {
+            lock.writeLock().lock();
+            try {
+                int checked = 0;
+                int corrected = 0;
+                int withoutLedger = 0;
+                for (EmployeeRecord emp : employees.values()) {
+                    if (emp.id.compareTo(afterEmployeeId) <= 0 || emp.id.compareTo(upToEmployeeId) > 0) continue;
+                    checked++;
+                    EmployeeLedger ledger = ledgers.get(emp.id);
+                    if (ledger == null || ledger.entries.isEmpty()) {
+                        withoutLedger++;
+                        continue;
+                    }
+                    int balance = 0;
+                    for (LedgerEntry entry : ledger.entries) balance += entry.getDelta();
+                    ledger.snapshotBalance = balance;
+                    ledger.snapshotIndex = ledger.entries.size();
+                    if (balance != emp.balance) {
+                        emp.balance = balance;
+                        corrected++;
+                    }
+                }
+                return new BalanceRebuildResult(checked, corrected, withoutLedger);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        public AccrualProgress beginAccrual(String period) {
+            lock.writeLock().lock();
+            try {
+                AccrualProgress progress = accrualRuns.get(period);
+                if (progress == null) {
+                    progress = new AccrualProgress(period, null, 0, false);
+                    log(accrualRecord(progress, Collections.emptyList(), System.currentTimeMillis()));
+                    accrualRuns.put(period, progress);
+                }
+                return progress;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        public AccrualProgress accrueNextChunk(AccrualProgress progress, AccrualPolicy policy, int chunkSize) {
+            lock.writeLock().lock();
+            try {
+                AccrualProgress current = accrualRuns.get(progress.getPeriod());
+                if (current == null || current.isCompleted()) return current;
+                String after = current.getLastEmployeeId() == null ? "" : current.getLastEmployeeId();
+                PriorityQueue<String> chunk = new PriorityQueue<>(Comparator.reverseOrder());
+                for (String id : employees.keySet()) {
+                    if (id.compareTo(after) <= 0) continue;
+                    if (chunk.size() < chunkSize) {
+                        chunk.add(id);
+                    } else if (id.compareTo(chunk.peek()) < 0) {
+                        chunk.poll();
+                        chunk.add(id);
+                    }
+                }
+                YearMonth period = YearMonth.parse(current.getPeriod());
+                List<EmployeeRecord> credited = new ArrayList<>(chunk.size());
+                String upTo = chunk.isEmpty() ? current.getLastEmployeeId() : chunk.peek();
+                for (String id : chunk) {
+                    EmployeeRecord emp = employees.get(id);
+                    credited.add(new EmployeeRecord(emp.id, emp.name, policy.apply(emp.balance, period), emp.manager));
+                }
+                AccrualProgress next = new AccrualProgress(current.getPeriod(), upTo,
+                        current.getEmployeesCredited() + credited.size(), chunk.isEmpty());
+                long createdAt = System.currentTimeMillis();
+                log(accrualRecord(next, credited, createdAt));
+                for (EmployeeRecord emp : credited) applyAccrual(next.getPeriod(), emp.id, emp.balance, createdAt);
+                accrualRuns.put(next.getPeriod(), next);
+                return next;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        public Set<String> findExistingEmployeeIds(Collection<String> employeeIds) {
+            lock.readLock().lock();
+            try {
+                Set<String> existing = new HashSet<>();
+                for (String id : employeeIds) {
+                    if (employees.containsKey(id)) existing.add(id);
+                }
+                return existing;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        public int importEmployees(List<Employee> batch) {
+            lock.writeLock().lock();
+            try {
+                int inserted = 0;
+                for (Employee emp : batch) {
+                    if (employees.containsKey(emp.getId())) continue;
+                    putEmployee(emp);
+                    inserted++;
+                }
+                return inserted;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        public int importLeaveRequests(List<LeaveRequest> batch) {
+            lock.writeLock().lock();
+            try {
+                for (LeaveRequest req : batch) {
+                    LeaveRequest stored = new LeaveRequest(nextRequestId, req.getEmployeeId(), req.getLeaveType(),
+                            req.getStartDate(), req.getEndDate(), req.getStatus());
+                    log(putRequestRecord(stored));
+                    indexRequest(stored);
+                }
+                return batch.size();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        public void snapshot() throws IOException {
+            lock.writeLock().lock();
+            try {
+                writeSnapshot(journalGeneration + 1);
+                journalGeneration++;
+                journal.reset();
+                markJournal();
+                recordsSinceSnapshot = 0;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        public void close() {
+            syncer.shutdownNow();
+            try {
+                snapshot();
+            } catch (IOException e) {
+                LOG.log(Level.SEVERE, "Could not write the embedded snapshot on close; the journal will be replayed", e);
+            }
+            journal.close();
+        }
+
+        private void sync() {
+            lock.readLock().lock();
+            try {
+                journal.force();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        private void ledger(String employeeId, int delta, String reason, String reference) {
+            long createdAt = System.currentTimeMillis();
+            log(new RecordBuilder(OP_LEDGER).putString(employeeId).putInt(delta).putString(reason).putString(reference)
+                    .putLong(createdAt).toBytes());
+            applyLedger(employeeId, delta, reason, reference, createdAt);
+        }
+
+        private void applyLedger(String employeeId, int delta, String reason, String reference, long createdAt) {
+            EmployeeRecord record = employees.get(employeeId);
+            if (record != null) record.balance += delta;
+            appendEntry(employeeId, delta, reason, reference, createdAt);
+        }
+
+        private void appendEntry(String employeeId, int delta, String reason, String reference, long createdAt) {
+            EmployeeLedger ledger = ledgers.computeIfAbsent(employeeId, _ -> new EmployeeLedger());
+            ledger.entries.add(new LedgerEntry(nextEntryId++, employeeId, delta, reason, reference, createdAt));
+            if (ledger.entries.size() - ledger.snapshotIndex >= LEDGER_SNAPSHOT_EVERY) ledger.snapshot();
+        }
+
+        private void log(byte[] record) {
+            try {
+                journal.append(record);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not write to the embedded journal", e);
+            }
+            if (++recordsSinceSnapshot >= SNAPSHOT_EVERY_RECORDS && snapshotScheduled.compareAndSet(false, true)) {
+                syncer.execute(() -> {
+                    try {
+                        snapshot();
+                    } catch (IOException e) {
+                        LOG.log(Level.SEVERE, "Embedded snapshot failed; it will be retried on the next write", e);
+                    } finally {
+                        snapshotScheduled.set(false);
+                    }
+                });
+            }
+        }
+
+        private static boolean matches(PendingRequestQuery query, LeaveRequest req) {
+            if (query.getEmployeeId() != null && !query.getEmployeeId().equals(req.getEmployeeId())) return false;
+            if (query.getLeaveType() != null && !query.getLeaveType().equalsIgnoreCase(req.getLeaveType())) return false;
+            if (query.getFromDate() != null && req.getEndDate().compareTo(query.getFromDate()) < 0) return false;
+            if (query.getToDate() != null && req.getStartDate().compareTo(query.getToDate()) > 0) return false;
+            return true;
+        }
+
+        private static Comparator<LeaveRequest> pendingOrder(PendingRequestQuery query) {
+            Comparator<LeaveRequest> order;
+            switch (query.getSort()) {
+                case EMPLOYEE: order = Comparator.comparing(LeaveRequest::getEmployeeId); break;
+                case TYPE: order = Comparator.comparing(LeaveRequest::getLeaveType); break;
+                case START_DATE: order = Comparator.comparing(LeaveRequest::getStartDate); break;
+                case END_DATE: order = Comparator.comparing(LeaveRequest::getEndDate); break;
+                default: order = (a, b) -> 0;
+            }
+            order = order.thenComparingInt(LeaveRequest::getId);
+            return query.isAscending() ? order : order.reversed();
+        }
+
+        private void indexRequest(LeaveRequest req) {
+            requests.put(req.getId(), req);
+            requestsByEmployee.computeIfAbsent(req.getEmployeeId(), _ -> new IntArrayList()).add(req.getId());
+            pendingIds.set(req.getId(), "Pending".equals(req.getStatus()));
+            nextRequestId = Math.max(nextRequestId, req.getId() + 1);
+        }
+
+        private void applyStatus(int requestId, String status) {
+            LeaveRequest old = requests.get(requestId);
+            if (old == null) return;
+            requests.put(requestId, new LeaveRequest(requestId, old.getEmployeeId(), old.getLeaveType(),
+                    old.getStartDate(), old.getEndDate(), status));
+            pendingIds.set(requestId, "Pending".equals(status));
+        }
+
+        private void dropRequests(int[] ids) {
+            Map<String, BitSet> byEmployee = new HashMap<>();
+            for (int id : ids) {
+                LeaveRequest req = requests.get(id);
+                if (req == null) continue;
+                requests.remove(id);
+                pendingIds.clear(id);
+                byEmployee.computeIfAbsent(req.getEmployeeId(), _ -> new BitSet()).set(id);
+            }
+            for (Map.Entry<String, BitSet> entry : byEmployee.entrySet()) {
+                IntArrayList employeeIds = requestsByEmployee.get(entry.getKey());
+                if (employeeIds != null) employeeIds.removeAll(entry.getValue());
+            }
+        }
+
+        private void dropEmployee(String employeeId) {
+            employees.remove(employeeId);
+            archiveRemovedUpTo.put(employeeId, nextRequestId - 1);
+            archiveBlocksByEmployee.remove(employeeId);
+            archivedByEmployee.remove(employeeId);
+            IntArrayList ids = requestsByEmployee.remove(employeeId);
+            if (ids == null) return;
+            for (int i = 0; i < ids.size(); i++) {
+                requests.remove(ids.get(i));
+                pendingIds.clear(ids.get(i));
+            }
+        }
+
+        // A journal starts with the generation of the snapshot it follows. One left behind by a crash between the
+        // snapshot move and the journal reset carries an older generation, or none, and is already in the snapshot.
+        private void replayRecord(ByteBuffer record) {
+            boolean first = !journalReplayed;
+            journalReplayed = true;
+            if (record.get(0) == OP_JOURNAL_GENERATION) {
+                staleJournal = record.getLong(1) < journalGeneration;
+                return;
+            }
+            if (first) staleJournal = journalGeneration > 0;
+            if (!staleJournal) applyRecord(record);
+        }
+
+        private void markJournal() throws IOException {
+            journal.append(ByteBuffer.allocate(9).put(OP_JOURNAL_GENERATION).putLong(journalGeneration).array());
+            journal.force();
+        }
+
+        private void applyRecord(ByteBuffer record) {
+            byte op = record.get();
+            switch (op) {
+                case OP_PUT_EMPLOYEE: {
+                    EmployeeRecord emp = new EmployeeRecord(readString(record), readString(record), record.getInt(), record.get() == 1);
+                    employees.put(emp.id, emp);
+                    if (emp.balance != 0) appendEntry(emp.id, emp.balance, LedgerEntry.OPENING, null, 0L);
+                    break;
+                }
+                case OP_REMOVE_EMPLOYEE:
+                    dropEmployee(readString(record));
+                    break;
+                case OP_PUT_REQUEST: {
+                    LeaveRequest req = new LeaveRequest(record.getInt(), readString(record), readString(record),
+                            readString(record), readString(record), readString(record));
+                    if (requests.get(req.getId()) == null) indexRequest(req);
+                    break;
+                }
+                case OP_SET_STATUS:
+                    applyStatus(record.getInt(), readString(record));
+                    break;
+                case OP_SET_BALANCE: {
+                    EmployeeRecord emp = employees.get(readString(record));
+                    int balance = record.getInt();
+                    if (emp != null && emp.balance != balance) applyLedger(emp.id, balance - emp.balance, LedgerEntry.ADJUSTMENT, null, 0L);
+                    break;
+                }
+                case OP_ACCRUAL: {
+                    AccrualProgress progress = new AccrualProgress(readString(record), readString(record), record.getInt(), record.get() == 1);
+                    int count = record.getInt();
+                    String[] ids = new String[count];
+                    int[] balances = new int[count];
+                    for (int i = 0; i < count; i++) {
+                        ids[i] = readString(record);
+                        balances[i] = record.getInt();
+                    }
+                    long createdAt = record.remaining() >= 8 ? record.getLong() : 0L;
+                    for (int i = 0; i < count; i++) applyAccrual(progress.getPeriod(), ids[i], balances[i], createdAt);
+                    accrualRuns.put(progress.getPeriod(), progress);
+                    break;
+                }
+                case OP_LEDGER:
+                    applyLedger(readString(record), record.getInt(), readString(record), readString(record), record.getLong());
+                    break;
+                case OP_ARCHIVE: {
+                    int[] ids = new int[record.getInt()];
+                    for (int i = 0; i < ids.length; i++) ids[i] = record.getInt();
+                    dropRequests(ids);
+                    break;
+                }
+                default:
+                    throw new IllegalStateException("Unknown journal record type " + op);
+            }
+        }
+
+        private static byte[] putEmployeeRecord(EmployeeRecord emp) {
+            RecordBuilder b = new RecordBuilder(OP_PUT_EMPLOYEE);
+            b.putString(emp.id).putString(emp.name).putInt(emp.balance).putByte(emp.manager ? 1 : 0);
+            return b.toBytes();
+        }
+
+        private static byte[] removeEmployeeRecord(String employeeId) {
+            return new RecordBuilder(OP_REMOVE_EMPLOYEE).putString(employeeId).toBytes();
+        }
+
+        private static byte[] putRequestRecord(LeaveRequest req) {
+            return new RecordBuilder(OP_PUT_REQUEST).putInt(req.getId()).putString(req.getEmployeeId())
+                    .putString(req.getLeaveType()).putString(req.getStartDate()).putString(req.getEndDate())
+                    .putString(req.getStatus()).toBytes();
+        }
+
+        private static byte[] setStatusRecord(int requestId, String status) {
+            return new RecordBuilder(OP_SET_STATUS).putInt(requestId).putString(status).toBytes();
+        }
+
+        private static byte[] accrualRecord(AccrualProgress progress, List<EmployeeRecord> credited, long createdAt) {
+            RecordBuilder b = new RecordBuilder(OP_ACCRUAL).putString(progress.getPeriod()).putString(progress.getLastEmployeeId())
+                    .putInt(progress.getEmployeesCredited()).putByte(progress.isCompleted() ? 1 : 0).putInt(credited.size());
+            for (EmployeeRecord emp : credited) b.putString(emp.id).putInt(emp.balance);
+            return b.putLong(createdAt).toBytes();
+        }
+
+        private void applyAccrual(String period, String employeeId, int newBalance, long createdAt) {
+            EmployeeRecord emp = employees.get(employeeId);
+            if (emp == null || emp.balance == newBalance) return;
+            applyLedger(employeeId, newBalance - emp.balance, LedgerEntry.ACCRUAL, period, createdAt);
+        }
+
+        private static String readString(ByteBuffer buffer) {
+            int length = buffer.getInt();
+            if (length < 0) return null;
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private void loadSnapshot() throws IOException {
+            if (!Files.exists(snapshotPath)) return;
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotPath)))) {
+                int version = in.readInt() == SNAPSHOT_MAGIC ? in.readInt() : -1;
+                if (version < 1 || version > SNAPSHOT_VERSION) {
+                    throw new IOException("Unrecognised snapshot file " + snapshotPath);
+                }
+                nextRequestId = in.readInt();
+                int employeeCount = in.readInt();
+                for (int i = 0; i < employeeCount; i++) {
+                    EmployeeRecord emp = new EmployeeRecord(in.readUTF(), in.readUTF(), in.readInt(), in.readBoolean());
+                    employees.put(emp.id, emp);
+                }
+                int requestCount = in.readInt();
+                for (int i = 0; i < requestCount; i++) {
+                    indexRequest(new LeaveRequest(in.readInt(), in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF()));
+                }
+                if (version >= 2) {
+                    int accrualCount = in.readInt();
+                    for (int i = 0; i < accrualCount; i++) {
+                        String period = in.readUTF();
+                        String lastEmployeeId = in.readBoolean() ? in.readUTF() : null;
+                        accrualRuns.put(period, new AccrualProgress(period, lastEmployeeId, in.readInt(), in.readBoolean()));
+                    }
+                }
+                if (version < 3) {
+                    for (EmployeeRecord emp : employees.values()) {
+                        if (emp.balance != 0) appendEntry(emp.id, emp.balance, LedgerEntry.OPENING, null, 0L);
+                    }
+                    return;
+                }
+                nextEntryId = in.readLong();
+                int ledgerCount = in.readInt();
+                for (int i = 0; i < ledgerCount; i++) {
+                    String employeeId = in.readUTF();
+                    EmployeeLedger ledger = new EmployeeLedger();
+                    ledger.snapshotBalance = in.readInt();
+                    ledger.snapshotIndex = in.readInt();
+                    int entryCount = in.readInt();
+                    for (int j = 0; j < entryCount; j++) {
+                        long entryId = in.readLong();
+                        int delta = in.readInt();
+                        String reason = in.readUTF();
+                        String reference = in.readBoolean() ? in.readUTF() : null;
+                        ledger.entries.add(new LedgerEntry(entryId, employeeId, delta, reason, reference, in.readLong()));
+                    }
+                    ledgers.put(employeeId, ledger);
+                }
+                if (version >= 4) {
+                    int removedCount = in.readInt();
+                    for (int i = 0; i < removedCount; i++) archiveRemovedUpTo.put(in.readUTF(), in.readInt());
+                }
+                if (version >= 5) journalGeneration = in.readLong();
+            }
+        }
+
+        private void writeSnapshot(long generation) throws IOException {
+            Path temp = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16))) {
+                out.writeInt(SNAPSHOT_MAGIC);
+                out.writeInt(SNAPSHOT_VERSION);
+                out.writeInt(nextRequestId);
+                out.writeInt(employees.size());
+                for (EmployeeRecord emp : employees.values()) {
+                    out.writeUTF(emp.id);
+                    out.writeUTF(emp.name);
+                    out.writeInt(emp.balance);
+                    out.writeBoolean(emp.manager);
+                }
+                out.writeInt(requests.size());
+                for (IntArrayList ids : requestsByEmployee.values()) {
+                    for (int i = 0; i < ids.size(); i++) {
+                        LeaveRequest req = requests.get(ids.get(i));
+                        out.writeInt(req.getId());
+                        out.writeUTF(req.getEmployeeId());
+                        out.writeUTF(req.getLeaveType());
+                        out.writeUTF(req.getStartDate());
+                        out.writeUTF(req.getEndDate());
+                        out.writeUTF(req.getStatus());
+                    }
+                }
+                out.writeInt(accrualRuns.size());
+                for (AccrualProgress progress : accrualRuns.values()) {
+                    out.writeUTF(progress.getPeriod());
+                    out.writeBoolean(progress.getLastEmployeeId() != null);
+                    if (progress.getLastEmployeeId() != null) out.writeUTF(progress.getLastEmployeeId());
+                    out.writeInt(progress.getEmployeesCredited());
+                    out.writeBoolean(progress.isCompleted());
+                }
+                out.writeLong(nextEntryId);
+                out.writeInt(ledgers.size());
+                for (Map.Entry<String, EmployeeLedger> entry : ledgers.entrySet()) {
+                    EmployeeLedger ledger = entry.getValue();
+                    out.writeUTF(entry.getKey());
+                    out.writeInt(ledger.snapshotBalance);
+                    out.writeInt(ledger.snapshotIndex);
+                    out.writeInt(ledger.entries.size());
+                    for (LedgerEntry e : ledger.entries) {
+                        out.writeLong(e.getEntryId());
+                        out.writeInt(e.getDelta());
+                        out.writeUTF(e.getReason());
+                        out.writeBoolean(e.getReference() != null);
+                        if (e.getReference() != null) out.writeUTF(e.getReference());
+                        out.writeLong(e.getCreatedAt());
+                    }
+                }
+                out.writeInt(archiveRemovedUpTo.size());
+                for (Map.Entry<String, Integer> entry : archiveRemovedUpTo.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    out.writeInt(entry.getValue());
+                }
+                out.writeLong(generation);
+                out.flush();
+                channel.force(true);
+            }
+            Files.move(temp, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        private static class EmployeeRecord {
+            private final String id;
+            private final String name;
+            private int balance;
+            private final boolean manager;
+
+            EmployeeRecord(String id, String name, int balance, boolean manager) {
+                this.id = id;
+                this.name = name;
+                this.balance = balance;
+                this.manager = manager;
+            }
+
+            Employee toEmployee() {
+                return manager ? new Manager(id, name, balance) : new Employee(id, name, balance);
+            }
+        }
+
+        private static class EmployeeLedger {
+            private final List<LedgerEntry> entries = new ArrayList<>();
+            private int snapshotBalance;
+            private int snapshotIndex;
+
+            int balance() {
+                int balance = snapshotBalance;
+                for (int i = snapshotIndex; i < entries.size(); i++) balance += entries.get(i).getDelta();
+                return balance;
+            }
+
+            void snapshot() {
+                snapshotBalance = balance();
+                snapshotIndex = entries.size();
+            }
+        }
+
+        private static class RecordBuilder {
+            private ByteBuffer buffer = ByteBuffer.allocate(64);
+
+            RecordBuilder(byte op) {
+                buffer.put(op);
+            }
+
+            RecordBuilder putByte(int value) {
+                ensure(1);
+                buffer.put((byte) value);
+                return this;
+            }
+
+            RecordBuilder putInt(int value) {
+                ensure(4);
+                buffer.putInt(value);
+                return this;
+            }
+
+            RecordBuilder putLong(long value) {
+                ensure(8);
+                buffer.putLong(value);
+                return this;
+            }
+
+            RecordBuilder putString(String value) {
+                if (value == null) return putInt(-1);
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                putInt(bytes.length);
+                ensure(bytes.length);
+                buffer.put(bytes);
+                return this;
+            }
+
+            byte[] toBytes() {
+                return Arrays.copyOf(buffer.array(), buffer.position());
+            }
+
+            private void ensure(int extra) {
+                if (buffer.remaining() >= extra) return;
+                ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + extra));
+                buffer.flip();
+                grown.put(buffer);
+                buffer = grown;
+            }
+        }
+    }
+
+    static class MappedJournal {
+        private static final Logger LOG = Logger.getLogger("LeaveManagementApp.MappedJournal");
+        private static final long INITIAL_SIZE = 16L << 20;
+        private static final int HEADER_BYTES = 4;
+        private static final int TRAILER_BYTES = 4;
+
+        private final FileChannel channel;
+        private MappedByteBuffer buffer;
+        private long capacity;
+        private int position;
+
+        public MappedJournal(Path path) throws IOException {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            capacity = Math.max(channel.size(), INITIAL_SIZE);
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        }
+
+        public long replay(Consumer<ByteBuffer> handler) {
+            long records = 0;
+            position = 0;
+            CRC32 crc = new CRC32();
+            while (position + HEADER_BYTES <= capacity) {
+                int length = buffer.getInt(position);
+                if (length <= 0 || position + HEADER_BYTES + length + TRAILER_BYTES > capacity) break;
+                ByteBuffer payload = buffer.slice(position + HEADER_BYTES, length);
+                crc.reset();
+                crc.update(payload.duplicate());
+                if ((int) crc.getValue() != buffer.getInt(position + HEADER_BYTES + length)) break;
+                handler.accept(payload);
+                position += HEADER_BYTES + length + TRAILER_BYTES;
+                records++;
+            }
+            if (position + HEADER_BYTES <= capacity) buffer.putInt(position, 0);
+            return records;
+        }
+
+        public void append(byte[] record) throws IOException {
+            int needed = HEADER_BYTES + record.length + TRAILER_BYTES + HEADER_BYTES;
+            if (position + needed > capacity) grow(position + needed);
+            CRC32 crc = new CRC32();
+            crc.update(record);
+            buffer.put(position + HEADER_BYTES, record);
+            buffer.putInt(position + HEADER_BYTES + record.length, (int) crc.getValue());
+            buffer.putInt(position + HEADER_BYTES + record.length + TRAILER_BYTES, 0);
+            buffer.putInt(position, record.length);
+            position += HEADER_BYTES + record.length + TRAILER_BYTES;
+        }
+
+        public void force() {
+            buffer.force();
+        }
+
+        public void reset() {
+            buffer.putInt(0, 0);
+            position = 0;
+            buffer.force();
+        }
+
+        public void close() {
+            try {
+                buffer.force();
+                channel.close();
+            } catch (IOException e) {
+                LOG.log(Level.WARNING, "Could not close the embedded journal", e);
+            }
+        }
+
+        private void grow(long required) throws IOException {
+            long newCapacity = capacity;
+            while (newCapacity < required) newCapacity *= 2;
+            if (newCapacity > Integer.MAX_VALUE) throw new IOException("Journal exceeds maximum mapped size");
+            buffer.force();
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, newCapacity);
+            capacity = newCapacity;
+        }
+    }
+
+    static class IntObjectHashMap<V> {
+        private int[] keys = new int[16];
+        private Object[] values = new Object[16];
+        private int size;
+
+        @SuppressWarnings("unchecked")
+        public V get(int key) {
+            int mask = keys.length - 1;
+            for (int i = mix(key) & mask; values[i] != null; i = (i + 1) & mask) {
+                if (keys[i] == key) return (V) values[i];
+            }
+            return null;
+        }
+
+        public void put(int key, V value) {
+            if ((size + 1) * 4 > keys.length * 3) resize(keys.length * 2);
+            int mask = keys.length - 1;
+            int i = mix(key) & mask;
+            while (values[i] != null) {
+                if (keys[i] == key) {
+                    values[i] = value;
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            values[i] = value;
+            size++;
+        }
+
+        public void remove(int key) {
+            int mask = keys.length - 1;
+            int i = mix(key) & mask;
+            while (values[i] != null && keys[i] != key) i = (i + 1) & mask;
+            if (values[i] == null) return;
+            values[i] = null;
+            size--;
+            for (int j = (i + 1) & mask; values[j] != null; j = (j + 1) & mask) {
+                int home = mix(keys[j]) & mask;
+                boolean movable = i <= j ? (home <= i || home > j) : (home <= i && home > j);
+                if (movable) {
+                    keys[i] = keys[j];
+                    values[i] = values[j];
+                    values[j] = null;
+                    i = j;
+                }
+            }
+        }
+
+        public int size() { return size; }
+
+        private void resize(int capacity) {
+            int[] oldKeys = keys;
+            Object[] oldValues = values;
+            keys = new int[capacity];
+            values = new Object[capacity];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldValues[i] != null) {
+                    @SuppressWarnings("unchecked") V value = (V) oldValues[i];
+                    put(oldKeys[i], value);
+                }
+            }
+        }
+
+        private static int mix(int key) {
+            int h = key * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+
+    static class IntArrayList {
+        private int[] elements = new int[4];
+        private int size;
+
+        public void add(int value) {
+            if (size == elements.length) elements = Arrays.copyOf(elements, size * 2);
+            elements[size++] = value;
+        }
+
+        public int get(int index) { return elements[index]; }
+        public int size() { return size; }
+
+        public void removeAll(BitSet values) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (!values.get(elements[i])) elements[kept++] = elements[i];
+            }
+            size = kept;
+        }
+    }
+
+    enum ProcessOutcome { APPLIED, ALREADY_PROCESSED, NOT_FOUND, FAILED }
+
+    static class BulkProcessResult {
+        private final Map<Integer, ProcessOutcome> outcomes;
+        private final Map<String, Integer> debitsByEmployee;
+        private final List<LeaveRequest> applied;
+
+        BulkProcessResult(Map<Integer, ProcessOutcome> outcomes, Map<String, Integer> debitsByEmployee, List<LeaveRequest> applied) {
+            this.outcomes = outcomes;
+            this.debitsByEmployee = debitsByEmployee;
+            this.applied = applied;
+        }
+        public Map<Integer, ProcessOutcome> getOutcomes() { return outcomes; }
+        public Map<String, Integer> getDebitsByEmployee() { return debitsByEmployee; }
+        public List<LeaveRequest> getApplied() { return applied; }
+    }
+
+    static class LedgerEntry {
+        static final String OPENING = "OPENING";
+        static final String LEAVE_APPROVED = "LEAVE_APPROVED";
+        static final String ACCRUAL = "ACCRUAL";
+        static final String ADJUSTMENT = "ADJUSTMENT";
+        static final String CLOSED = "CLOSED";
+
+        private final long entryId;
+        private final String employeeId;
+        private final int delta;
+        private final String reason;
+        private final String reference;
+        private final long createdAt;
+
+        LedgerEntry(long entryId, String employeeId, int delta, String reason, String reference, long createdAt) {
+            this.entryId = entryId;
+            this.employeeId = employeeId;
+            this.delta = delta;
+            this.reason = reason;
+            this.reference = reference;
+            this.createdAt = createdAt;
+        }
+
+        public long getEntryId() { return entryId; }
+        public String getEmployeeId() { return employeeId; }
+        public int getDelta() { return delta; }
+        public String getReason() { return reason; }
+        public String getReference() { return reference; }
+        public long getCreatedAt() { return createdAt; }
+
+        @Override
+        public String toString() {
+            return String.format("#%d %s %+d %s%s", entryId, createdAt == 0 ? "-" : Instant.ofEpochMilli(createdAt).toString(),
+                    delta, reason, reference == null ? "" : " (" + reference + ")");
+        }
+    }
+
+    static class BalanceRebuildResult {
+        private final int employeesChecked;
+        private final int balancesCorrected;
+        private final int employeesWithoutLedger;
+
+        BalanceRebuildResult(int employeesChecked, int balancesCorrected, int employeesWithoutLedger) {
+            this.employeesChecked = employeesChecked;
+            this.balancesCorrected = balancesCorrected;
+            this.employeesWithoutLedger = employeesWithoutLedger;
+        }
+
+        public int getEmployeesChecked() { return employeesChecked; }
+        public int getBalancesCorrected() { return balancesCorrected; }
+        public int getEmployeesWithoutLedger() { return employeesWithoutLedger; }
+
+        BalanceRebuildResult plus(BalanceRebuildResult other) {
+            return new BalanceRebuildResult(employeesChecked + other.employeesChecked, balancesCorrected + other.balancesCorrected,
+                    employeesWithoutLedger + other.employeesWithoutLedger);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Checked %d employees, corrected %d balances, %d without ledger entries",
+                    employeesChecked, balancesCorrected, employeesWithoutLedger);
+        }
+    }
+
+    static class BalanceRebuilder {
+        private static final Logger LOG = Logger.getLogger("LeaveManagementApp.BalanceRebuilder");
+
+        private final LeaveSystem system;
+        private final int threads;
+
+        public BalanceRebuilder(LeaveSystem system, int threads) {
+            this.system = system;
+            this.threads = Math.max(1, threads);
+        }
+
+        public BalanceRebuildResult rebuild() throws InterruptedException {
+            List<String> ids = new ArrayList<>();
+            for (Employee emp : system.getAllEmployees()) ids.add(emp.getId());
+            Collections.sort(ids);
+            if (ids.isEmpty()) return new BalanceRebuildResult(0, 0, 0);
+            int partitions = Math.min(ids.size(), threads * 4);
+            ExecutorService workers = Executors.newFixedThreadPool(threads);
+            try {
+                List<Future<BalanceRebuildResult>> futures = new ArrayList<>(partitions);
+                String after = "";
+                for (int p = 1; p <= partitions; p++) {
+                    String upTo = ids.get((int) ((long) ids.size() * p / partitions) - 1);
+                    String from = after;
+                    futures.add(workers.submit(() -> system.rebuildBalances(from, upTo)));
+                    after = upTo;
+                }
+                BalanceRebuildResult total = new BalanceRebuildResult(0, 0, 0);
+                for (Future<BalanceRebuildResult> future : futures) {
+                    try {
+                        total = total.plus(future.get());
+                    } catch (ExecutionException e) {
+                        LOG.log(Level.SEVERE, "Balance rebuild partition failed", e.getCause());
+                        throw new IllegalStateException("Balance rebuild failed: " + e.getCause().getMessage(), e.getCause());
+                    }
+                }
+                return total;
+            } finally {
+                workers.shutdownNow();
+            }
+        }
+    }
+
+    enum AuditAction {
+        SUBMIT(1), APPROVE(2), REJECT(3), ADD_EMPLOYEE(4), REMOVE_EMPLOYEE(5);
+
+        private final int code;
+
+        AuditAction(int code) {
+            this.code = code;
+        }
+
+        int getCode() { return code; }
+
+        static AuditAction fromCode(int code) {
+            for (AuditAction action : values()) {
+                if (action.code == code) return action;
+            }
+            throw new IllegalArgumentException("Unknown audit action code " + code);
+        }
+
+        static AuditAction fromName(String name) {
+            try {
+                return valueOf(name.trim().toUpperCase().replace('-', '_'));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown audit action '" + name + "'. Use one of " + Arrays.toString(values()));
+            }
+        }
+    }
+
+    static class AuditEvent {
+        private final long sequence;
+        private final long occurredAt;
+        private final AuditAction action;
+        private final String actor;
+        private final String employeeId;
+        private final int requestId;
+        private final String detail;
+
+        public AuditEvent(AuditAction action, String actor, String employeeId, int requestId, String detail) {
+            this(0, System.currentTimeMillis(), action, actor, employeeId, requestId, detail);
+        }
+
+        AuditEvent(long sequence, long occurredAt, AuditAction action, String actor, String employeeId, int requestId, String detail) {
+            this.sequence = sequence;
+            this.occurredAt = occurredAt;
+            this.action = action;
+            this.actor = actor;
+            this.employeeId = employeeId;
+            this.requestId = requestId;
+            this.detail = detail;
+        }
+
+        public long getSequence() { return sequence; }
+        public long getOccurredAt() { return occurredAt; }
+        public AuditAction getAction() { return action; }
+        public String getActor() { return actor; }
+        public String getEmployeeId() { return employeeId; }
+        public int getRequestId() { return requestId; }
+        public String getDetail() { return detail; }
+
+        AuditEvent withSequence(long sequence) {
+            return new AuditEvent(sequence, occurredAt, action, actor, employeeId, requestId, detail);
+        }
+
+        byte[] encode() {
+            byte[] actorBytes = bytes(actor);
+            byte[] employeeBytes = bytes(employeeId);
+            byte[] detailBytes = bytes(detail);
+            ByteBuffer buffer = ByteBuffer.allocate(8 + 8 + 1 + 4 + 4 + 12 + length(actorBytes) + length(employeeBytes) + length(detailBytes));
+            buffer.putLong(sequence).putLong(occurredAt).put((byte) action.getCode());
+            putBytes(buffer, actorBytes);
+            putBytes(buffer, employeeBytes);
+            buffer.putInt(requestId);
+            putBytes(buffer, detailBytes);
+            return Arrays.copyOf(buffer.array(), buffer.position());
+        }
+
+        static AuditEvent decode(ByteBuffer buffer) {
+            long sequence = buffer.getLong();
+            long occurredAt = buffer.getLong();
+            AuditAction action = AuditAction.fromCode(buffer.get());
+            String actor = getString(buffer);
+            String employeeId = getString(buffer);
+            int requestId = buffer.getInt();
+            String detail = getString(buffer);
+            return new AuditEvent(sequence, occurredAt, action, actor, employeeId, requestId, detail);
+        }
+
+        private static byte[] bytes(String value) {
+            return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+        }
+
+        private static int length(byte[] bytes) {
+            return bytes == null ? 0 : bytes.length;
+        }
+
+        private static void putBytes(ByteBuffer buffer, byte[] bytes) {
+            if (bytes == null) {
+                buffer.putInt(-1);
+                return;
+            }
+            buffer.putInt(bytes.length).put(bytes);
+        }
+
+        private static String getString(ByteBuffer buffer) {
+            int length = buffer.getInt();
+            if (length < 0) return null;
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        Map<String, Object> toJson() {
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("sequence", sequence);
+            json.put("occurredAt", Instant.ofEpochMilli(occurredAt).toString());
+            json.put("action", action.name());
+            json.put("actor", actor);
+            json.put("employeeId", employeeId);
+            json.put("requestId", requestId == 0 ? null : requestId);
+            json.put("detail", detail);
+            return json;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("#%d %s %-15s by %-10s employee %-10s%s %s", sequence, Instant.ofEpochMilli(occurredAt), action,
+                    actor == null ? "-" : actor, employeeId == null ? "-" : employeeId,
+                    requestId == 0 ? "" : " request #" + requestId, detail == null ? "" : detail);
+        }
+    }
+
+    static class AuditQuery {
+        private final String employeeId;
+        private final String actor;
+        private final AuditAction action;
+        private final long fromMillis;
+        private final long toMillis;
+
+        public AuditQuery(String employeeId, String actor, String action, String fromDate, String toDate) {
+            this.employeeId = blankToNull(employeeId);
+            this.actor = blankToNull(actor);
+            this.action = blankToNull(action) == null ? null : AuditAction.fromName(action);
+            this.fromMillis = blankToNull(fromDate) == null ? Long.MIN_VALUE
+                    : LocalDate.parse(fromDate.trim()).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            this.toMillis = blankToNull(toDate) == null ? Long.MAX_VALUE
+                    : LocalDate.parse(toDate.trim()).plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        }
+
+        public boolean matches(AuditEvent event) {
+            if (employeeId != null && !employeeId.equals(event.getEmployeeId())) return false;
+            if (actor != null && !actor.equals(event.getActor())) return false;
+            if (action != null && action != event.getAction()) return false;
+            return event.getOccurredAt() >= fromMillis && event.getOccurredAt() < toMillis;
+        }
+    }
+
+    interface AuditEventSink {
+        void accept(AuditEvent event) throws IOException;
+    }
+
+    static class AuditJournal {
+        private static final Logger LOG = Logger.getLogger("LeaveManagementApp.AuditJournal");
+        private static final long SEGMENT_BYTES = Long.getLong("leave.audit.segmentBytes", 64L << 20);
+        private static final long SYNC_WAIT_MILLIS = Long.getLong("leave.audit.syncWaitMillis", 5_000L);
+        private static final String SEGMENT_PREFIX = "audit-";
+        private static final String SEGMENT_SUFFIX = ".log";
+        private static final int HEADER_BYTES = 4;
+        private static final int TRAILER_BYTES = 4;
+
+        private final Path directory;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition hasPending = lock.newCondition();
+        private final Condition synced = lock.newCondition();
+        private final Thread writer;
+        private List<AuditEvent> pending = new ArrayList<>();
+        private long nextSequence;
+        private long syncedSequence;
+        private long eventsLost;
+        private final TreeMap<Long, Long> failedBatches = new TreeMap<>();
+        private boolean closed;
+        private FileChannel segment;
+        private long segmentSize;
+
+        public AuditJournal(Path directory) throws IOException {
+            this.directory = directory;
+            Files.createDirectories(directory);
+            List<Path> segments = segments(directory);
+            long lastSequence = 0;
+            if (!segments.isEmpty()) {
+                Path last = segments.get(segments.size() - 1);
+                lastSequence = firstSequence(last) - 1;
+                segment = FileChannel.open(last, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                long validBytes = 0;
+                try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(last), 1 << 16))) {
+                    AuditEvent event;
+                    while ((event = readRecord(in)) != null) {
+                        lastSequence = event.getSequence();
+                        validBytes += HEADER_BYTES + event.encode().length + TRAILER_BYTES;
+                    }
+                }
+                if (validBytes < segment.size()) {
+                    LOG.warning("Truncating torn audit record at byte " + validBytes + " of " + last.getFileName());
+                    segment.truncate(validBytes);
+                }
+                segment.position(validBytes);
+                segmentSize = validBytes;
+            }
+            nextSequence = lastSequence + 1;
+            syncedSequence = lastSequence;
+            writer = new Thread(this::writeLoop, "leave-audit-writer");
+            writer.setDaemon(true);
+            writer.start();
+        }
+
+        static AuditJournal fromSystemProperties() {
+            if (!Boolean.parseBoolean(System.getProperty("leave.audit.enabled", "true"))) return null;
+            try {
+                return new AuditJournal(directoryFromSystemProperties());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not open the audit journal", e);
+            }
+        }
+
+        static Path directoryFromSystemProperties() {
+            return Paths.get(System.getProperty("leave.audit.dir", "audit"));
+        }
+
+        public Path getDirectory() { return directory; }
+
+        public long append(List<AuditEvent> events) {
+            if (events.isEmpty()) return syncedSequence;
+            lock.lock();
+            try {
+                if (closed) throw new IllegalStateException("Audit journal is closed");
+                long first = nextSequence;
+                for (AuditEvent event : events) pending.add(event.withSequence(nextSequence++));
+                long last = nextSequence - 1;
+                hasPending.signal();
+                long remaining = TimeUnit.MILLISECONDS.toNanos(SYNC_WAIT_MILLIS);
+                while (syncedSequence < last && remaining > 0) {
+                    remaining = synced.awaitNanos(remaining);
+                }
+                if (syncedSequence < last) LOG.warning("Audit event #" + last + " was not synced within " + SYNC_WAIT_MILLIS + " ms");
+                Map.Entry<Long, Long> failed = failedBatches.floorEntry(first);
+                if (failed != null && failed.getValue() >= first) {
+                    throw new UncheckedIOException(new IOException("Audit events #" + first + " to #" + last + " could not be written"));
+                }
+                return last;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return nextSequence - 1;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public long getEventsLost() {
+            lock.lock();
+            try {
+                return eventsLost;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public void close() {
+            lock.lock();
+            try {
+                closed = true;
+                hasPending.signal();
+            } finally {
+                lock.unlock();
+            }
+            try {
+                writer.join(SYNC_WAIT_MILLIS);
+                if (segment != null) segment.close();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException e) {
+                LOG.log(Level.WARNING, "Could not close audit segment", e);
+            }
+        }
+
+        private void writeLoop() {
+            while (true) {
+                List<AuditEvent> batch;
+                lock.lock();
+                try {
+                    while (pending.isEmpty() && !closed) hasPending.awaitUninterruptibly();
+                    if (pending.isEmpty()) return;
+                    batch = pending;
+                    pending = new ArrayList<>();
+                } finally {
+                    lock.unlock();
+                }
+                long last = batch.get(batch.size() - 1).getSequence();
+                boolean written = false;
+                try {
+                    write(batch);
+                    written = true;
+                } catch (IOException e) {
+                    LOG.log(Level.SEVERE, "Could not write " + batch.size() + " audit events ending at #" + last, e);
+                    abandonSegment();
+                }
+                lock.lock();
+                try {
+                    if (!written) {
+                        eventsLost += batch.size();
+                        failedBatches.put(batch.get(0).getSequence(), last);
+                        while (failedBatches.size() > 1_024) failedBatches.pollFirstEntry();
+                    }
+                    syncedSequence = last;
+                    synced.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+
+        private void write(List<AuditEvent> batch) throws IOException {
+            if (segment == null || segmentSize >= SEGMENT_BYTES) rotate(batch.get(0).getSequence());
+            List<byte[]> payloads = new ArrayList<>(batch.size());
+            int total = 0;
+            for (AuditEvent event : batch) {
+                byte[] payload = event.encode();
+                payloads.add(payload);
+                total += HEADER_BYTES + payload.length + TRAILER_BYTES;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(total);
+            CRC32 crc = new CRC32();
+            for (byte[] payload : payloads) {
+                crc.reset();
+                crc.update(payload);
+                buffer.putInt(payload.length).put(payload).putInt((int) crc.getValue());
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) segment.write(buffer);
+            segment.force(false);
+            segmentSize += total;
+        }
+
+        // A failed write can leave a torn frame at the end of the segment, and readers stop at the first one.
+        // Cut it off if possible and start a new segment for the next batch either way.
+        private void abandonSegment() {
+            if (segment == null) return;
+            try {
+                segment.truncate(segmentSize);
+            } catch (IOException e) {
+                LOG.log(Level.WARNING, "Could not truncate the failed audit segment", e);
+            }
+            try {
+                segment.close();
+            } catch (IOException e) {
+                LOG.log(Level.WARNING, "Could not close the failed audit segment", e);
+            }
+            segment = null;
+        }
+
+        private void rotate(long firstSequence) throws IOException {
+            if (segment != null) {
+                segment.close();
+                segment = null;
+            }
+            Path path = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX));
+            segment = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            segmentSize = 0;
+        }
+
+        public static long read(Path directory, long afterSequence, AuditEventSink sink) throws IOException {
+            List<Path> segments = segments(directory);
+            long events = 0;
+            for (int i = 0; i < segments.size(); i++) {
+                if (i + 1 < segments.size() && firstSequence(segments.get(i + 1)) <= afterSequence + 1) continue;
+                try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(segments.get(i)), 1 << 16))) {
+                    AuditEvent event;
+                    while ((event = readRecord(in)) != null) {
+                        if (event.getSequence() <= afterSequence) continue;
+                        sink.accept(event);
+                        events++;
+                    }
+                }
+            }
+            return events;
+        }
+
+        private static AuditEvent readRecord(DataInputStream in) throws IOException {
+            try {
+                int length = in.readInt();
+                if (length <= 0 || length > (1 << 20)) return null;
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+                if ((int) crc.getValue() != in.readInt()) return null;
+                return AuditEvent.decode(ByteBuffer.wrap(payload));
+            } catch (EOFException e) {
+                return null;
+            }
+        }
+
+        private static List<Path> segments(Path directory) throws IOException {
+            List<Path> segments = new ArrayList<>();
+            if (!Files.isDirectory(directory)) return segments;
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+                for (Path path : stream) segments.add(path);
+            }
+            segments.sort(Comparator.comparing(path -> path.getFileName().toString()));
+            return segments;
+        }
+
+        private static long firstSequence(Path segment) {
+            String name = segment.getFileName().toString();
+            return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        }
+    }
+
+    static class AuditShipper {
+        private static final Logger LOG = Logger.getLogger("LeaveManagementApp.AuditShipper");
+        private static final int BATCH_SIZE = Integer.getInteger("leave.audit.shipBatchSize", 500);
+        private static final long INTERVAL_SECONDS = Long.getLong("leave.audit.shipIntervalSeconds", 5L);
+
+        private final Path directory;
+        private final DatabaseManager database;
+        private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "leave-audit-shipper");
+            t.setDaemon(true);
+            return t;
+        });
+        private long shippedSequence = -1;
+
+        public AuditShipper(Path directory, DatabaseManager database) {
+            this.directory = directory;
+            this.database = database;
+        }
+
+        public void start() {
+            scheduler.scheduleWithFixedDelay(() -> {
+                try {
+                    ship();
+                } catch (IOException | RuntimeException e) {
+                    LOG.log(Level.WARNING, "Shipping audit events failed; retrying in " + INTERVAL_SECONDS + "s", e);
+                    shippedSequence = -1;
+                }
+            }, INTERVAL_SECONDS, INTERVAL_SECONDS, TimeUnit.SECONDS);
+        }
+
+        public void stop() {
+            scheduler.shutdown();
+            try {
+                if (scheduler.awaitTermination(INTERVAL_SECONDS, TimeUnit.SECONDS)) ship();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException | RuntimeException e) {
+                LOG.log(Level.WARNING, "Final audit shipment failed; events stay in the local journal", e);
+            }
+        }
+
+        public long ship() throws IOException {
+            if (shippedSequence < 0) {
+                shippedSequence = database.getLastShippedAuditSequence();
+                if (shippedSequence < 0) throw new IOException("Could not read the last shipped audit sequence");
+            }
+            List<AuditEvent> batch = new ArrayList<>(BATCH_SIZE);
+            long shipped = AuditJournal.read(directory, shippedSequence, event -> {
+                batch.add(event);
+                if (batch.size() == BATCH_SIZE) flush(batch);
+            });
+            flush(batch);
+            return shipped;
+        }
+
+        private void flush(List<AuditEvent> batch) throws IOException {
+            if (batch.isEmpty()) return;
+            if (!database.shipAuditEvents(batch)) throw new IOException("Could not ship " + batch.size() + " audit events");
+            shippedSequence = batch.get(batch.size() - 1).getSequence();
+            batch.clear();
+        }
+    }
+
+    static class QueuedSubmission {
+        private final long sequence;
+        private final String submissionId;
+        private final LeaveRequest request;
+        private final long acceptedAt;
+        private boolean inFlight;
+        private boolean failed;
+        private int attempts;
+
+        QueuedSubmission(long sequence, String submissionId, LeaveRequest request, long acceptedAt) {
+            this.sequence = sequence;
+            this.submissionId = submissionId;
+            this.request = request;
+            this.acceptedAt = acceptedAt;
+        }
+
+        public long getSequence() { return sequence; }
+        public String getSubmissionId() { return submissionId; }
+        public LeaveRequest getRequest() { return request; }
+        public long getAcceptedAt() { return acceptedAt; }
+    }
+
+    interface SubmissionWriter {
+        Map<String, Integer> write(List<QueuedSubmission> batch);
+    }
+
+    interface SubmissionListener {
+        void saved(List<QueuedSubmission> batch, Map<String, Integer> requestIds);
+    }
+
+    static class SubmissionQueue {
+        private static final Logger LOG = Logger.getLogger("LeaveManagementApp.SubmissionQueue");
+        private static final int BATCH_SIZE = Integer.getInteger("leave.queue.batchSize", 500);
+        private static final long RETRY_MILLIS = Long.getLong("leave.queue.retryMillis", 500L);
+        private static final long MAX_RETRY_MILLIS = Long.getLong("leave.queue.maxRetryMillis", 30_000L);
+        private static final long COMPACT_BYTES = Long.getLong("leave.queue.compactBytes", 4L << 20);
+        private static final byte OP_ENQUEUE = 1;
+        private static final byte OP_DONE = 2;
+        static final String QUEUED = "Queued";
+        static final String SENDING = "Sending";
+        static final String FAILED = "Failed";
+
+        private final Path logPath;
+        private final Path rejectedPath;
+        private final SubmissionWriter writer;
+        private final SubmissionListener listener;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition work = lock.newCondition();
+        private final ReentrantLock syncLock = new ReentrantLock();
+        private final LinkedHashMap<Long, QueuedSubmission> queued = new LinkedHashMap<>();
+        private final Map<String, List<QueuedSubmission>> byEmployee = new HashMap<>();
+        private final Thread flusher;
+        private FileChannel channel;
+        private long written;
+        private long synced;
+        private int appending;
+        private long nextSequence = 1;
+        private boolean closed;
+
+        public SubmissionQueue(Path directory, SubmissionWriter writer, SubmissionListener listener) throws IOException {
+            this.writer = writer;
+            this.listener = listener;
+            Files.createDirectories(directory);
+            logPath = directory.resolve("submissions.log");
+            rejectedPath = directory.resolve("rejected.csv");
+            channel = FileChannel.open(logPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            written = replay();
+            if (written < channel.size()) {
+                LOG.warning("Truncating torn submission record at byte " + written + " of " + logPath);
+                channel.truncate(written);
+            }
+            channel.position(written);
+            synced = written;
+            if (!queued.isEmpty()) LOG.info(queued.size() + " queued leave requests will be sent to the database");
+            flusher = new Thread(this::flushLoop, "leave-submission-flusher");
+            flusher.setDaemon(true);
+            flusher.start();
+        }
+
+        public QueuedSubmission enqueue(LeaveRequest request) {
+            QueuedSubmission submission;
+            long end;
+            lock.lock();
+            try {
+                if (closed) throw new IllegalStateException("The submission queue is closed");
+                // Checked here, before the request is durably accepted: the database would refuse or truncate it later.
+                if (request.getEmployeeId().length() > 50) throw new IllegalArgumentException("Employee ID is longer than 50 characters.");
+                if (request.getLeaveType().length() > 50) throw new IllegalArgumentException("Leave type is longer than 50 characters.");
+                submission = new QueuedSubmission(nextSequence++, UUID.randomUUID().toString(), request, System.currentTimeMillis());
+                end = append(List.of(enqueueRecord(submission)));
+                appending++;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not queue the leave request", e);
+            } finally {
+                lock.unlock();
+            }
+            try {
+                sync(end);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not queue the leave request", e);
+            } finally {
+                lock.lock();
+                try {
+                    appending--;
+                } finally {
+                    lock.unlock();
+                }
+            }
+            lock.lock();
+            try {
+                queued.put(submission.sequence, submission);
+                byEmployee.computeIfAbsent(request.getEmployeeId(), _ -> new ArrayList<>()).add(submission);
+                work.signal();
+            } finally {
+                lock.unlock();
+            }
+            return submission;
+        }
+
+        public List<LeaveRequest> getQueued(String employeeId) {
+            lock.lock();
+            try {
+                List<LeaveRequest> result = new ArrayList<>();
+                for (QueuedSubmission submission : byEmployee.getOrDefault(employeeId, List.of())) {
+                    LeaveRequest req = submission.request;
+                    result.add(new LeaveRequest(0, req.getEmployeeId(), req.getLeaveType(), req.getStartDate(), req.getEndDate(),
+                            submission.failed ? FAILED : submission.inFlight ? SENDING : QUEUED));
+                }
+                return result;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public LeaveRequest findOverlap(LeaveRequest candidate) {
+            lock.lock();
+            try {
+                for (QueuedSubmission submission : byEmployee.getOrDefault(candidate.getEmployeeId(), List.of())) {
+                    LeaveRequest req = submission.request;
+                    if (submission.failed) continue;
+                    if (req.getStartDate().compareTo(candidate.getEndDate()) <= 0
+                            && req.getEndDate().compareTo(candidate.getStartDate()) >= 0) {
+                        return req;
+                    }
+                }
+                return null;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public int getPendingDays(String employeeId) {
+            lock.lock();
+            try {
+                int days = 0;
+                for (QueuedSubmission submission : byEmployee.getOrDefault(employeeId, List.of())) {
+                    if (!submission.failed) days += submission.request.getDays();
+                }
+                return days;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public int size() {
+            lock.lock();
+            try {
+                return queued.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public void close() {
+            lock.lock();
+            try {
+                closed = true;
+                work.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            try {
+                flusher.join(MAX_RETRY_MILLIS);
+                channel.close();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException e) {
+                LOG.log(Level.WARNING, "Could not close the submission queue", e);
+            }
+        }
+
+        private void flushLoop() {
+            long backoff = RETRY_MILLIS;
+            while (true) {
+                List<QueuedSubmission> batch = new ArrayList<>();
+                lock.lock();
+                try {
+                    while (queued.isEmpty() && !closed) work.awaitUninterruptibly();
+                    if (closed) return;
+                    for (QueuedSubmission submission : queued.values()) {
+                        submission.inFlight = true;
+                        batch.add(submission);
+                        if (batch.size() == BATCH_SIZE) break;
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                Map<String, Integer> requestIds = null;
+                try {
+                    requestIds = writer.write(batch);
+                } catch (RuntimeException e) {
+                    LOG.log(Level.WARNING, "Sending queued leave requests failed", e);
+                }
+                if (requestIds == null) {
+                    LOG.warning("Could not save " + batch.size() + " queued leave requests; retrying in " + backoff + " ms");
+                    if (!backOff(batch, backoff)) return;
+                    backoff = Math.min(backoff * 2, MAX_RETRY_MILLIS);
+                    continue;
+                }
+                backoff = RETRY_MILLIS;
+                try {
+                    listener.saved(batch, requestIds);
+                } catch (RuntimeException e) {
+                    LOG.log(Level.WARNING, "Could not update caches for saved leave requests", e);
+                }
+                try {
+                    acknowledge(batch, requestIds);
+                } catch (IOException e) {
+                    LOG.log(Level.SEVERE, "Could not record saved leave requests; they will be re-sent and deduplicated", e);
+                }
+            }
+        }
+
+        private boolean backOff(List<QueuedSubmission> batch, long millis) {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+            lock.lock();
+            try {
+                for (QueuedSubmission submission : batch) {
+                    submission.inFlight = false;
+                    submission.attempts++;
+                }
+                for (long left; !closed && (left = deadline - System.nanoTime()) > 0; ) work.awaitNanos(left);
+                return !closed;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void acknowledge(List<QueuedSubmission> batch, Map<String, Integer> requestIds) throws IOException {
+            List<byte[]> records = new ArrayList<>(batch.size());
+            List<QueuedSubmission> rejected = new ArrayList<>();
+            for (QueuedSubmission submission : batch) {
+                int requestId = requestIds.getOrDefault(submission.submissionId, 0);
+                if (requestId <= 0) rejected.add(submission);
+                records.add(ByteBuffer.allocate(13).put(OP_DONE).putLong(submission.sequence).putInt(requestId).array());
+            }
+            if (!rejected.isEmpty()) {
+                writeRejected(rejected);
+                LOG.severe("The database rejected " + rejected.size() + " queued leave request(s); they were written to " + rejectedPath);
+            }
+            long end;
+            lock.lock();
+            try {
+                end = append(records);
+                for (QueuedSubmission submission : batch) {
+                    queued.remove(submission.sequence);
+                    if (rejected.contains(submission)) {
+                        submission.failed = true;
+                        submission.inFlight = false;
+                        continue;
+                    }
+                    List<QueuedSubmission> pending = byEmployee.get(submission.request.getEmployeeId());
+                    if (pending != null && pending.remove(submission) && pending.isEmpty()) {
+                        byEmployee.remove(submission.request.getEmployeeId());
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+            sync(end);
+            if (end > COMPACT_BYTES) compact();
+        }
+
+        private void writeRejected(List<QueuedSubmission> rejected) throws IOException {
+            StringBuilder lines = new StringBuilder();
+            if (!Files.exists(rejectedPath)) {
+                lines.append("submission_id,employee_id,leave_type,start_date,end_date,accepted_at,rejected_at,attempts\n");
+            }
+            String rejectedAt = Instant.now().toString();
+            for (QueuedSubmission submission : rejected) {
+                LeaveRequest req = submission.request;
+                lines.append(submission.submissionId).append(',');
+                LeaveExporter.appendCsv(lines, req.getEmployeeId()).append(',');
+                LeaveExporter.appendCsv(lines, req.getLeaveType()).append(',');
+                lines.append(req.getStartDate()).append(',').append(req.getEndDate()).append(',');
+                lines.append(Instant.ofEpochMilli(submission.acceptedAt)).append(',').append(rejectedAt).append(',');
+                lines.append(submission.attempts + 1).append('\n');
+            }
+            try (FileChannel out = FileChannel.open(rejectedPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND)) {
+                ByteBuffer buffer = StandardCharsets.UTF_8.encode(lines.toString());
+                while (buffer.hasRemaining()) out.write(buffer);
+                out.force(false);
+            }
+        }
+
+        private long append(List<byte[]> records) throws IOException {
+            ByteBuffer buffer = frame(records);
+            written += buffer.remaining();
+            while (buffer.hasRemaining()) channel.write(buffer);
+            return written;
+        }
+
+        private static ByteBuffer frame(List<byte[]> records) {
+            int total = 0;
+            for (byte[] record : records) total += 4 + record.length + 4;
+            ByteBuffer buffer = ByteBuffer.allocate(total);
+            CRC32 crc = new CRC32();
+            for (byte[] record : records) {
+                crc.reset();
+                crc.update(record);
+                buffer.putInt(record.length).put(record).putInt((int) crc.getValue());
+            }
+            return buffer.flip();
+        }
+
+        private void sync(long upTo) throws IOException {
+            syncLock.lock();
+            try {
+                if (synced >= upTo) return;
+                long target;
+                lock.lock();
+                try {
+                    target = written;
+                } finally {
+                    lock.unlock();
+                }
+                channel.force(false);
+                synced = target;
+            } finally {
+                syncLock.unlock();
+            }
+        }
+
+        private void compact() throws IOException {
+            syncLock.lock();
+            lock.lock();
+            try {
+                if (appending > 0) return;
+                Path temp = logPath.resolveSibling(logPath.getFileName() + ".tmp");
+                List<byte[]> records = new ArrayList<>(queued.size());
+                for (QueuedSubmission submission : queued.values()) records.add(enqueueRecord(submission));
+                ByteBuffer live = frame(records);
+                try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING)) {
+                    while (live.hasRemaining()) out.write(live);
+                    out.force(true);
+                }
+                Files.move(temp, logPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                channel.close();
+                channel = FileChannel.open(logPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                written = channel.size();
+                channel.position(written);
+                synced = written;
+            } finally {
+                lock.unlock();
+                syncLock.unlock();
+            }
+        }
+
+        private long replay() throws IOException {
+            long valid = 0;
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(logPath), 1 << 16))) {
+                CRC32 crc = new CRC32();
+                while (true) {
+                    byte[] record;
+                    try {
+                        int length = in.readInt();
+                        if (length <= 0 || length > (1 << 20)) break;
+                        record = new byte[length];
+                        in.readFully(record);
+                        crc.reset();
+                        crc.update(record);
+                        if ((int) crc.getValue() != in.readInt()) break;
+                    } catch (EOFException e) {
+                        break;
+                    }
+                    applyRecord(ByteBuffer.wrap(record));
+                    valid += 4 + record.length + 4;
+                }
+            }
+            return valid;
+        }
+
+        private void applyRecord(ByteBuffer record) {
+            byte op = record.get();
+            long sequence = record.getLong();
+            nextSequence = Math.max(nextSequence, sequence + 1);
+            if (op == OP_DONE) {
+                QueuedSubmission done = queued.remove(sequence);
+                if (done != null) {
+                    List<QueuedSubmission> pending = byEmployee.get(done.request.getEmployeeId());
+                    pending.remove(done);
+                    if (pending.isEmpty()) byEmployee.remove(done.request.getEmployeeId());
+                }
+                return;
+            }
+            String submissionId = readString(record);
+            long acceptedAt = record.getLong();
+            LeaveRequest request = new LeaveRequest(readString(record), readString(record), readString(record), readString(record));
+            QueuedSubmission submission = new QueuedSubmission(sequence, submissionId, request, acceptedAt);
+            queued.put(sequence, submission);
+            byEmployee.computeIfAbsent(request.getEmployeeId(), _ -> new ArrayList<>()).add(submission);
+        }
+
+        private static byte[] enqueueRecord(QueuedSubmission submission) {
+            LeaveRequest req = submission.request;
+            byte[][] strings = {
+                    submission.submissionId.getBytes(StandardCharsets.UTF_8),
+                    req.getEmployeeId().getBytes(StandardCharsets.UTF_8),
+                    req.getLeaveType().getBytes(StandardCharsets.UTF_8),
+                    req.getStartDate().getBytes(StandardCharsets.UTF_8),
+                    req.getEndDate().getBytes(StandardCharsets.UTF_8)
+            };
+            int size = 1 + 8 + 8;
+            for (byte[] s : strings) size += 4 + s.length;
+            ByteBuffer buffer = ByteBuffer.allocate(size).put(OP_ENQUEUE).putLong(submission.sequence);
+            buffer.putInt(strings[0].length).put(strings[0]).putLong(submission.acceptedAt);
+            for (int i = 1; i < strings.length; i++) buffer.putInt(strings[i].length).put(strings[i]);
+            return buffer.array();
+        }
+
+        private static String readString(ByteBuffer buffer) {
+            byte[] bytes = new byte[buffer.getInt()];
+            buffer.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    static class AccrualPolicy {
+        private final int daysPerMonth;
+        private final int maxBalance;
+        private final int carryOverMax;
+        private final int carryOverMonth;
+
+        public AccrualPolicy(int daysPerMonth, int maxBalance, int carryOverMax, int carryOverMonth) {
+            this.daysPerMonth = daysPerMonth;
+            this.maxBalance = maxBalance;
+            this.carryOverMax = carryOverMax;
+            this.carryOverMonth = carryOverMonth;
+        }
+
+        public static AccrualPolicy fromSystemProperties() {
+            return new AccrualPolicy(Integer.getInteger("leave.accrual.daysPerMonth", 2),
+                    Integer.getInteger("leave.accrual.maxBalance", 30),
+                    Integer.getInteger("leave.accrual.carryOverMax", 10),
+                    Integer.getInteger("leave.accrual.carryOverMonth", 1));
+        }
+
+        public int getDaysPerMonth() { return daysPerMonth; }
+        public int getMaxBalance() { return maxBalance; }
+
+        public int carryOverCap(YearMonth period) {
+            return period.getMonthValue() == carryOverMonth ? carryOverMax : Integer.MAX_VALUE;
+        }
+
+        public int apply(int balance, YearMonth period) {
+            int carried = Math.min(balance, carryOverCap(period));
+            return Math.max(carried, Math.min(maxBalance, carried + daysPerMonth));
+        }
+
+        @Override
+        public String toString() {
+            return String.format("AccrualPolicy[+%d/month, cap %d, carry-over %d in month %d]",
+                    daysPerMonth, maxBalance, carryOverMax, carryOverMonth);
+        }
+    }
+
+    static class AccrualProgress {
+        private final String period;
+        private final String lastEmployeeId;
+        private final int employeesCredited;
+        private final boolean completed;
+
+        AccrualProgress(String period, String lastEmployeeId, int employeesCredited, boolean completed) {
+            this.period = period;
+            this.lastEmployeeId = lastEmployeeId;
+            this.employeesCredited = employeesCredited;
+            this.completed = completed;
+        }
+
+        public String getPeriod() { return period; }
+        public String getLastEmployeeId() { return lastEmployeeId; }
+        public int getEmployeesCredited() { return employeesCredited; }
+        public boolean isCompleted() { return completed; }
+
+        @Override
+        public String toString() {
+            return String.format("Accrual %s: %d employees credited%s", period, employeesCredited,
+                    completed ? ", complete" : lastEmployeeId == null ? ", not started" : ", in progress after '" + lastEmployeeId + "'");
+        }
+    }
+
+    static class AccrualScheduler {
+        private static final Logger LOG = Logger.getLogger("LeaveManagementApp.AccrualScheduler");
+        private static final int CHUNK_SIZE = Integer.getInteger("leave.accrual.chunkSize", 1_000);
+        private static final long CHECK_INTERVAL_MINUTES = Long.getLong("leave.accrual.checkIntervalMinutes", 60L);
+
+        private final LeaveSystem system;
+        private final AccrualPolicy policy;
+        private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "leave-accrual");
+            t.setDaemon(true);
+            return t;
+        });
+
+        public AccrualScheduler(LeaveSystem system, AccrualPolicy policy) {
+            this.system = system;
+            this.policy = policy;
+        }
+
+        public void start() {
+            scheduler.scheduleWithFixedDelay(() -> {
+                try {
+                    run(YearMonth.now());
+                } catch (RuntimeException e) {
+                    LOG.log(Level.SEVERE, "Leave accrual failed; it will resume on the next check", e);
+                }
+            }, 0, CHECK_INTERVAL_MINUTES, TimeUnit.MINUTES);
+        }
+
+        public void stop() {
+            scheduler.shutdownNow();
+        }
+
+        public AccrualProgress run(YearMonth period) {
+            AccrualProgress progress = system.beginAccrual(period.toString());
+            if (progress == null) throw new IllegalStateException("Could not start accrual run for " + period);
+            if (progress.isCompleted()) return progress;
+            LOG.info("Running leave accrual for " + period + " with " + policy
+                    + (progress.getLastEmployeeId() != null ? ", resuming after '" + progress.getLastEmployeeId() + "'" : ""));
+            while (!progress.isCompleted()) {
+                AccrualProgress next = system.accrueNextChunk(progress, policy, CHUNK_SIZE);
+                if (next == null) throw new IllegalStateException("Accrual for " + period + " stopped after '" + progress.getLastEmployeeId() + "'");
+                progress = next;
+            }
+            LOG.info(progress.toString());
+            return progress;
+        }
+    }
+
+    static class LeaveArchiver {
+        private static final Logger LOG = Logger.getLogger("LeaveManagementApp.LeaveArchiver");
+        private static final int CHUNK_SIZE = Integer.getInteger("leave.archive.chunkSize", 1_000);
+        private static final int RETENTION_DAYS = Integer.getInteger("leave.archive.retentionDays", 365);
+        private static final long INTERVAL_HOURS = Long.getLong("leave.archive.intervalHours", 24L);
+
+        private final LeaveSystem system;
+        private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "leave-archiver");
+            t.setDaemon(true);
+            return t;
+        });
+
+        public LeaveArchiver(LeaveSystem system) {
+            this.system = system;
+        }
+
+        public static LocalDate defaultCutoff() {
+            return LocalDate.now().minusDays(RETENTION_DAYS);
+        }
+
+        public void start() {
+            scheduler.scheduleWithFixedDelay(() -> {
+                try {
+                    run(defaultCutoff());
+                } catch (RuntimeException e) {
+                    LOG.log(Level.SEVERE, "Archiving leave requests failed; it will resume on the next run", e);
+                }
+            }, INTERVAL_HOURS, INTERVAL_HOURS, TimeUnit.HOURS);
+        }
+
+        public void stop() {
+            scheduler.shutdownNow();
+        }
+
+        public int run(LocalDate cutoff) {
+            int afterRequestId = 0;
+            int archived = 0;
+            while (true) {
+                List<LeaveRequest> chunk = system.archiveRequests(cutoff, afterRequestId, CHUNK_SIZE);
+                if (chunk == null) throw new IllegalStateException("Archiving stopped after request #" + afterRequestId);
+                if (chunk.isEmpty()) break;
+                archived += chunk.size();
+                afterRequestId = chunk.get(chunk.size() - 1).getId();
+            }
+            LOG.info("Archived " + archived + " processed leave requests that ended before " + cutoff);
+            return archived;
+        }
+    }
+
+    static class AbsenceCalendar {
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private final int maxAbsentPerDay;
+        private long baseDay;
+        private int[] approved = new int[0];
+        private int[] pending = new int[0];
+        private boolean loaded;
+
+        AbsenceCalendar(int maxAbsentPerDay) {
+            this.maxAbsentPerDay = maxAbsentPerDay;
+        }
+
+        public int getMaxAbsentPerDay() { return maxAbsentPerDay; }
+
+        void ensureLoaded(LeaveStore store) {
+            lock.readLock().lock();
+            try {
+                if (loaded) return;
+            } finally {
+                lock.readLock().unlock();
+            }
+            lock.writeLock().lock();
+            try {
+                if (loaded) return;
+                store.streamLeaveRequests(new LeaveRequestFilter(null, null, null, null), req -> count(req, req.getStatus(), 1));
+                loaded = true;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void added(LeaveRequest req) {
+            update(req, null, req.getStatus());
+        }
+
+        void removed(LeaveRequest req) {
+            update(req, req.getStatus(), null);
+        }
+
+        void statusChanged(LeaveRequest req, String newStatus) {
+            update(req, req.getStatus(), newStatus);
+        }
+
+        void invalidate() {
+            lock.writeLock().lock();
+            try {
+                loaded = false;
+                approved = new int[0];
+                pending = new int[0];
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        private void update(LeaveRequest req, String oldStatus, String newStatus) {
+            lock.writeLock().lock();
+            try {
+                if (!loaded) return;
+                if (oldStatus != null) count(req, oldStatus, -1);
+                if (newStatus != null) count(req, newStatus, 1);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        private void count(LeaveRequest req, String status, int delta) {
+            int[] counters;
+            if ("Approved".equals(status)) {
+                counters = approved;
+            } else if ("Pending".equals(status)) {
+                counters = pending;
+            } else {
+                return;
+            }
+            long start = LocalDate.parse(req.getStartDate()).toEpochDay();
+            long end = LocalDate.parse(req.getEndDate()).toEpochDay();
+            if (ensureCapacity(start, end)) counters = "Approved".equals(status) ? approved : pending;
+            for (long day = start; day <= end; day++) counters[(int) (day - baseDay)] += delta;
+        }
+
+        private boolean ensureCapacity(long start, long end) {
+            if (approved.length > 0 && start >= baseDay && end < baseDay + approved.length) return false;
+            long newBase = approved.length == 0 ? start - 366 : Math.min(baseDay, start - 366);
+            long newEnd = approved.length == 0 ? end + 366 : Math.max(baseDay + approved.length - 1, end + 366);
+            int size = Math.toIntExact(newEnd - newBase + 1);
+            int offset = approved.length == 0 ? 0 : (int) (baseDay - newBase);
+            int[] grownApproved = new int[size];
+            int[] grownPending = new int[size];
+            System.arraycopy(approved, 0, grownApproved, offset, approved.length);
+            System.arraycopy(pending, 0, grownPending, offset, pending.length);
+            approved = grownApproved;
+            pending = grownPending;
+            baseDay = newBase;
+            return true;
+        }
+
+        List<DayCoverage> coverage(LocalDate from, LocalDate to) {
+            lock.readLock().lock();
+            try {
+                List<DayCoverage> days = new ArrayList<>();
+                for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+                    long index = date.toEpochDay() - baseDay;
+                    boolean inRange = index >= 0 && index < approved.length;
+                    days.add(new DayCoverage(date, inRange ? approved[(int) index] : 0, inRange ? pending[(int) index] : 0));
+                }
+                return days;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        List<DayCoverage> overLimitIfApproved(Collection<LeaveRequest> requests) {
+            Map<Long, Integer> extra = new TreeMap<>();
+            for (LeaveRequest req : requests) {
+                if (!"Pending".equals(req.getStatus())) continue;
+                long end = LocalDate.parse(req.getEndDate()).toEpochDay();
+                for (long day = LocalDate.parse(req.getStartDate()).toEpochDay(); day <= end; day++) extra.merge(day, 1, Integer::sum);
+            }
+            List<DayCoverage> overLimit = new ArrayList<>();
+            lock.readLock().lock();
+            try {
+                for (Map.Entry<Long, Integer> entry : extra.entrySet()) {
+                    long index = entry.getKey() - baseDay;
+                    boolean inRange = index >= 0 && index < approved.length;
+                    int approvedAfter = (inRange ? approved[(int) index] : 0) + entry.getValue();
+                    if (approvedAfter > maxAbsentPerDay) {
+                        int stillPending = (inRange ? pending[(int) index] : 0) - entry.getValue();
+                        overLimit.add(new DayCoverage(LocalDate.ofEpochDay(entry.getKey()), approvedAfter, Math.max(0, stillPending)));
+                    }
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            return overLimit;
+        }
+    }
+
+    static class DayCoverage {
+        private final LocalDate date;
+        private final int approved;
+        private final int pending;
+
+        DayCoverage(LocalDate date, int approved, int pending) {
+            this.date = date;
+            this.approved = approved;
+            this.pending = pending;
+        }
+
+        public LocalDate getDate() { return date; }
+        public int getApproved() { return approved; }
+        public int getPending() { return pending; }
+        public int getTotal() { return approved + pending; }
+
+        @Override
+        public String toString() {
+            return date + ": " + approved + " approved, " + pending + " pending";
+        }
+    }
+
+    enum AnalyticsReportType {
+        BY_TYPE("by-type", "Usage by leave type"),
+        BY_MONTH("by-month", "Usage by month"),
+        BY_EMPLOYEE("by-employee", "Usage by employee"),
+        BY_STATUS("by-status", "Requests by status"),
+        TURNAROUND("turnaround", "Approval turnaround");
+
+        private final String name;
+        private final String title;
+
+        AnalyticsReportType(String name, String title) {
+            this.name = name;
+            this.title = title;
+        }
+
+        public String getName() { return name; }
+        public String getTitle() { return title; }
+
+        @Override
+        public String toString() { return title; }
+
+        static AnalyticsReportType fromName(String name) {
+            for (AnalyticsReportType type : values()) {
+                if (type.name.equalsIgnoreCase(name) || type.name().equalsIgnoreCase(name)) return type;
+            }
+            throw new IllegalArgumentException("Unknown report '" + name + "'. Use by-type, by-month, by-employee, by-status or turnaround.");
+        }
+    }
+
+    static class AnalyticsReport {
+        private final AnalyticsReportType type;
+        private final List<String> columns;
+        private final List<Object[]> rows;
+
+        AnalyticsReport(AnalyticsReportType type, List<String> columns, List<Object[]> rows) {
+            this.type = type;
+            this.columns = columns;
+            this.rows = rows;
+        }
+
+        public AnalyticsReportType getType() { return type; }
+        public List<String> getColumns() { return columns; }
+        public List<Object[]> getRows() { return rows; }
+
+        public void write(ExportFormat format, Writer writer) throws IOException {
+            StringBuilder line = new StringBuilder(128);
+            if (format == ExportFormat.CSV) {
+                for (int i = 0; i < columns.size(); i++) {
+                    if (i > 0) line.append(',');
+                    LeaveExporter.appendCsv(line, columns.get(i));
+                }
+                writer.append(line).append('\n');
+            }
+            for (Object[] row : rows) {
+                line.setLength(0);
+                if (format == ExportFormat.CSV) {
+                    for (int i = 0; i < row.length; i++) {
+                        if (i > 0) line.append(',');
+                        LeaveExporter.appendCsv(line, String.valueOf(row[i]));
+                    }
+                } else {
+                    Map<String, Object> object = new LinkedHashMap<>();
+                    for (int i = 0; i < row.length; i++) object.put(columns.get(i), row[i]);
+                    line.append(Json.write(object));
+                }
+                writer.append(line).append('\n');
+            }
+            writer.flush();
+        }
+
+        public Map<String, Object> toJson() {
+            List<Object> jsonRows = new ArrayList<>(rows.size());
+            for (Object[] row : rows) jsonRows.add(Arrays.asList(row));
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("report", type.getName());
+            json.put("title", type.getTitle());
+            json.put("columns", columns);
+            json.put("rows", jsonRows);
+            return json;
+        }
+
+        public String toText() {
+            int[] widths = new int[columns.size()];
+            for (int i = 0; i < widths.length; i++) widths[i] = columns.get(i).length();
+            for (Object[] row : rows) {
+                for (int i = 0; i < row.length; i++) widths[i] = Math.max(widths[i], String.valueOf(row[i]).length());
+            }
+            StringBuilder sb = new StringBuilder(type.getTitle()).append('\n');
+            appendTextRow(sb, columns.toArray(), widths);
+            for (Object[] row : rows) appendTextRow(sb, row, widths);
+            return sb.toString();
+        }
+
+        private static void appendTextRow(StringBuilder sb, Object[] row, int[] widths) {
+            for (int i = 0; i < row.length; i++) {
+                String value = String.valueOf(row[i]);
+                boolean numeric = row[i] instanceof Number;
+                if (i > 0) sb.append("  ");
+                if (numeric) sb.append(" ".repeat(widths[i] - value.length()));
+                sb.append(value);
+                if (!numeric && i < row.length - 1) sb.append(" ".repeat(widths[i] - value.length()));
+            }
+            sb.append('\n');
+        }
+    }
+
+    static class LeaveAnalytics {
+        private static final Logger LOG = Logger.getLogger("LeaveManagementApp.LeaveAnalytics");
+        private static final String[] STATUSES = { "Pending", "Approved", "Rejected" };
+        private static final int REQUESTS = 0;
+        private static final int DAYS = STATUSES.length;
+        private static final List<String> USAGE_COLUMNS = List.of("Requests", "Pending", "Approved", "Rejected",
+                "Pending days", "Approved days", "Rejected days");
+
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private final int rebuildThreads;
+        private Aggregates aggregates = new Aggregates();
+        private Map<Integer, Long> submittedAt = new HashMap<>();
+        private final Map<String, LatencyHistogram> turnaround = new LinkedHashMap<>();
+        private boolean loaded;
+
+        LeaveAnalytics(int rebuildThreads) {
+            this.rebuildThreads = Math.max(1, rebuildThreads);
+        }
+
+        boolean isLoaded() {
+            lock.readLock().lock();
+            try {
+                return loaded;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        void ensureLoaded(LeaveStore store, Path auditDirectory) {
+            if (isLoaded()) return;
+            lock.writeLock().lock();
+            try {
+                if (!loaded) rebuild(store, auditDirectory);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void submitted(LeaveRequest req, long submittedAtMillis) {
+            lock.writeLock().lock();
+            try {
+                if (!loaded) return;
+                aggregates.count(req, req.getStatus(), 1);
+                if ("Pending".equals(req.getStatus())) submittedAt.put(req.getId(), submittedAtMillis);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void added(LeaveRequest req) {
+            lock.writeLock().lock();
+            try {
+                if (loaded) aggregates.count(req, req.getStatus(), 1);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void removed(LeaveRequest req) {
+            lock.writeLock().lock();
+            try {
+                if (!loaded) return;
+                aggregates.count(req, req.getStatus(), -1);
+                submittedAt.remove(req.getId());
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void statusChanged(LeaveRequest before, String newStatus, long decidedAtMillis) {
+            lock.writeLock().lock();
+            try {
+                if (!loaded) return;
+                aggregates.count(before, before.getStatus(), -1);
+                aggregates.count(before, newStatus, 1);
+                Long submitted = submittedAt.remove(before.getId());
+                if (submitted != null && "Pending".equals(before.getStatus())) recordTurnaround(newStatus, decidedAtMillis - submitted);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void invalidate() {
+            lock.writeLock().lock();
+            try {
+                loaded = false;
+                aggregates = new Aggregates();
+                submittedAt = new HashMap<>();
+                turnaround.clear();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        public AnalyticsReport report(AnalyticsReportType type, int limit) {
+            lock.readLock().lock();
+            try {
+                switch (type) {
+                    case BY_TYPE: return usageReport(type, "Leave type", aggregates.byType, Comparator.comparing(Map.Entry::getKey), limit);
+                    case BY_MONTH: return usageReport(type, "Month", aggregates.byMonth, Comparator.comparing(Map.Entry::getKey), limit);
+                    case BY_EMPLOYEE: return usageReport(type, "Employee", aggregates.byEmployee,
+                            Comparator.<Map.Entry<String, long[]>>comparingLong(e -> -e.getValue()[DAYS + 1]).thenComparing(Map.Entry::getKey), limit);
+                    case BY_STATUS: return statusReport();
+                    default: return turnaroundReport();
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        private static AnalyticsReport usageReport(AnalyticsReportType type, String keyColumn, Map<String, long[]> cells,
+                                                   Comparator<Map.Entry<String, long[]>> order, int limit) {
+            List<Map.Entry<String, long[]>> entries = new ArrayList<>(cells.entrySet());
+            entries.sort(order);
+            List<Object[]> rows = new ArrayList<>();
+            for (Map.Entry<String, long[]> entry : entries) {
+                if (rows.size() == limit) break;
+                long[] cell = entry.getValue();
+                Object[] row = new Object[1 + USAGE_COLUMNS.size()];
+                row[0] = entry.getKey();
+                row[1] = cell[0] + cell[1] + cell[2];
+                for (int i = 0; i < STATUSES.length * 2; i++) row[2 + i] = cell[i];
+                rows.add(row);
+            }
+            List<String> columns = new ArrayList<>();
+            columns.add(keyColumn);
+            columns.addAll(USAGE_COLUMNS);
+            return new AnalyticsReport(type, columns, rows);
+        }
+
+        private AnalyticsReport statusReport() {
+            List<Object[]> rows = new ArrayList<>();
+            for (int i = 0; i < STATUSES.length; i++) {
+                rows.add(new Object[] { STATUSES[i], aggregates.totals[REQUESTS + i], aggregates.totals[DAYS + i] });
+            }
+            return new AnalyticsReport(AnalyticsReportType.BY_STATUS, List.of("Status", "Requests", "Days"), rows);
+        }
+
+        private AnalyticsReport turnaroundReport() {
+            List<Object[]> rows = new ArrayList<>();
+            for (Map.Entry<String, LatencyHistogram> entry : turnaround.entrySet()) {
+                LatencyHistogram histogram = entry.getValue();
+                rows.add(new Object[] { entry.getKey(), histogram.getCount(), hours(histogram.getMean()),
+                        hours(histogram.getPercentile(50)), hours(histogram.getPercentile(90)), hours(histogram.getMax()) });
+            }
+            rows.add(new Object[] { "Awaiting decision", (long) submittedAt.size(), "", "", "", "" });
+            return new AnalyticsReport(AnalyticsReportType.TURNAROUND,
+                    List.of("Decision", "Requests", "Mean hours", "Median hours", "90th percentile hours", "Max hours"), rows);
+        }
+
+        private static double hours(double millis) {
+            return Math.round(millis / 36_000.0) / 100.0;
+        }
+
+        private void recordTurnaround(String decision, long millis) {
+            turnaround.computeIfAbsent("All decisions", k -> new LatencyHistogram()).record(millis);
+            turnaround.computeIfAbsent(decision, k -> new LatencyHistogram()).record(millis);
+        }
+
+        private void rebuild(LeaveStore store, Path auditDirectory) {
+            long start = System.nanoTime();
+            int maxId = store.getMaxRequestId();
+            if (maxId < 0) throw new IllegalStateException("Could not read the leave request range");
+            int partitions = Math.max(1, Math.min(rebuildThreads * 4, maxId / 10_000 + 1));
+            ExecutorService workers = Executors.newFixedThreadPool(rebuildThreads + (auditDirectory == null ? 0 : 1));
+            try {
+                Future<Map<Integer, Long>> decisions = auditDirectory == null ? null
+                        : workers.submit(() -> replayAudit(auditDirectory));
+                List<Future<Aggregates>> parts = new ArrayList<>(partitions);
+                int after = 0;
+                for (int p = 1; p <= partitions; p++) {
+                    int upTo = p == partitions ? Integer.MAX_VALUE : (int) ((long) maxId * p / partitions);
+                    LeaveRequestFilter range = new LeaveRequestFilter(null, null, null, null, after, upTo);
+                    parts.add(workers.submit(() -> {
+                        Aggregates part = new Aggregates();
+                        store.streamLeaveRequests(range, req -> {
+                            part.count(req, req.getStatus(), 1);
+                            if ("Pending".equals(req.getStatus())) part.pendingIds.add(req.getId());
+                        });
+                        return part;
+                    }));
+                    after = upTo;
+                }
+                Aggregates merged = new Aggregates();
+                for (Future<Aggregates> part : parts) merged.merge(part.get());
+                Map<Integer, Long> submitted = decisions == null ? new HashMap<>() : decisions.get();
+                Set<Integer> pending = new HashSet<>(merged.pendingIds.size());
+                for (int i = 0; i < merged.pendingIds.size(); i++) pending.add(merged.pendingIds.get(i));
+                submitted.keySet().retainAll(pending);
+                merged.pendingIds = new IntArrayList();
+                aggregates = merged;
+                submittedAt = submitted;
+                loaded = true;
+                LOG.info(String.format("Leave analytics rebuilt from %d requests in %d partitions in %d ms",
+                        merged.totals[0] + merged.totals[1] + merged.totals[2], partitions, (System.nanoTime() - start) / 1_000_000));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while rebuilding leave analytics", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Leave analytics rebuild failed: " + e.getCause().getMessage(), e.getCause());
+            } finally {
+                workers.shutdownNow();
+            }
+        }
+
+        private Map<Integer, Long> replayAudit(Path auditDirectory) throws IOException {
+            Map<Integer, Long> submitted = new HashMap<>();
+            turnaround.clear();
+            if (!Files.isDirectory(auditDirectory)) return submitted;
+            AuditJournal.read(auditDirectory, 0, event -> {
+                if (event.getAction() == AuditAction.SUBMIT) {
+                    submitted.put(event.getRequestId(), event.getOccurredAt());
+                } else if (event.getAction() == AuditAction.APPROVE || event.getAction() == AuditAction.REJECT) {
+                    Long at = submitted.remove(event.getRequestId());
+                    if (at != null) recordTurnaround(event.getAction() == AuditAction.APPROVE ? "Approved" : "Rejected", event.getOccurredAt() - at);
+                }
+            });
+            return submitted;
+        }
+
+        void rebuildNow(LeaveStore store, Path auditDirectory) {
+            lock.writeLock().lock();
+            try {
+                rebuild(store, auditDirectory);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        private static int statusIndex(String status) {
+            for (int i = 0; i < STATUSES.length; i++) {
+                if (STATUSES[i].equals(status)) return i;
+            }
+            return -1;
+        }
+
+        private static class Aggregates {
+            private final long[] totals = new long[STATUSES.length * 2];
+            private final Map<String, long[]> byType = new HashMap<>();
+            private final Map<String, long[]> byMonth = new HashMap<>();
+            private final Map<String, long[]> byEmployee = new HashMap<>();
+            private IntArrayList pendingIds = new IntArrayList();
+
+            void count(LeaveRequest req, String status, int delta) {
+                int index = statusIndex(status);
+                if (index < 0) return;
+                int days = req.getDays();
+                totals[REQUESTS + index] += delta;
+                totals[DAYS + index] += (long) delta * days;
+                add(byType, req.getLeaveType(), index, delta, days);
+                add(byEmployee, req.getEmployeeId(), index, delta, days);
+                String startMonth = req.getStartDate().substring(0, 7);
+                if (startMonth.equals(req.getEndDate().substring(0, 7))) {
+                    add(byMonth, startMonth, index, delta, days);
+                    return;
+                }
+                cell(byMonth, startMonth)[REQUESTS + index] += delta;
+                LocalDate end = LocalDate.parse(req.getEndDate());
+                for (LocalDate day = LocalDate.parse(req.getStartDate()); !day.isAfter(end); day = day.withDayOfMonth(1).plusMonths(1)) {
+                    LocalDate monthEnd = day.withDayOfMonth(day.lengthOfMonth());
+                    long daysInMonth = ChronoUnit.DAYS.between(day, end.isBefore(monthEnd) ? end : monthEnd) + 1;
+                    cell(byMonth, day.toString().substring(0, 7))[DAYS + index] += delta * daysInMonth;
+                }
+            }
+
+            private static void add(Map<String, long[]> cells, String key, int index, int delta, int days) {
+                long[] cell = cell(cells, key);
+                cell[REQUESTS + index] += delta;
+                cell[DAYS + index] += (long) delta * days;
+            }
+
+            private static long[] cell(Map<String, long[]> cells, String key) {
+                return cells.computeIfAbsent(key, k -> new long[STATUSES.length * 2]);
+            }
+
+            void merge(Aggregates other) {
+                for (int i = 0; i < totals.length; i++) totals[i] += other.totals[i];
+                merge(byType, other.byType);
+                merge(byMonth, other.byMonth);
+                merge(byEmployee, other.byEmployee);
+                for (int i = 0; i < other.pendingIds.size(); i++) pendingIds.add(other.pendingIds.get(i));
+            }
+
+            private static void merge(Map<String, long[]> into, Map<String, long[]> from) {
+                for (Map.Entry<String, long[]> entry : from.entrySet()) {
+                    long[] cell = cell(into, entry.getKey());
+                    for (int i = 0; i < cell.length; i++) cell[i] += entry.getValue()[i];
+                }
+            }
+        }
+    }
+
+    static class LeaveIntervalIndex {
+        private final LeaveStore store;
+        private final ConcurrentHashMap<String, EmployeeIntervals> byEmployee = new ConcurrentHashMap<>();
+
+        LeaveIntervalIndex(LeaveStore store) {
+            this.store = store;
+        }
+
+        EmployeeIntervals forEmployee(String employeeId) {
+            EmployeeIntervals intervals = byEmployee.computeIfAbsent(employeeId, _ -> new EmployeeIntervals());
+            intervals.lock.lock();
+            try {
+                if (!intervals.loaded) {
+                    for (LeaveRequest req : store.getRequestsForEmployee(employeeId)) intervals.add(req);
+                    intervals.loaded = true;
+                }
+            } finally {
+                intervals.lock.unlock();
+            }
+            return intervals;
+        }
+
+        void added(LeaveRequest req) {
+            EmployeeIntervals intervals = byEmployee.get(req.getEmployeeId());
+            if (intervals == null) return;
+            intervals.lock.lock();
+            try {
+                if (intervals.loaded) {
+                    intervals.remove(req.getId());
+                    intervals.add(req);
+                }
+            } finally {
+                intervals.lock.unlock();
+            }
+        }
+
+        void statusChanged(LeaveRequest req, String newStatus) {
+            EmployeeIntervals intervals = byEmployee.get(req.getEmployeeId());
+            if (intervals == null) return;
+            intervals.lock.lock();
+            try {
+                intervals.remove(req.getId());
+                if (intervals.loaded) {
+                    intervals.add(new LeaveRequest(req.getId(), req.getEmployeeId(), req.getLeaveType(),
+                            req.getStartDate(), req.getEndDate(), newStatus));
+                }
+            } finally {
+                intervals.lock.unlock();
+            }
+        }
+
+        void invalidate(String employeeId) {
+            byEmployee.remove(employeeId);
+        }
+
+        void invalidateAll() {
+            byEmployee.clear();
+        }
+    }
+
+    static class EmployeeIntervals {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final TreeMap<Long, LeaveRequest> byStart = new TreeMap<>();
+        private final Map<Integer, Long> keysById = new HashMap<>();
+        private int pendingDays;
+        private long longestSpan;
+        private boolean loaded;
+
+        void lock() { lock.lock(); }
+        void unlock() { lock.unlock(); }
+
+        LeaveRequest findOverlap(LeaveRequest candidate) {
+            long start = LocalDate.parse(candidate.getStartDate()).toEpochDay();
+            long end = LocalDate.parse(candidate.getEndDate()).toEpochDay();
+            // Stored requests may overlap each other (older data, imports), so the nearest start is not enough. Any
+            // request that reaches the candidate starts at most longestSpan days before it.
+            for (Map.Entry<Long, LeaveRequest> entry : byStart.headMap(key(end, Integer.MAX_VALUE), true).descendingMap().entrySet()) {
+                if ((entry.getKey() >> 32) < start - longestSpan) break;
+                if (LocalDate.parse(entry.getValue().getEndDate()).toEpochDay() >= start) return entry.getValue();
+            }
+            return null;
+        }
+
+        int getPendingDays() { return pendingDays; }
+
+        void add(LeaveRequest req) {
+            boolean pending = "Pending".equals(req.getStatus());
+            if (req.getId() < 0 || !pending && !"Approved".equals(req.getStatus())) return;
+            long startDay = LocalDate.parse(req.getStartDate()).toEpochDay();
+            long key = key(startDay, req.getId());
+            longestSpan = Math.max(longestSpan, LocalDate.parse(req.getEndDate()).toEpochDay() - startDay);
+            byStart.put(key, req);
+            keysById.put(req.getId(), key);
+            if (pending) pendingDays += req.getDays();
+        }
+
+        void remove(int requestId) {
+            Long key = keysById.remove(requestId);
+            if (key == null) return;
+            LeaveRequest removed = byStart.remove(key);
+            if ("Pending".equals(removed.getStatus())) pendingDays -= removed.getDays();
+        }
+
+        private static long key(long epochDay, int requestId) {
+            return (epochDay << 32) | (requestId & 0xFFFFFFFFL);
+        }
+    }
+
+    static class DirectoryEntry {
+        private final String id;
+        private final String name;
+
+        DirectoryEntry(String id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+        public String getId() { return id; }
+        public String getName() { return name; }
+
+        @Override
+        public String toString() { return id + " - " + name; }
+    }
+
+    static class EmployeeDirectory {
+        private static final int GRAM = 3;
+        private static final char SEPARATOR = '\u0000';
+
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private volatile boolean loaded;
+        private String[] ids = new String[0];
+        private String[] names = new String[0];
+        private String[] searchText = new String[0];
+        private int slots;
+        private final BitSet dead = new BitSet();
+        private final Map<String, Integer> slotById = new HashMap<>();
+        private final Map<Long, IntArrayList> postings = new HashMap<>();
+
+        boolean isLoaded() { return loaded; }
+
+        void ensureLoaded(LeaveStore store) {
+            if (loaded) return;
+            lock.writeLock().lock();
+            try {
+                if (loaded) return;
+                clear();
+                store.streamEmployees(this::put);
+                loaded = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void added(Employee emp) {
+            lock.writeLock().lock();
+            try {
+                if (loaded) put(emp);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void removed(String employeeId) {
+            lock.writeLock().lock();
+            try {
+                if (loaded) remove(employeeId);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void invalidate() {
+            lock.writeLock().lock();
+            try {
+                loaded = false;
+                clear();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        public int size() {
+            lock.readLock().lock();
+            try {
+                return slotById.size();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        public List<DirectoryEntry> search(String query, int limit) {
+            String q = query == null ? "" : query.trim().toLowerCase(Locale.ROOT);
+            if (q.isEmpty() || limit <= 0 || !loaded) return List.of();
+            List<DirectoryEntry> results = new ArrayList<>();
+            lock.readLock().lock();
+            try {
+                IntArrayList candidates = null;
+                if (q.length() < GRAM) {
+                    candidates = postings.get(key(q, 0, q.length()));
+                } else {
+                    for (int i = 0; i + GRAM <= q.length(); i++) {
+                        IntArrayList list = postings.get(key(q, i, GRAM));
+                        if (list == null) return results;
+                        if (candidates == null || list.size() < candidates.size()) candidates = list;
+                    }
+                }
+                if (candidates == null) return results;
+                BitSet prefixMatches = new BitSet();
+                for (int i = 0; i < candidates.size() && results.size() < limit; i++) {
+                    int slot = candidates.get(i);
+                    if (!dead.get(slot) && startsWord(searchText[slot], q)) {
+                        prefixMatches.set(slot);
+                        results.add(new DirectoryEntry(ids[slot], names[slot]));
+                    }
+                }
+                if (q.length() < GRAM) return results;
+                for (int i = 0; i < candidates.size() && results.size() < limit; i++) {
+                    int slot = candidates.get(i);
+                    if (!dead.get(slot) && !prefixMatches.get(slot) && searchText[slot].contains(q)) {
+                        results.add(new DirectoryEntry(ids[slot], names[slot]));
+                    }
+                }
+                return results;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        private static boolean startsWord(String text, String q) {
+            for (int i = text.indexOf(q); i >= 0; i = text.indexOf(q, i + 1)) {
+                if (i == 0 || !Character.isLetterOrDigit(text.charAt(i - 1))) return true;
+            }
+            return false;
+        }
+
+        private void put(Employee emp) {
+            Integer existing = slotById.get(emp.getId());
+            if (existing != null) {
+                if (emp.getName().equals(names[existing])) return;
+                remove(emp.getId());
+            }
+            if (slots == ids.length) {
+                int capacity = Math.max(16, slots * 2);
+                ids = Arrays.copyOf(ids, capacity);
+                names = Arrays.copyOf(names, capacity);
+                searchText = Arrays.copyOf(searchText, capacity);
+            }
+            int slot = slots++;
+            String text = emp.getId().toLowerCase(Locale.ROOT) + SEPARATOR + emp.getName().toLowerCase(Locale.ROOT);
+            ids[slot] = emp.getId();
+            names[slot] = emp.getName();
+            searchText[slot] = text;
+            slotById.put(emp.getId(), slot);
+            for (int i = 0; i < text.length(); i++) {
+                if (i == 0 || !Character.isLetterOrDigit(text.charAt(i - 1))) {
+                    index(key(text, i, 1), slot);
+                    if (i + 1 < text.length()) index(key(text, i, 2), slot);
+                }
+                if (i + GRAM <= text.length()) index(key(text, i, GRAM), slot);
+            }
+        }
+
+        private void index(long key, int slot) {
+            IntArrayList list = postings.computeIfAbsent(key, k -> new IntArrayList());
+            if (list.size() == 0 || list.get(list.size() - 1) != slot) list.add(slot);
+        }
+
+        private void remove(String employeeId) {
+            Integer slot = slotById.remove(employeeId);
+            if (slot == null) return;
+            dead.set(slot);
+            ids[slot] = null;
+            names[slot] = null;
+            searchText[slot] = null;
+            if (dead.cardinality() > Math.max(1_024, slotById.size())) compact();
+        }
+
+        private void compact() {
+            List<Employee> live = new ArrayList<>(slotById.size());
+            for (int slot = 0; slot < slots; slot++) {
+                if (!dead.get(slot)) live.add(new Employee(ids[slot], names[slot], 0));
+            }
+            clear();
+            live.forEach(this::put);
+        }
+
+        private void clear() {
+            ids = new String[0];
+            names = new String[0];
+            searchText = new String[0];
+            slots = 0;
+            dead.clear();
+            slotById.clear();
+            postings.clear();
+        }
+
+        private static long key(String text, int from, int length) {
+            long key = length;
+            for (int i = 0; i < length; i++) key = (key << 21) | text.charAt(from + i);
+            return key;
+        }
+    }
+
+    static class EmployeeCache {
+        private final int maxEntries;
+        private final long ttlMillis;
+        private final LinkedHashMap<String, CachedEmployee> entries;
+        private long hits;
+        private long misses;
+        private long evictions;
+
+        public EmployeeCache(int maxEntries, long ttlMillis) {
+            this.maxEntries = maxEntries;
+            this.ttlMillis = ttlMillis;
+            this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CachedEmployee> eldest) {
+                    if (size() > EmployeeCache.this.maxEntries) {
+                        evictions++;
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        public synchronized Employee get(String employeeId) {
+            CachedEmployee cached = entries.get(employeeId);
+            if (cached == null) {
+                misses++;
+                return null;
+            }
+            if (System.currentTimeMillis() - cached.loadedAtMillis > ttlMillis) {
+                entries.remove(employeeId);
+                evictions++;
+                misses++;
+                return null;
+            }
+            hits++;
+            return cached.employee;
+        }
+
+        public synchronized void put(Employee employee) {
+            if (maxEntries <= 0) return;
+            entries.put(employee.getId(), new CachedEmployee(employee, System.currentTimeMillis()));
+        }
+
+        public synchronized void invalidate(String employeeId) {
+            entries.remove(employeeId);
+        }
+
+        public synchronized void invalidateAll() {
+            entries.clear();
+        }
+
+        public synchronized CacheStats getStats() {
+            return new CacheStats(hits, misses, evictions, entries.size(), maxEntries);
+        }
+
+        private static class CachedEmployee {
+            private final Employee employee;
+            private final long loadedAtMillis;
+
+            CachedEmployee(Employee employee, long loadedAtMillis) {
+                this.employee = employee;
+                this.loadedAtMillis = loadedAtMillis;
+            }
+        }
+
+        static class CacheStats {
+            private final long hits;
+            private final long misses;
+            private final long evictions;
+            private final int size;
+            private final int maxEntries;
+
+            CacheStats(long hits, long misses, long evictions, int size, int maxEntries) {
+                this.hits = hits;
+                this.misses = misses;
+                this.evictions = evictions;
+                this.size = size;
+                this.maxEntries = maxEntries;
+            }
+            public long getHits() { return hits; }
+            public long getMisses() { return misses; }
+            public long getEvictions() { return evictions; }
+            public int getSize() { return size; }
+            public int getMaxEntries() { return maxEntries; }
+            public double getHitRate() { return hits + misses == 0 ? 0 : (double) hits / (hits + misses); }
+
+            @Override
+            public String toString() {
+                return String.format("EmployeeCache[hits=%d, misses=%d, hitRate=%.1f%%, evictions=%d, size=%d/%d]",
+                        hits, misses, getHitRate() * 100, evictions, size, maxEntries);
+            }
+        }
+    }
+
+    static class LeaveApiServer {
+        private static final Logger LOG = Logger.getLogger("LeaveManagementApp.LeaveApiServer");
+        private static final String MANAGER_HEADER = "X-Manager-Id";
+        private static final String SESSION_HEADER = "X-Session-Id";
+        private static final String BEARER_PREFIX = "Bearer ";
+        private static final int DEFAULT_PAGE_SIZE = 100;
+        private static final int MAX_PAGE_SIZE = 1_000;
+        private static final int MAX_CALENDAR_DAYS = 366;
+
+        private final LeaveSystem system;
+        private final HttpServer server;
+        private final byte[] token;
+        private final Semaphore exportPermits = new Semaphore(Integer.getInteger("leave.export.maxConcurrent", 2));
+        private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+        public LeaveApiServer(LeaveSystem system, int port) throws IOException {
+            this(system, System.getProperty("leave.server.host", "127.0.0.1"), port, System.getProperty("leave.server.token"));
+        }
+
+        /**
+         * Binds to {@code host} only; "0.0.0.0" listens on every interface. Every request must carry
+         * {@code Authorization: Bearer <token>}, because X-Manager-Id on its own is just a claim.
+         */
+        public LeaveApiServer(LeaveSystem system, String host, int port, String token) throws IOException {
+            if (token == null || token.isBlank()) {
+                throw new IllegalArgumentException("Set -Dleave.server.token to the shared API token the clients will send.");
+            }
+            this.system = system;
+            this.token = token.trim().getBytes(StandardCharsets.UTF_8);
+            this.server = HttpServer.create(new InetSocketAddress(host, port), Integer.getInteger("leave.server.backlog", 1024));
+            server.createContext("/api/", this::handle);
+            server.setExecutor(executor);
+        }
+
+        public void start() {
+            server.start();
+            LOG.info("Leave API listening on " + server.getAddress().getHostString() + ":" + server.getAddress().getPort());
+        }
+
+        public int getPort() { return server.getAddress().getPort(); }
+
+        public void stop() {
+            server.stop(1);
+            executor.shutdown();
+        }
+
+        private void handle(HttpExchange exchange) throws IOException {
+            try {
+                String[] path = exchange.getRequestURI().getPath().replaceAll("/+$", "").split("/");
+                String method = exchange.getRequestMethod();
+                authenticate(exchange);
+                ReplicaRouter.bindSession(sessionId(exchange, path));
+                if (path.length == 3 && "health".equals(path[2]) && "GET".equals(method)) {
+                    health(exchange);
+                } else if (path.length == 3 && "calendar".equals(path[2]) && "GET".equals(method)) {
+                    calendar(exchange);
+                } else if (path.length == 3 && "employees".equals(path[2]) && "POST".equals(method)) {
+                    addEmployee(exchange);
+                } else if (path.length == 4 && "employees".equals(path[2]) && "DELETE".equals(method)) {
+                    removeEmployee(exchange, path[3]);
+                } else if (path.length == 5 && "employees".equals(path[2]) && "requests".equals(path[4]) && "GET".equals(method)) {
+                    employeeRequests(exchange, path[3]);
+                } else if (path.length == 3 && "requests".equals(path[2]) && "POST".equals(method)) {
+                    submit(exchange);
+                } else if (path.length == 4 && "requests".equals(path[2]) && "pending".equals(path[3]) && "GET".equals(method)) {
+                    pending(exchange);
+                } else if (path.length == 4 && "requests".equals(path[2]) && "export".equals(path[3]) && "GET".equals(method)) {
+                    export(exchange);
+                } else if (path.length == 4 && "reports".equals(path[2]) && "GET".equals(method)) {
+                    report(exchange, path[3]);
+                } else if (path.length == 4 && "requests".equals(path[2]) && "POST".equals(method)
+                        && ("approve".equals(path[3]) || "reject".equals(path[3]))) {
+                    processBulk(exchange, "approve".equals(path[3]));
+                } else if (path.length == 5 && "requests".equals(path[2]) && "POST".equals(method)
+                        && ("approve".equals(path[4]) || "reject".equals(path[4]))) {
+                    process(exchange, parseId(path[3]), "approve".equals(path[4]));
+                } else {
+                    sendError(exchange, 404, "No route for " + method + " " + exchange.getRequestURI().getPath());
+                }
+            } catch (ApiException e) {
+                sendError(exchange, e.status, e.getMessage());
+            } catch (RuntimeException e) {
+                LOG.log(Level.SEVERE, "Request failed: " + exchange.getRequestURI(), e);
+                sendError(exchange, 500, "Internal server error");
+            } finally {
+                ReplicaRouter.clearSession();
+                exchange.close();
+            }
+        }
+
+        private void authenticate(HttpExchange exchange) {
+            String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+            byte[] presented = authorization != null && authorization.startsWith(BEARER_PREFIX)
+                    ? authorization.substring(BEARER_PREFIX.length()).trim().getBytes(StandardCharsets.UTF_8) : null;
+            if (presented == null || !MessageDigest.isEqual(presented, token)) {
+                exchange.getResponseHeaders().set("WWW-Authenticate", "Bearer");
+                throw new ApiException(401, "Missing or invalid API token.");
+            }
+        }
+
+        private static String sessionId(HttpExchange exchange, String[] path) {
+            String session = exchange.getRequestHeaders().getFirst(SESSION_HEADER);
+            if (session == null) session = exchange.getRequestHeaders().getFirst(MANAGER_HEADER);
+            if (session == null && path.length >= 4 && "employees".equals(path[2])) session = path[3];
+            return session == null ? null : session.trim();
+        }
+
+        private void health(HttpExchange exchange) throws IOException {
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("status", "UP");
+            ConnectionPool.PoolStats pool = system.getPoolStats();
+            if (pool != null) body.put("pool", pool.toString());
+            List<String> replicas = system.getReplicaStatus();
+            if (!replicas.isEmpty()) body.put("replicas", replicas);
+            body.put("employeeCache", system.getEmployeeCacheStats().toString());
+            body.put("auditEventsLost", system.getAuditEventsLost());
+            send(exchange, 200, body);
+        }
+
+        private void calendar(HttpExchange exchange) throws IOException {
+            Map<String, String> params = queryParams(exchange);
+            LocalDate from = parseDate(params.get("from"), LocalDate.now());
+            LocalDate to = parseDate(params.get("to"), from.plusDays(30));
+            if (to.isBefore(from) || ChronoUnit.DAYS.between(from, to) >= MAX_CALENDAR_DAYS) {
+                throw new ApiException(400, "Choose a date range of at most " + MAX_CALENDAR_DAYS + " days.");
+            }
+            List<Object> days = new ArrayList<>();
+            for (DayCoverage day : system.getCoverage(from, to)) days.add(coverageJson(day));
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("maxAbsentPerDay", system.getMaxAbsentPerDay());
+            body.put("days", days);
+            send(exchange, 200, body);
+        }
+
+        private void addEmployee(HttpExchange exchange) throws IOException {
+            Manager manager = requireManager(exchange);
+            Map<String, Object> body = readBody(exchange);
+            String id = requiredString(body, "id");
+            String name = requiredString(body, "name");
+            boolean isManager = Boolean.TRUE.equals(body.get("manager"));
+            if (system.findEmployeeById(id) != null) {
+                throw new ApiException(409, "An employee with ID '" + id + "' already exists.");
+            }
+            system.addEmployee(isManager ? new Manager(id, name, DEFAULT_LEAVE_BALANCE) : new Employee(id, name, DEFAULT_LEAVE_BALANCE), manager.getId());
+            send(exchange, 201, employeeJson(system.findEmployeeById(id)));
+        }
+
+        private void removeEmployee(HttpExchange exchange, String employeeId) throws IOException {
+            Manager manager = requireManager(exchange);
+            if (manager.getId().equals(employeeId)) {
+                throw new ApiException(400, "You cannot remove your own Manager account.");
+            }
+            if (system.findEmployeeById(employeeId) == null) {
+                throw new ApiException(404, "Employee with ID '" + employeeId + "' not found.");
+            }
+            if (!system.removeEmployee(employeeId, manager.getId())) {
+                throw new ApiException(503, "Employee '" + employeeId + "' could not be removed. Please try again.");
+            }
+            send(exchange, 204, null);
+        }
+
+        private void employeeRequests(HttpExchange exchange, String employeeId) throws IOException {
+            Employee employee = system.findEmployeeById(employeeId);
+            if (employee == null) {
+                throw new ApiException(404, "Employee with ID '" + employeeId + "' not found.");
+            }
+            Map<String, Object> body = employeeJson(employee);
+            Map<String, String> params = queryParams(exchange);
+            boolean includeArchived = Boolean.parseBoolean(params.get("archived"));
+            if (!params.containsKey("limit")) {
+                body.put("requests", requestsJson(system.getRequestsForEmployee(employeeId, includeArchived)));
+                send(exchange, 200, body);
+                return;
+            }
+            int limit = parseLimit(params.get("limit"));
+            parseDate(params.get("from"), null);
+            parseDate(params.get("to"), null);
+            LeaveHistoryQuery query = new LeaveHistoryQuery(employeeId, params.get("status"), params.get("type"),
+                    params.get("from"), params.get("to"), HistorySort.REQUEST_ID, true, includeArchived);
+            LeaveRequest after = params.containsKey("afterId")
+                    ? new LeaveRequest(parseId(params.get("afterId")), null, null, null, null, null) : null;
+            List<LeaveRequest> page = system.getRequestHistoryPage(query, after, limit);
+            if (after == null) {
+                LeaveHistorySummary summary = system.summarizeRequestHistory(query);
+                if (summary != null) body.put("summary", summary.toJson());
+            }
+            body.put("requests", requestsJson(page));
+            body.put("nextAfterId", page.size() == limit ? page.get(page.size() - 1).getId() : null);
+            send(exchange, 200, body);
+        }
+
+        private void submit(HttpExchange exchange) throws IOException {
+            Map<String, Object> body = readBody(exchange);
+            String employeeId = requiredString(body, "employeeId");
+            String leaveType = requiredString(body, "leaveType");
+            String startDate = requiredString(body, "startDate");
+            String endDate = requiredString(body, "endDate");
+            String problem = LeaveRequest.validate(leaveType, startDate, endDate);
+            if (problem != null) throw new ApiException(400, problem);
+            ReplicaRouter.bindSessionIfAbsent(employeeId);
+            Employee employee = system.findEmployeeById(employeeId);
+            if (employee == null) {
+                throw new ApiException(404, "Employee with ID '" + employeeId + "' not found.");
+            }
+            LeaveRequest saved;
+            try {
+                saved = employee.submitLeaveRequest(system, new LeaveRequest(employeeId, leaveType, startDate, endDate));
+            } catch (InsufficientLeaveException | LeavePolicyException e) {
+                throw new ApiException(409, e.getMessage());
+            }
+            Map<String, Object> response = new LinkedHashMap<>();
+            if (saved.getId() > 0) response.put("id", saved.getId());
+            response.put("employeeId", employeeId);
+            response.put("status", saved.getStatus());
+            send(exchange, saved.getId() > 0 ? 201 : 202, response);
+        }
+
+        private void pending(HttpExchange exchange) throws IOException {
+            requireManager(exchange);
+            Map<String, String> params = queryParams(exchange);
+            int limit = params.containsKey("limit") ? parseLimit(params.get("limit")) : DEFAULT_PAGE_SIZE;
+            PendingRequestQuery query = new PendingRequestQuery(params.get("employeeId"), params.get("type"),
+                    params.get("from"), params.get("to"), PendingSort.REQUEST_ID, true);
+            LeaveRequest after = params.containsKey("afterId")
+                    ? new LeaveRequest(parseId(params.get("afterId")), null, null, null, null, null) : null;
+            List<LeaveRequest> page = system.getPendingRequestsPage(query, after, limit);
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("requests", requestsJson(page));
+            body.put("nextAfterId", page.size() == limit ? page.get(page.size() - 1).getId() : null);
+            send(exchange, 200, body);
+        }
+
+        private void export(HttpExchange exchange) throws IOException {
+            requireManager(exchange);
+            Map<String, String> params = queryParams(exchange);
+            ExportFormat format = ExportFormat.fromName(params.getOrDefault("format", "csv"));
+            LeaveRequestFilter filter = new LeaveRequestFilter(params.get("employeeId"), params.get("status"),
+                    params.get("from"), params.get("to"));
+            if (!exportPermits.tryAcquire()) {
+                throw new ApiException(503, "Too many exports are running. Please try again shortly.");
+            }
+            // Spooled to a temporary file first, so the database cursor and its pooled connection are released at
+            // disk speed rather than at the pace of a slow client, and a failed export still gets an error status.
+            Path spool = Files.createTempFile("leave-export", format == ExportFormat.CSV ? ".csv" : ".jsonl");
+            try {
+                try {
+                    new LeaveExporter(system).export(filter, format, spool);
+                } catch (IOException e) {
+                    LOG.log(Level.WARNING, "Export failed", e);
+                    throw new ApiException(503, "The export failed. Please try again.");
+                } finally {
+                    exportPermits.release();
+                }
+                exchange.getResponseHeaders().set("Content-Type",
+                        format == ExportFormat.CSV ? "text/csv; charset=utf-8" : "application/x-ndjson; charset=utf-8");
+                long length = Files.size(spool);
+                exchange.sendResponseHeaders(200, length == 0 ? -1 : length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    Files.copy(spool, out);
+                }
+            } finally {
+                Files.deleteIfExists(spool);
+            }
+        }
+
+        private void report(HttpExchange exchange, String name) throws IOException {
+            requireManager(exchange);
+            Map<String, String> params = queryParams(exchange);
+            AnalyticsReportType type;
+            try {
+                type = AnalyticsReportType.fromName(name);
+            } catch (IllegalArgumentException e) {
+                throw new ApiException(404, e.getMessage());
+            }
+            int limit = params.containsKey("limit") ? parseLimit(params.get("limit")) : Integer.MAX_VALUE;
+            AnalyticsReport report = system.getReport(type, limit);
+            String format = params.getOrDefault("format", "json");
+            if ("json".equalsIgnoreCase(format)) {
+                send(exchange, 200, report.toJson());
+                return;
+            }
+            ExportFormat exportFormat = ExportFormat.fromName(format);
+            exchange.getResponseHeaders().set("Content-Type",
+                    exportFormat == ExportFormat.CSV ? "text/csv; charset=utf-8" : "application/x-ndjson; charset=utf-8");
+            exchange.sendResponseHeaders(200, 0);
+            try (Writer out = new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8)) {
+                report.write(exportFormat, out);
+            }
+        }
+
+        private void process(HttpExchange exchange, int requestId, boolean approve) throws IOException {
+            Manager manager = requireManager(exchange);
+            LeaveRequest request = system.findRequestById(requestId);
+            if (request == null) throw new ApiException(404, "Request #" + requestId + " not found.");
+            List<DayCoverage> overLimit = approve ? system.checkCoverage(List.of(request)) : List.of();
+            ProcessOutcome outcome = approve ? manager.approveLeaveRequest(system, request) : manager.rejectLeaveRequest(system, request);
+            switch (outcome) {
+                case NOT_FOUND: throw new ApiException(404, "Request #" + requestId + " not found.");
+                case ALREADY_PROCESSED: throw new ApiException(409, "Request #" + requestId + " was already processed.");
+                case FAILED: throw new ApiException(503, "Request #" + requestId + " could not be saved. Please try again.");
+                default: break;
+            }
+            Map<String, Object> body = requestJson(system.findRequestById(requestId));
+            if (!overLimit.isEmpty()) body.put("coverageWarnings", coverageWarnings(overLimit));
+            send(exchange, 200, body);
+        }
+
+        private void processBulk(HttpExchange exchange, boolean approve) throws IOException {
+            Manager manager = requireManager(exchange);
+            Object ids = readBody(exchange).get("requestIds");
+            if (!(ids instanceof List)) throw new ApiException(400, "'requestIds' must be an array of request ids.");
+            List<Integer> requestIds = new ArrayList<>();
+            for (Object id : (List<?>) ids) {
+                if (!(id instanceof Number)) throw new ApiException(400, "'requestIds' must contain numbers only.");
+                requestIds.add(((Number) id).intValue());
+            }
+            List<DayCoverage> overLimit = List.of();
+            if (approve) {
+                List<LeaveRequest> requests = new ArrayList<>();
+                for (Integer id : requestIds) {
+                    LeaveRequest req = system.findRequestById(id);
+                    if (req != null) requests.add(req);
+                }
+                overLimit = system.checkCoverage(requests);
+            }
+            Map<Integer, ProcessOutcome> outcomes = approve
+                    ? manager.approveLeaveRequests(system, requestIds)
+                    : manager.rejectLeaveRequests(system, requestIds);
+            Map<String, Object> body = new LinkedHashMap<>();
+            outcomes.forEach((id, outcome) -> body.put(String.valueOf(id), outcome.name()));
+            if (!overLimit.isEmpty()) body.put("coverageWarnings", coverageWarnings(overLimit));
+            send(exchange, 200, body);
+        }
+
+        private Manager requireManager(HttpExchange exchange) {
+            String managerId = exchange.getRequestHeaders().getFirst(MANAGER_HEADER);
+            if (managerId == null || managerId.trim().isEmpty()) {
+                throw new ApiException(401, "Missing " + MANAGER_HEADER + " header.");
+            }
+            Employee emp = system.findEmployeeById(managerId.trim());
+            if (!(emp instanceof Manager)) {
+                throw new ApiException(403, "Invalid Manager ID or you do not have manager privileges.");
+            }
+            return (Manager) emp;
+        }
+
+        private static Map<String, Object> employeeJson(Employee employee) {
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("id", employee.getId());
+            json.put("name", employee.getName());
+            json.put("leaveBalance", employee.getLeaveBalance());
+            json.put("manager", employee instanceof Manager);
+            return json;
+        }
+
+        private static Map<String, Object> requestJson(LeaveRequest req) {
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("id", req.getId() > 0 ? req.getId() : null);
+            json.put("employeeId", req.getEmployeeId());
+            json.put("leaveType", req.getLeaveType());
+            json.put("startDate", req.getStartDate());
+            json.put("endDate", req.getEndDate());
+            json.put("status", req.getStatus());
+            return json;
+        }
+
+        private static Map<String, Object> coverageJson(DayCoverage day) {
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("date", day.getDate().toString());
+            json.put("approved", day.getApproved());
+            json.put("pending", day.getPending());
+            return json;
+        }
+
+        private static List<Object> coverageWarnings(List<DayCoverage> overLimit) {
+            List<Object> json = new ArrayList<>(overLimit.size());
+            for (DayCoverage day : overLimit) json.add(coverageJson(day));
+            return json;
+        }
+
+        private static List<Object> requestsJson(List<LeaveRequest> requests) {
+            List<Object> json = new ArrayList<>(requests.size());
+            for (LeaveRequest req : requests) json.add(requestJson(req));
+            return json;
+        }
+
+        private static Map<String, Object> readBody(HttpExchange exchange) throws IOException {
+            String text = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            try {
+                Object parsed = Json.parse(text);
+                if (!(parsed instanceof Map)) throw new ApiException(400, "Request body must be a JSON object.");
+                @SuppressWarnings("unchecked") Map<String, Object> body = (Map<String, Object>) parsed;
+                return body;
+            } catch (IllegalArgumentException e) {
+                throw new ApiException(400, "Malformed JSON: " + e.getMessage());
+            }
+        }
+
+        private static String requiredString(Map<String, Object> body, String field) {
+            Object value = body.get(field);
+            if (!(value instanceof String) || ((String) value).trim().isEmpty()) {
+                throw new ApiException(400, "Field '" + field + "' is required.");
+            }
+            return ((String) value).trim();
+        }
+
+        private static Map<String, String> queryParams(HttpExchange exchange) {
+            Map<String, String> params = new HashMap<>();
+            String query = exchange.getRequestURI().getRawQuery();
+            if (query == null) return params;
+            for (String pair : query.split("&")) {
+                int eq = pair.indexOf('=');
+                if (eq <= 0) continue;
+                params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+            return params;
+        }
+
+        private static LocalDate parseDate(String value, LocalDate defaultValue) {
+            if (value == null || value.isEmpty()) return defaultValue;
+            try {
+                return LocalDate.parse(value);
+            } catch (DateTimeParseException e) {
+                throw new ApiException(400, "'" + value + "' is not a YYYY-MM-DD date.");
+            }
+        }
+
+        private static int parseId(String value) {
+            try {
+                return Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                throw new ApiException(400, "'" + value + "' is not a valid number.");
+            }
+        }
+
+        private static int parseLimit(String value) {
+            int limit = parseId(value);
+            if (limit < 1) throw new ApiException(400, "'limit' must be at least 1.");
+            return Math.min(MAX_PAGE_SIZE, limit);
+        }
+
+        private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+            if (exchange.getResponseCode() != -1) {
+                // The status line has already gone out; closing the exchange cuts the body short instead.
+                LOG.warning("Response to " + exchange.getRequestURI() + " failed after its headers were sent: " + message);
+                return;
+            }
+            send(exchange, status, Map.of("error", message));
+        }
+
+        private static void send(HttpExchange exchange, int status, Object body) throws IOException {
+            if (body == null) {
+                exchange.sendResponseHeaders(status, -1);
+                return;
+            }
+            byte[] bytes = Json.write(body).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+
+        static class ApiException extends RuntimeException {
+            private final int status;
+
+            ApiException(int status, String message) {
+                super(message);
+                this.status = status;
+            }
+        }
+    }
+
+    static class Json {
+        public static String write(Object value) {
+            StringBuilder sb = new StringBuilder();
+            write(sb, value);
+            return sb.toString();
+        }
+
+        private static void write(StringBuilder sb, Object value) {
+            if (value == null) {
+                sb.append("null");
+            } else if (value instanceof String) {
+                writeString(sb, (String) value);
+            } else if (value instanceof Number || value instanceof Boolean) {
+                sb.append(value);
+            } else if (value instanceof Map) {
+                sb.append('{');
+                boolean first = true;
+                for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                    if (!first) sb.append(',');
+                    first = false;
+                    writeString(sb, String.valueOf(entry.getKey()));
+                    sb.append(':');
+                    write(sb, entry.getValue());
+                }
+                sb.append('}');
+            } else if (value instanceof Iterable) {
+                sb.append('[');
+                boolean first = true;
+                for (Object item : (Iterable<?>) value) {
+                    if (!first) sb.append(',');
+                    first = false;
+                    write(sb, item);
+                }
+                sb.append(']');
+            } else {
+                writeString(sb, value.toString());
+            }
+        }
+
+        static void writeString(StringBuilder sb, String value) {
+            sb.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '"': sb.append("\\\""); break;
+                    case '\\': sb.append("\\\\"); break;
+                    case '\n': sb.append("\\n"); break;
+                    case '\r': sb.append("\\r"); break;
+                    case '\t': sb.append("\\t"); break;
+                    default:
+                        if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                        else sb.append(c);
+                }
+            }
+            sb.append('"');
+        }
+
+        public static Object parse(String text) {
+            Parser parser = new Parser(text);
+            Object value = parser.readValue();
+            parser.skipWhitespace();
+            if (parser.pos != text.length()) throw new IllegalArgumentException("Unexpected trailing content at " + parser.pos);
+            return value;
+        }
+
+        private static class Parser {
+            private final String text;
+            private int pos;
+
+            Parser(String text) {
+                this.text = text;
+            }
+
+            Object readValue() {
+                skipWhitespace();
+                if (pos >= text.length()) throw new IllegalArgumentException("Unexpected end of input");
+                char c = text.charAt(pos);
+                switch (c) {
+                    case '{': return readObject();
+                    case '[': return readArray();
+                    case '"': return readString();
+                    case 't': expect("true"); return Boolean.TRUE;
+                    case 'f': expect("false"); return Boolean.FALSE;
+                    case 'n': expect("null"); return null;
+                    default: return readNumber();
+                }
+            }
+
+            private Map<String, Object> readObject() {
+                Map<String, Object> map = new LinkedHashMap<>();
+                pos++;
+                skipWhitespace();
+                if (peek() == '}') {
+                    pos++;
+                    return map;
+                }
+                while (true) {
+                    skipWhitespace();
+                    String key = readString();
+                    skipWhitespace();
+                    consume(':');
+                    map.put(key, readValue());
+                    skipWhitespace();
+                    if (peek() == ',') {
+                        pos++;
+                    } else {
+                        consume('}');
+                        return map;
+                    }
+                }
+            }
+
+            private List<Object> readArray() {
+                List<Object> list = new ArrayList<>();
+                pos++;
+                skipWhitespace();
+                if (peek() == ']') {
+                    pos++;
+                    return list;
+                }
+                while (true) {
+                    list.add(readValue());
+                    skipWhitespace();
+                    if (peek() == ',') {
+                        pos++;
+                    } else {
+                        consume(']');
+                        return list;
+                    }
+                }
+            }
+
+            private String readString() {
+                consume('"');
+                StringBuilder sb = new StringBuilder();
+                while (pos < text.length()) {
+                    char c = text.charAt(pos++);
+                    if (c == '"') return sb.toString();
+                    if (c != '\\') {
+                        sb.append(c);
+                        continue;
+                    }
+                    if (pos >= text.length()) break;
+                    char escaped = text.charAt(pos++);
+                    switch (escaped) {
+                        case 'n': sb.append('\n'); break;
+                        case 'r': sb.append('\r'); break;
+                        case 't': sb.append('\t'); break;
+                        case 'b': sb.append('\b'); break;
+                        case 'f': sb.append('\f'); break;
+                        case 'u':
+                            if (pos + 4 > text.length()) throw new IllegalArgumentException("Bad unicode escape");
+                            sb.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                            pos += 4;
+                            break;
+                        default: sb.append(escaped);
+                    }
+                }
+                throw new IllegalArgumentException("Unterminated string");
+            }
+
+            private Number readNumber() {
+                int start = pos;
+                while (pos < text.length() && "+-0123456789.eE".indexOf(text.charAt(pos)) >= 0) pos++;
+                String number = text.substring(start, pos);
+                if (number.isEmpty()) throw new IllegalArgumentException("Unexpected character at " + start);
+                try {
+                    if (number.contains(".") || number.contains("e") || number.contains("E")) return Double.parseDouble(number);
+                    return Long.parseLong(number);
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Bad number '" + number + "'");
+                }
+            }
+
+            private void expect(String literal) {
+                if (!text.startsWith(literal, pos)) throw new IllegalArgumentException("Expected " + literal + " at " + pos);
+                pos += literal.length();
+            }
+
+            private void consume(char expected) {
+                if (peek() != expected) throw new IllegalArgumentException("Expected '" + expected + "' at " + pos);
+                pos++;
+            }
+
+            private char peek() {
+                return pos < text.length() ? text.charAt(pos) : '\0';
+            }
+
+            void skipWhitespace() {
+                while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) pos++;
             }
         }
+    }
 
-        public List<LeaveRequest> getRequestsForEmployee(String employeeId) {
-            List<LeaveRequest> requests = new ArrayList<>();
-            String sql = "SELECT * FROM leave_requests WHERE employee_id = ?";
-            try (Connection conn = getConnection();
-                PreparedStatement pstmt = conn.prepareStatement(sql)) {
-                pstmt.setString(1, employeeId);
-                try (ResultSet rs = pstmt.executeQuery()) {
-                    while (rs.next()) {
-                        requests.add(mapRowToLeaveRequest(rs));
+    enum ExportFormat {
+        CSV, JSONL;
+
+        public static ExportFormat fromName(String name) {
+            String lower = name.toLowerCase();
+            return lower.endsWith("jsonl") || lower.endsWith("ndjson") ? JSONL : CSV;
+        }
+    }
+
+    static class LeaveExporter {
+        private static final int BUFFER_SIZE = 64 * 1024;
+
+        private final LeaveSystem system;
+
+        public LeaveExporter(LeaveSystem system) {
+            this.system = system;
+        }
+
+        public long export(LeaveRequestFilter filter, ExportFormat format, Path target) throws IOException {
+            try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                return export(filter, format, Channels.newOutputStream(channel));
+            }
+        }
+
+        public long export(LeaveRequestFilter filter, ExportFormat format, OutputStream out) throws IOException {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+            StringBuilder line = new StringBuilder(128);
+            if (format == ExportFormat.CSV) {
+                writer.write("employee_id,leave_type,start_date,end_date,status,request_id\n");
+            }
+            long rows = system.streamLeaveRequests(filter, req -> {
+                line.setLength(0);
+                if (format == ExportFormat.CSV) {
+                    appendCsv(line, req.getEmployeeId()).append(',');
+                    appendCsv(line, req.getLeaveType()).append(',');
+                    line.append(req.getStartDate()).append(',').append(req.getEndDate()).append(',');
+                    line.append(req.getStatus()).append(',').append(req.getId()).append('\n');
+                } else {
+                    line.append("{\"id\":").append(req.getId()).append(",\"employeeId\":");
+                    Json.writeString(line, req.getEmployeeId());
+                    line.append(",\"leaveType\":");
+                    Json.writeString(line, req.getLeaveType());
+                    line.append(",\"startDate\":\"").append(req.getStartDate());
+                    line.append("\",\"endDate\":\"").append(req.getEndDate());
+                    line.append("\",\"status\":\"").append(req.getStatus()).append("\"}\n");
+                }
+                writer.append(line);
+            });
+            writer.flush();
+            return rows;
+        }
+
+        static StringBuilder appendCsv(StringBuilder sb, String value) {
+            boolean quote = value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0;
+            if (!quote) return sb.append(value);
+            return sb.append('"').append(value.replace("\"", "\"\"")).append('"');
+        }
+    }
+
+    static class CsvReader implements AutoCloseable {
+        private final BufferedReader reader;
+        private long lineNumber;
+        private long recordStartLine;
+
+        public CsvReader(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        public String[] next() throws IOException {
+            String line = reader.readLine();
+            if (line == null) return null;
+            lineNumber++;
+            recordStartLine = lineNumber;
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            int i = 0;
+            while (true) {
+                if (i >= line.length()) {
+                    if (!quoted) break;
+                    String continuation = reader.readLine();
+                    if (continuation == null) throw new IOException("Unterminated quoted field starting on line " + recordStartLine);
+                    lineNumber++;
+                    field.append('\n');
+                    line = continuation;
+                    i = 0;
+                    continue;
+                }
+                char c = line.charAt(i++);
+                if (quoted) {
+                    if (c == '"') {
+                        if (i < line.length() && line.charAt(i) == '"') {
+                            field.append('"');
+                            i++;
+                        } else {
+                            quoted = false;
+                        }
+                    } else {
+                        field.append(c);
                     }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else {
+                    field.append(c);
                 }
-            } catch (SQLException e) {
-                e.printStackTrace();
             }
-            return requests;
+            fields.add(field.toString());
+            return fields.toArray(new String[0]);
         }
 
-        public List<LeaveRequest> getPendingRequests() {
-            List<LeaveRequest> requests = new ArrayList<>();
-            String sql = "SELECT * FROM leave_requests WHERE status = 'Pending'";
-            try (Connection conn = getConnection();
-                Statement stmt = conn.createStatement();
-                ResultSet rs = stmt.executeQuery(sql)) {
-                while (rs.next()) {
-                    requests.add(mapRowToLeaveRequest(rs));
+        public long getRecordStartLine() { return recordStartLine; }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    static class BulkImporter {
+        private static final int CHUNK_SIZE = Integer.getInteger("leave.import.chunkSize", 5_000);
+        private static final int IN_FLIGHT_CHUNKS = Math.max(2, Runtime.getRuntime().availableProcessors());
+        private static final Set<String> STATUSES = Set.of("Pending", "Approved", "Rejected");
+
+        private final LeaveSystem system;
+        private final Consumer<ImportProgress> progressListener;
+
+        public BulkImporter(LeaveSystem system, Consumer<ImportProgress> progressListener) {
+            this.system = system;
+            this.progressListener = progressListener;
+        }
+
+        public ImportProgress importEmployees(Path csv) throws IOException, InterruptedException {
+            return run(csv, new String[] { "id", "name", "leave_balance", "is_manager" }, BulkImporter::parseEmployee,
+                    this::writeEmployees);
+        }
+
+        public ImportProgress importLeaveRequests(Path csv) throws IOException, InterruptedException {
+            return run(csv, new String[] { "employee_id", "leave_type", "start_date", "end_date", "status" },
+                    BulkImporter::parseLeaveRequest, this::writeLeaveRequests);
+        }
+
+        private <T> ImportProgress run(Path csv, String[] expectedHeader, RowParser<T> parser, ChunkWriter<T> writer)
+                throws IOException, InterruptedException {
+            Path errorFile = csv.resolveSibling(csv.getFileName() + ".errors.csv");
+            ImportProgress progress = new ImportProgress(csv.getFileName().toString(), errorFile);
+            ExecutorService validators = Executors.newFixedThreadPool(IN_FLIGHT_CHUNKS);
+            ArrayBlockingQueue<Future<List<ParsedRow<T>>>> pipeline = new ArrayBlockingQueue<>(IN_FLIGHT_CHUNKS);
+            Future<List<ParsedRow<T>>> endOfInput = CompletableFuture.completedFuture(null);
+            Thread writerThread = null;
+            try (CsvReader reader = new CsvReader(Files.newBufferedReader(csv, StandardCharsets.UTF_8));
+                 BufferedWriter errors = Files.newBufferedWriter(errorFile, StandardCharsets.UTF_8)) {
+                errors.write("line,error");
+                errors.newLine();
+                String[] header = reader.next();
+                if (header == null) return progress.finish();
+                checkHeader(header, expectedHeader);
+
+                AtomicReference<IOException> writeFailure = new AtomicReference<>();
+                writerThread = new Thread(() -> {
+                    try {
+                        while (true) {
+                            Future<List<ParsedRow<T>>> next = pipeline.take();
+                            if (next == endOfInput) break;
+                            List<ParsedRow<T>> rows = next.get();
+                            List<ParsedRow<T>> valid = new ArrayList<>(rows.size());
+                            for (ParsedRow<T> row : rows) {
+                                if (row.error != null) {
+                                    reportError(errors, progress, row.line, row.error);
+                                } else {
+                                    valid.add(row);
+                                }
+                            }
+                            writer.write(valid, errors, progress);
+                            progress.chunkDone();
+                            progressListener.accept(progress);
+                        }
+                    } catch (IOException e) {
+                        writeFailure.set(e);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } catch (ExecutionException e) {
+                        writeFailure.set(new IOException("Validation failed", e.getCause()));
+                    } catch (RuntimeException e) {
+                        writeFailure.set(new IOException("Import failed: " + e.getMessage(), e));
+                    }
+                }, "bulk-import-writer");
+                writerThread.start();
+
+                List<String[]> records = new ArrayList<>(CHUNK_SIZE);
+                List<Long> lines = new ArrayList<>(CHUNK_SIZE);
+                String[] record;
+                while ((record = reader.next()) != null) {
+                    if (record.length == 1 && record[0].isEmpty()) continue;
+                    records.add(record);
+                    lines.add(reader.getRecordStartLine());
+                    progress.rowRead();
+                    if (records.size() == CHUNK_SIZE) {
+                        enqueue(pipeline, submitValidation(validators, records, lines, parser), writerThread, writeFailure);
+                        records = new ArrayList<>(CHUNK_SIZE);
+                        lines = new ArrayList<>(CHUNK_SIZE);
+                    }
                 }
-            } catch (SQLException e) {
-                e.printStackTrace();
+                if (!records.isEmpty()) enqueue(pipeline, submitValidation(validators, records, lines, parser), writerThread, writeFailure);
+                enqueue(pipeline, endOfInput, writerThread, writeFailure);
+                writerThread.join();
+                writerThread = null;
+                if (writeFailure.get() != null) throw writeFailure.get();
+            } finally {
+                if (writerThread != null) writerThread.interrupt();
+                validators.shutdownNow();
             }
-            return requests;
+            return progress.finish();
         }
-        
-        public LeaveRequest findRequestById(int requestId) {
-            String sql = "SELECT * FROM leave_requests WHERE request_id = ?";
-            try (Connection conn = getConnection();
-                PreparedStatement pstmt = conn.prepareStatement(sql)) {
-                pstmt.setInt(1, requestId);
-                try (ResultSet rs = pstmt.executeQuery()) {
-                    if (rs.next()) {
-                        return mapRowToLeaveRequest(rs);
+
+        private static <T> void enqueue(ArrayBlockingQueue<Future<List<ParsedRow<T>>>> pipeline, Future<List<ParsedRow<T>>> chunk,
+                                        Thread writerThread, AtomicReference<IOException> writeFailure)
+                throws IOException, InterruptedException {
+            do {
+                if (writeFailure.get() != null) throw writeFailure.get();
+                if (!writerThread.isAlive()) throw new IOException("The import writer stopped unexpectedly");
+            } while (!pipeline.offer(chunk, 100, TimeUnit.MILLISECONDS));
+        }
+
+        private static <T> Future<List<ParsedRow<T>>> submitValidation(ExecutorService validators, List<String[]> records,
+                                                                        List<Long> lines, RowParser<T> parser) {
+            return validators.submit(() -> {
+                List<ParsedRow<T>> parsed = new ArrayList<>(records.size());
+                for (int i = 0; i < records.size(); i++) {
+                    try {
+                        parsed.add(new ParsedRow<>(lines.get(i), parser.parse(records.get(i)), null));
+                    } catch (IllegalArgumentException e) {
+                        parsed.add(new ParsedRow<>(lines.get(i), null, e.getMessage()));
                     }
                 }
-            } catch (SQLException e) {
-                e.printStackTrace();
+                return parsed;
+            });
+        }
+
+        private void writeEmployees(List<ParsedRow<Employee>> rows, BufferedWriter errors, ImportProgress progress) throws IOException {
+            List<String> ids = new ArrayList<>(rows.size());
+            for (ParsedRow<Employee> row : rows) ids.add(row.value.getId());
+            Set<String> existing = system.findExistingEmployeeIds(ids);
+            Set<String> seen = new HashSet<>();
+            List<ParsedRow<Employee>> accepted = new ArrayList<>(rows.size());
+            for (ParsedRow<Employee> row : rows) {
+                String id = row.value.getId();
+                if (existing.contains(id) || !seen.add(id)) {
+                    reportError(errors, progress, row.line, "An employee with ID '" + id + "' already exists.");
+                } else {
+                    accepted.add(row);
+                }
             }
-            return null;
+            List<Employee> batch = new ArrayList<>(accepted.size());
+            for (ParsedRow<Employee> row : accepted) batch.add(row.value);
+            recordWrite(system.importEmployees(batch), accepted, errors, progress);
         }
 
-        public void updateLeaveRequestStatus(int requestId, String status) {
-            String sql = "UPDATE leave_requests SET status = ? WHERE request_id = ?";
-            try (Connection conn = getConnection();
-                PreparedStatement pstmt = conn.prepareStatement(sql)) {
-                pstmt.setString(1, status);
-                pstmt.setInt(2, requestId);
-                pstmt.executeUpdate();
-            } catch (SQLException e) {
-                e.printStackTrace();
+        private void writeLeaveRequests(List<ParsedRow<LeaveRequest>> rows, BufferedWriter errors, ImportProgress progress) throws IOException {
+            Set<String> employeeIds = new HashSet<>();
+            for (ParsedRow<LeaveRequest> row : rows) employeeIds.add(row.value.getEmployeeId());
+            Set<String> existing = system.findExistingEmployeeIds(employeeIds);
+            List<ParsedRow<LeaveRequest>> accepted = new ArrayList<>(rows.size());
+            for (ParsedRow<LeaveRequest> row : rows) {
+                if (existing.contains(row.value.getEmployeeId())) {
+                    accepted.add(row);
+                } else {
+                    reportError(errors, progress, row.line, "Employee with ID '" + row.value.getEmployeeId() + "' not found.");
+                }
             }
+            List<LeaveRequest> batch = new ArrayList<>(accepted.size());
+            for (ParsedRow<LeaveRequest> row : accepted) batch.add(row.value);
+            recordWrite(system.importLeaveRequests(batch), accepted, errors, progress);
         }
-        
-        public void updateEmployeeBalance(String employeeId, int newBalance) {
-            String sql = "UPDATE employees SET leave_balance = ? WHERE id = ?";
-            try (Connection conn = getConnection();
-                PreparedStatement pstmt = conn.prepareStatement(sql)) {
-                pstmt.setInt(1, newBalance);
-                pstmt.setString(2, employeeId);
-                pstmt.executeUpdate();
-            } catch (SQLException e) {
-                e.printStackTrace();
+
+        private static <T> void recordWrite(int inserted, List<ParsedRow<T>> accepted, BufferedWriter errors,
+                                            ImportProgress progress) throws IOException {
+            if (inserted == accepted.size()) {
+                progress.imported(inserted);
+                return;
+            }
+            for (ParsedRow<T> row : accepted) {
+                reportError(errors, progress, row.line, "Chunk was not written because of a database error; see the application log.");
             }
         }
 
-        private LeaveRequest mapRowToLeaveRequest(ResultSet rs) throws SQLException {
-            int id = rs.getInt("request_id");
-            String empId = rs.getString("employee_id");
-            String type = rs.getString("leave_type");
-            String start = rs.getString("start_date");
-            String end = rs.getString("end_date");
-            String status = rs.getString("status");
-            return new LeaveRequest(id, empId, type, start, end, status);
+        private static void reportError(BufferedWriter errors, ImportProgress progress, long line, String message) throws IOException {
+            StringBuilder sb = new StringBuilder().append(line).append(",\"").append(message.replace("\"", "\"\"")).append('"');
+            errors.write(sb.toString());
+            errors.newLine();
+            progress.failed();
+        }
+
+        private static void checkHeader(String[] header, String[] expected) throws IOException {
+            if (header.length < expected.length) {
+                throw new IOException("Expected CSV header " + String.join(",", expected) + " but found " + String.join(",", header));
+            }
+            for (int i = 0; i < expected.length; i++) {
+                if (!expected[i].equalsIgnoreCase(header[i].trim().replace("﻿", ""))) {
+                    throw new IOException("Expected CSV header " + String.join(",", expected) + " but found " + String.join(",", header));
+                }
+            }
+        }
+
+        private static Employee parseEmployee(String[] fields) {
+            if (fields.length < 2) throw new IllegalArgumentException("Expected at least id and name.");
+            String id = fields[0].trim();
+            String name = fields[1].trim();
+            if (id.isEmpty() || name.isEmpty()) throw new IllegalArgumentException("Employee ID and Name fields are required.");
+            if (id.length() > 50) throw new IllegalArgumentException("Employee ID is longer than 50 characters.");
+            if (name.length() > 100) throw new IllegalArgumentException("Employee name is longer than 100 characters.");
+            int balance = DEFAULT_LEAVE_BALANCE;
+            if (fields.length > 2 && !fields[2].trim().isEmpty()) {
+                try {
+                    balance = Integer.parseInt(fields[2].trim());
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("leave_balance '" + fields[2] + "' is not a number.");
+                }
+            }
+            boolean manager = fields.length > 3 && parseBoolean(fields[3].trim());
+            return manager ? new Manager(id, name, balance) : new Employee(id, name, balance);
+        }
+
+        private static LeaveRequest parseLeaveRequest(String[] fields) {
+            if (fields.length < 4) throw new IllegalArgumentException("Expected employee_id, leave_type, start_date and end_date.");
+            String employeeId = fields[0].trim();
+            String leaveType = fields[1].trim();
+            String startDate = fields[2].trim();
+            String endDate = fields[3].trim();
+            if (employeeId.isEmpty()) throw new IllegalArgumentException("employee_id is required.");
+            String problem = LeaveRequest.validate(leaveType, startDate, endDate);
+            if (problem != null) throw new IllegalArgumentException(problem);
+            String status = fields.length > 4 && !fields[4].trim().isEmpty() ? fields[4].trim() : "Pending";
+            if (!STATUSES.contains(status)) throw new IllegalArgumentException("Unknown status '" + status + "'.");
+            return new LeaveRequest(0, employeeId, leaveType, startDate, endDate, status);
+        }
+
+        private static boolean parseBoolean(String value) {
+            switch (value.toLowerCase()) {
+                case "true": case "1": case "yes": case "y": return true;
+                case "false": case "0": case "no": case "n": case "": return false;
+                default: throw new IllegalArgumentException("is_manager '" + value + "' is not a boolean.");
+            }
+        }
+
+        private interface RowParser<T> {
+            T parse(String[] fields);
+        }
+
+        private interface ChunkWriter<T> {
+            void write(List<ParsedRow<T>> rows, BufferedWriter errors, ImportProgress progress) throws IOException;
+        }
+
+        private static class ParsedRow<T> {
+            private final long line;
+            private final T value;
+            private final String error;
+
+            ParsedRow(long line, T value, String error) {
+                this.line = line;
+                this.value = value;
+                this.error = error;
+            }
+        }
+    }
+
+    static class ImportProgress {
+        private final String source;
+        private final Path errorFile;
+        private final long startNanos = System.nanoTime();
+        private final AtomicLong rowsRead = new AtomicLong();
+        private final AtomicLong rowsImported = new AtomicLong();
+        private final AtomicLong rowsFailed = new AtomicLong();
+        private final AtomicLong chunksWritten = new AtomicLong();
+        private volatile long finishedNanos;
+
+        ImportProgress(String source, Path errorFile) {
+            this.source = source;
+            this.errorFile = errorFile;
+        }
+
+        void rowRead() { rowsRead.incrementAndGet(); }
+        void imported(int rows) { rowsImported.addAndGet(rows); }
+        void failed() { rowsFailed.incrementAndGet(); }
+        void chunkDone() { chunksWritten.incrementAndGet(); }
+
+        ImportProgress finish() {
+            finishedNanos = System.nanoTime();
+            return this;
+        }
+
+        public long getRowsRead() { return rowsRead.get(); }
+        public long getRowsImported() { return rowsImported.get(); }
+        public long getRowsFailed() { return rowsFailed.get(); }
+        public long getChunksWritten() { return chunksWritten.get(); }
+        public Path getErrorFile() { return errorFile; }
+
+        public double getElapsedSeconds() {
+            long end = finishedNanos == 0 ? System.nanoTime() : finishedNanos;
+            return (end - startNanos) / 1e9;
+        }
+
+        public double getRowsPerSecond() {
+            double elapsed = getElapsedSeconds();
+            return elapsed == 0 ? 0 : (rowsImported.get() + rowsFailed.get()) / elapsed;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: read=%d imported=%d failed=%d elapsed=%.1fs throughput=%.0f rows/s",
+                    source, getRowsRead(), getRowsImported(), getRowsFailed(), getElapsedSeconds(), getRowsPerSecond());
         }
     }
 
@@ -664,6 +8660,10 @@ public class LeaveManagementApp {
         public InsufficientLeaveException(String message) { super(message); }
     }
 
+    static class LeavePolicyException extends Exception {
+        public LeavePolicyException(String message) { super(message); }
+    }
+
     static class Employee {
         private String id;
         private String name;
@@ -676,22 +8676,27 @@ public class LeaveManagementApp {
         public String getId() { return id; }
         public String getName() { return name; }
         public int getLeaveBalance() { return leaveBalance; }
-        public void submitLeaveRequest(LeaveSystem system, LeaveRequest request) throws InsufficientLeaveException {
-            if (this.leaveBalance < 1) {
-                throw new InsufficientLeaveException("Insufficient leave balance. You have " + this.leaveBalance + " days left.");
+        public LeaveRequest submitLeaveRequest(LeaveSystem system, LeaveRequest request) throws InsufficientLeaveException, LeavePolicyException {
+            if (request.getDays() > LEAVE_DURATION_DAYS) {
+                throw new LeavePolicyException("A single leave request cannot be longer than " + LEAVE_DURATION_DAYS + " days.");
             }
-            system.addLeaveRequest(request);
+            return system.submitLeaveRequest(this, request);
         }
     }
 
     static class Manager extends Employee {
         public Manager(String id, String name, int leaveBalance) { super(id, name, leaveBalance); }
-        public void approveLeaveRequest(LeaveSystem system, LeaveRequest request) {
-            system.updateLeaveRequestStatus(request.getId(), "Approved");
-            system.updateLeaveBalance(request.getEmployeeId(), -1); 
+        public ProcessOutcome approveLeaveRequest(LeaveSystem system, LeaveRequest request) {
+            return system.approveLeaveRequest(request, request.getDays(), getId());
+        }
+        public ProcessOutcome rejectLeaveRequest(LeaveSystem system, LeaveRequest request) { 
+            return system.rejectLeaveRequest(request, getId());
+        }
+        public Map<Integer, ProcessOutcome> approveLeaveRequests(LeaveSystem system, List<Integer> requestIds) {
+            return system.approveAll(requestIds, getId());
         }
-        public void rejectLeaveRequest(LeaveSystem system, LeaveRequest request) { 
-            system.updateLeaveRequestStatus(request.getId(), "Rejected");
+        public Map<Integer, ProcessOutcome> rejectLeaveRequests(LeaveSystem system, List<Integer> requestIds) {
+            return system.rejectAll(requestIds, getId());
         }
     }
 
@@ -726,38 +8731,398 @@ public class LeaveManagementApp {
         public String getLeaveType() { return leaveType; }
         public String getStartDate() { return startDate; }
         public String getEndDate() { return endDate; }
+        public int getDays() {
+            return (int) ChronoUnit.DAYS.between(LocalDate.parse(startDate), LocalDate.parse(endDate)) + 1;
+        }
+
+        public static String validate(String leaveType, String startDate, String endDate) {
+            if (leaveType.isEmpty() || startDate.isEmpty() || endDate.isEmpty()) {
+                return "All leave request fields are required.";
+            }
+            if (leaveType.length() > 50) return "Leave type is longer than 50 characters.";
+            try {
+                if (LocalDate.parse(endDate).isBefore(LocalDate.parse(startDate))) {
+                    return "End date cannot be before the start date.";
+                }
+            } catch (DateTimeParseException ex) {
+                return "Dates must use the YYYY-MM-DD format.";
+            }
+            return null;
+        }
 
         @Override
         public String toString() {
-            return String.format("[Request #%d] Emp ID: %s, Type: %s, From: %s To: %s, Status: %s", 
-                        id, employeeId, leaveType, startDate, endDate, status);
+            return String.format("%s Emp ID: %s, Type: %s, From: %s To: %s, Status: %s",
+                        id > 0 ? "[Request #" + id + "]" : "[Not saved yet]", employeeId, leaveType, startDate, endDate, status);
         }
     }
 
     static class LeaveSystem {
-        private DatabaseManager dbManager;
+        private static final int EMPLOYEE_CACHE_MAX_ENTRIES = Integer.getInteger("leave.cache.maxEntries", 10_000);
+        private static final long EMPLOYEE_CACHE_TTL_MILLIS = Long.getLong("leave.cache.ttlMillis", 60_000L);
+
+        private final LeaveStore store;
+        private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        private final EmployeeCache employeeCache = new EmployeeCache(EMPLOYEE_CACHE_MAX_ENTRIES, EMPLOYEE_CACHE_TTL_MILLIS);
+        private final LeaveIntervalIndex intervalIndex;
+        private final AbsenceCalendar absenceCalendar = new AbsenceCalendar(Integer.getInteger("leave.calendar.maxAbsentPerDay", 5));
+        private final EmployeeDirectory employeeDirectory = new EmployeeDirectory();
+        private CompletableFuture<Void> directoryLoad;
+        private final LeaveAnalytics analytics = new LeaveAnalytics(Integer.getInteger("leave.analytics.rebuildThreads",
+                Runtime.getRuntime().availableProcessors()));
+        private final AuditJournal auditJournal;
+        private final AuditShipper auditShipper;
+        private final SubmissionQueue submissionQueue;
+
+        public LeaveSystem() throws SQLException, IOException {
+            this(LeaveStore.open(System.getProperty("leave.storage", "mysql")));
+        }
+
+        public LeaveSystem(LeaveStore store) {
+            this(store, AuditJournal.fromSystemProperties());
+        }
+
+        public LeaveSystem(LeaveStore store, AuditJournal auditJournal) {
+            this.store = DataLayerMetrics.getInstance().instrument(store);
+            this.intervalIndex = new LeaveIntervalIndex(this.store);
+            this.auditJournal = auditJournal;
+            if (auditJournal != null && store instanceof DatabaseManager && Boolean.getBoolean("leave.audit.ship")) {
+                auditShipper = new AuditShipper(auditJournal.getDirectory(), (DatabaseManager) store);
+                auditShipper.start();
+            } else {
+                auditShipper = null;
+            }
+            if (store instanceof DatabaseManager && Boolean.parseBoolean(System.getProperty("leave.queue.enabled", "true"))) {
+                try {
+                    submissionQueue = new SubmissionQueue(Paths.get(System.getProperty("leave.queue.dir", "queue")),
+                            ((DatabaseManager) store)::insertSubmissions, this::submissionsSaved);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Could not open the submission queue", e);
+                }
+            } else {
+                submissionQueue = null;
+            }
+        }
+
+        private void submissionsSaved(List<QueuedSubmission> batch, Map<String, Integer> requestIds) {
+            List<LeaveRequest> saved = new ArrayList<>(batch.size());
+            for (QueuedSubmission submission : batch) {
+                int id = requestIds.getOrDefault(submission.getSubmissionId(), 0);
+                if (id <= 0) continue;
+                LeaveRequest stored = stored(id, submission.getRequest());
+                intervalIndex.added(stored);
+                absenceCalendar.added(stored);
+                analytics.submitted(stored, submission.getAcceptedAt());
+                saved.add(stored);
+            }
+            for (LeaveRequest stored : saved) audit(AuditAction.SUBMIT, stored.getEmployeeId(), List.of(stored));
+        }
+
+        private void audit(AuditAction action, String actor, String employeeId, int requestId, String detail) {
+            if (auditJournal != null) auditJournal.append(List.of(new AuditEvent(action, actor, employeeId, requestId, detail)));
+        }
+
+        private void audit(AuditAction action, String actor, List<LeaveRequest> requests) {
+            if (auditJournal == null || requests.isEmpty()) return;
+            List<AuditEvent> events = new ArrayList<>(requests.size());
+            for (LeaveRequest req : requests) {
+                events.add(new AuditEvent(action, actor, req.getEmployeeId(), req.getId(), auditDetail(action, req)));
+            }
+            auditJournal.append(events);
+        }
+
+        private static String auditDetail(AuditAction action, LeaveRequest req) {
+            if (action == AuditAction.REJECT) return req.getStartDate() + " to " + req.getEndDate();
+            return req.getLeaveType() + " " + req.getStartDate() + " to " + req.getEndDate() + " (" + req.getDays() + " days)";
+        }
 
-        public LeaveSystem() throws SQLException {
-            dbManager = new DatabaseManager();
+        public void addEmployee(Employee emp, String actor) {
+            employeeCache.invalidate(emp.getId());
+            store.addEmployee(emp);
+            employeeDirectory.added(emp);
+            audit(AuditAction.ADD_EMPLOYEE, actor, emp.getId(), 0, (emp instanceof Manager ? "manager " : "employee ")
+                    + emp.getName() + ", balance " + emp.getLeaveBalance());
+        }
+        public boolean removeEmployee(String employeeId, String actor) {
+            Employee before = store.findEmployeeById(employeeId);
+            List<LeaveRequest> removed = store.getRequestsForEmployee(employeeId);
+            if (!store.removeEmployee(employeeId)) return false;
+            employeeCache.invalidate(employeeId);
+            employeeDirectory.removed(employeeId);
+            intervalIndex.invalidate(employeeId);
+            for (LeaveRequest req : removed) {
+                absenceCalendar.removed(req);
+                analytics.removed(req);
+            }
+            audit(AuditAction.REMOVE_EMPLOYEE, actor, employeeId, 0, (before == null ? "" : before.getName() + ", balance "
+                    + before.getLeaveBalance() + ", ") + removed.size() + " leave requests deleted");
+            return true;
+        }
+        public void addLeaveRequest(LeaveRequest request) {
+            int id = store.addLeaveRequest(request);
+            if (id > 0) {
+                LeaveRequest stored = stored(id, request);
+                intervalIndex.added(stored);
+                absenceCalendar.added(stored);
+                analytics.added(stored);
+            }
+        }
+        public LeaveRequest submitLeaveRequest(Employee employee, LeaveRequest request) throws InsufficientLeaveException, LeavePolicyException {
+            EmployeeIntervals intervals = intervalIndex.forEmployee(employee.getId());
+            intervals.lock();
+            try {
+                LeaveRequest conflict = intervals.findOverlap(request);
+                if (conflict != null) {
+                    throw new LeavePolicyException("These dates overlap request #" + conflict.getId() + " (" + conflict.getStartDate()
+                            + " to " + conflict.getEndDate() + ", " + conflict.getStatus() + ").");
+                }
+                conflict = submissionQueue == null ? null : submissionQueue.findOverlap(request);
+                if (conflict != null) {
+                    throw new LeavePolicyException("These dates overlap a request that is still being saved (" + conflict.getStartDate()
+                            + " to " + conflict.getEndDate() + ").");
+                }
+                int queuedDays = submissionQueue == null ? 0 : submissionQueue.getPendingDays(employee.getId());
+                int available = employee.getLeaveBalance() - intervals.getPendingDays() - queuedDays;
+                if (request.getDays() > available) {
+                    throw new InsufficientLeaveException("Insufficient leave balance. This request needs " + request.getDays()
+                            + " days but you have " + available + " days left after pending requests.");
+                }
+                if (submissionQueue != null) {
+                    submissionQueue.enqueue(request);
+                    return new LeaveRequest(0, request.getEmployeeId(), request.getLeaveType(), request.getStartDate(),
+                            request.getEndDate(), SubmissionQueue.QUEUED);
+                }
+                int id = store.addLeaveRequest(request);
+                if (id <= 0) throw new IllegalStateException("The leave request could not be saved. Please try again.");
+                LeaveRequest stored = stored(id, request);
+                intervals.add(stored);
+                absenceCalendar.added(stored);
+                analytics.submitted(stored, System.currentTimeMillis());
+                audit(AuditAction.SUBMIT, employee.getId(), List.of(stored));
+                return stored;
+            } finally {
+                intervals.unlock();
+            }
+        }
+        private static LeaveRequest stored(int id, LeaveRequest request) {
+            return new LeaveRequest(id, request.getEmployeeId(), request.getLeaveType(), request.getStartDate(),
+                    request.getEndDate(), request.getStatus());
         }
+        public List<LeaveRequest> getRequestsForEmployee(String employeeId) { return getRequestsForEmployee(employeeId, false); }
+        public List<LeaveRequest> getRequestsForEmployee(String employeeId, boolean includeArchived) {
+            List<LeaveRequest> result = store.getRequestsForEmployee(employeeId);
+            if (includeArchived) {
+                Map<Integer, LeaveRequest> merged = new TreeMap<>();
+                for (LeaveRequest req : store.getArchivedRequestsForEmployee(employeeId)) merged.put(req.getId(), req);
+                for (LeaveRequest req : result) merged.put(req.getId(), req);
+                result = new ArrayList<>(merged.values());
+            }
+            if (submissionQueue != null) result.addAll(submissionQueue.getQueued(employeeId));
+            return result;
+        }
+        public List<LeaveRequest> getRequestHistoryPage(LeaveHistoryQuery query, LeaveRequest after, int limit) { return store.getRequestHistoryPage(query, after, limit); }
+        public LeaveHistorySummary summarizeRequestHistory(LeaveHistoryQuery query) {
+            LeaveHistorySummary summary = store.summarizeRequestHistory(query);
+            if (summary == null || submissionQueue == null) return summary;
+            int queued = 0;
+            for (LeaveRequest req : submissionQueue.getQueued(query.getEmployeeId())) {
+                if (!SubmissionQueue.FAILED.equals(req.getStatus())) queued++;
+            }
+            return summary.withQueued(queued);
+        }
+        public int getQueuedSubmissionCount() { return submissionQueue == null ? 0 : submissionQueue.size(); }
+        public long getAuditEventsLost() { return auditJournal == null ? 0 : auditJournal.getEventsLost(); }
+        public List<LeaveRequest> archiveRequests(LocalDate cutoff, int afterRequestId, int chunkSize) {
+            List<LeaveRequest> archived = store.archiveRequests(cutoff, afterRequestId, chunkSize);
+            if (archived == null) return null;
+            Set<String> employeeIds = new HashSet<>();
+            for (LeaveRequest req : archived) {
+                absenceCalendar.removed(req);
+                analytics.removed(req);
+                employeeIds.add(req.getEmployeeId());
+            }
+            employeeIds.forEach(intervalIndex::invalidate);
+            return archived;
+        }
+        public List<LeaveRequest> getPendingRequests() { return store.getPendingRequests(); }
+        public Employee findEmployeeById(String employeeId) {
+            Employee cached = employeeCache.get(employeeId);
+            if (cached != null) return cached;
+            Employee emp = store.findEmployeeById(employeeId);
+            if (emp != null) employeeCache.put(emp);
+            return emp;
+        }
+        public LeaveRequest findRequestById(int requestId) { return store.findRequestById(requestId); }
+        public ConnectionPool.PoolStats getPoolStats() { return store.getPoolStats(); }
+        public List<String> getReplicaStatus() { return store.getReplicaStatus(); }
 
-        public void addEmployee(Employee emp) { dbManager.addEmployee(emp); }
-        public void removeEmployee(String employeeId) { dbManager.removeEmployee(employeeId); }
-        public void addLeaveRequest(LeaveRequest request) { dbManager.addLeaveRequest(request); }
-        public List<LeaveRequest> getRequestsForEmployee(String employeeId) { return dbManager.getRequestsForEmployee(employeeId); }
-        public List<LeaveRequest> getPendingRequests() { return dbManager.getPendingRequests(); }
-        public Employee findEmployeeById(String employeeId) { return dbManager.findEmployeeById(employeeId); }
-        public LeaveRequest findRequestById(int requestId) { return dbManager.findRequestById(requestId); }
+        public List<DirectoryEntry> searchEmployees(String query, int limit) {
+            if (!employeeDirectory.isLoaded()) {
+                loadEmployeeDirectoryAsync();
+                return List.of();
+            }
+            return employeeDirectory.search(query, limit);
+        }
+        public synchronized CompletableFuture<Void> loadEmployeeDirectoryAsync() {
+            if (directoryLoad == null || (directoryLoad.isDone() && !employeeDirectory.isLoaded())) {
+                directoryLoad = CompletableFuture.runAsync(() -> employeeDirectory.ensureLoaded(store), executor);
+            }
+            return directoryLoad;
+        }
+        public List<LeaveRequest> getPendingRequestsPage(PendingRequestQuery query, LeaveRequest after, int limit) { return store.getPendingRequestsPage(query, after, limit); }
+        public int countPendingRequests(PendingRequestQuery query) { return store.countPendingRequests(query); }
         
         public void updateLeaveBalance(String employeeId, int days) {
-            Employee emp = findEmployeeById(employeeId);
-            if (emp != null) {
-                int newBalance = emp.getLeaveBalance() + days;
-                dbManager.updateEmployeeBalance(employeeId, newBalance);
+            store.adjustEmployeeBalance(employeeId, days);
+            employeeCache.invalidate(employeeId);
+        }
+        public ProcessOutcome approveLeaveRequest(LeaveRequest request, int days, String actor) {
+            ProcessOutcome outcome = store.approveLeaveRequest(request.getId(), request.getEmployeeId(), days);
+            if (outcome == ProcessOutcome.APPLIED) {
+                employeeCache.invalidate(request.getEmployeeId());
+                statusChanged(request, "Approved");
+                audit(AuditAction.APPROVE, actor, request.getEmployeeId(), request.getId(), days + " days debited");
+            }
+            return outcome;
+        }
+        public ProcessOutcome rejectLeaveRequest(LeaveRequest request, String actor) {
+            ProcessOutcome outcome = store.rejectLeaveRequest(request.getId());
+            if (outcome == ProcessOutcome.APPLIED) {
+                statusChanged(request, "Rejected");
+                audit(AuditAction.REJECT, actor, List.of(request));
+            }
+            return outcome;
+        }
+        public Map<Integer, ProcessOutcome> approveAll(List<Integer> requestIds, String actor) {
+            BulkProcessResult result = store.processRequests(requestIds, "Approved");
+            result.getDebitsByEmployee().keySet().forEach(employeeCache::invalidate);
+            for (LeaveRequest req : result.getApplied()) statusChanged(req, "Approved");
+            audit(AuditAction.APPROVE, actor, result.getApplied());
+            return result.getOutcomes();
+        }
+        public Map<Integer, ProcessOutcome> rejectAll(List<Integer> requestIds, String actor) {
+            BulkProcessResult result = store.processRequests(requestIds, "Rejected");
+            for (LeaveRequest req : result.getApplied()) statusChanged(req, "Rejected");
+            audit(AuditAction.REJECT, actor, result.getApplied());
+            return result.getOutcomes();
+        }
+        private void statusChanged(LeaveRequest before, String newStatus) {
+            intervalIndex.statusChanged(before, newStatus);
+            absenceCalendar.statusChanged(before, newStatus);
+            analytics.statusChanged(before, newStatus, System.currentTimeMillis());
+        }
+        public List<DayCoverage> getCoverage(LocalDate from, LocalDate to) {
+            absenceCalendar.ensureLoaded(store);
+            return absenceCalendar.coverage(from, to);
+        }
+        public List<DayCoverage> checkCoverage(Collection<LeaveRequest> toApprove) {
+            absenceCalendar.ensureLoaded(store);
+            return absenceCalendar.overLimitIfApproved(toApprove);
+        }
+        public int getMaxAbsentPerDay() { return absenceCalendar.getMaxAbsentPerDay(); }
+        public AnalyticsReport getReport(AnalyticsReportType type, int limit) {
+            analytics.ensureLoaded(store, auditJournal == null ? null : auditJournal.getDirectory());
+            return analytics.report(type, limit);
+        }
+        public void rebuildAnalytics() {
+            analytics.rebuildNow(store, auditJournal == null ? null : auditJournal.getDirectory());
+        }
+        public AccrualProgress beginAccrual(String period) { return store.beginAccrual(period); }
+        public List<Employee> getAllEmployees() { return store.getAllEmployees(); }
+        public List<LedgerEntry> getLedger(String employeeId) { return store.getLedger(employeeId); }
+        public int getLedgerBalance(String employeeId) { return store.getLedgerBalance(employeeId); }
+        public int snapshotBalances() { return store.snapshotBalances(); }
+        public BalanceRebuildResult rebuildBalances(String afterEmployeeId, String upToEmployeeId) {
+            BalanceRebuildResult result = store.rebuildBalances(afterEmployeeId, upToEmployeeId);
+            if (result.getBalancesCorrected() > 0) employeeCache.invalidateAll();
+            return result;
+        }
+        public AccrualProgress accrueNextChunk(AccrualProgress progress, AccrualPolicy policy, int chunkSize) {
+            AccrualProgress next = store.accrueNextChunk(progress, policy, chunkSize);
+            employeeCache.invalidateAll();
+            return next;
+        }
+        public EmployeeCache.CacheStats getEmployeeCacheStats() { return employeeCache.getStats(); }
+        public long streamLeaveRequests(LeaveRequestFilter filter, LeaveRequestSink sink) throws IOException { return store.streamLeaveRequests(filter, sink); }
+        public Set<String> findExistingEmployeeIds(Collection<String> employeeIds) { return store.findExistingEmployeeIds(employeeIds); }
+        public int importEmployees(List<Employee> batch) {
+            int inserted = store.importEmployees(batch);
+            if (inserted > 0) employeeDirectory.invalidate();
+            return inserted;
+        }
+        public int importLeaveRequests(List<LeaveRequest> batch) {
+            int inserted = store.importLeaveRequests(batch);
+            for (LeaveRequest req : batch) intervalIndex.invalidate(req.getEmployeeId());
+            if (inserted == batch.size()) {
+                for (LeaveRequest req : batch) {
+                    absenceCalendar.added(req);
+                    analytics.added(req);
+                }
+            } else {
+                absenceCalendar.invalidate();
+                analytics.invalidate();
             }
+            return inserted;
         }
         public void updateLeaveRequestStatus(int requestId, String status) {
-            dbManager.updateLeaveRequestStatus(requestId, status);
+            LeaveRequest before = store.findRequestById(requestId);
+            store.updateLeaveRequestStatus(requestId, status);
+            if (before != null) statusChanged(before, status);
+        }
+
+        public <T> CompletableFuture<T> supplyAsync(Supplier<T> task) {
+            return CompletableFuture.supplyAsync(task, executor);
+        }
+
+        public CompletableFuture<Void> runAsync(Runnable task) {
+            return CompletableFuture.runAsync(task, executor);
+        }
+
+        public CompletableFuture<Employee> findEmployeeByIdAsync(String employeeId) { return supplyAsync(() -> findEmployeeById(employeeId)); }
+        public CompletableFuture<LeaveRequest> findRequestByIdAsync(int requestId) { return supplyAsync(() -> findRequestById(requestId)); }
+        public CompletableFuture<List<LeaveRequest>> getRequestHistoryPageAsync(LeaveHistoryQuery query, LeaveRequest after, int limit) { return supplyAsync(() -> getRequestHistoryPage(query, after, limit)); }
+        public CompletableFuture<LeaveHistorySummary> summarizeRequestHistoryAsync(LeaveHistoryQuery query) { return supplyAsync(() -> summarizeRequestHistory(query)); }
+        public CompletableFuture<List<LeaveRequest>> getPendingRequestsAsync() { return supplyAsync(this::getPendingRequests); }
+        public CompletableFuture<List<LeaveRequest>> getPendingRequestsPageAsync(PendingRequestQuery query, LeaveRequest after, int limit) { return supplyAsync(() -> getPendingRequestsPage(query, after, limit)); }
+        public CompletableFuture<Integer> countPendingRequestsAsync(PendingRequestQuery query) { return supplyAsync(() -> countPendingRequests(query)); }
+        public CompletableFuture<List<DayCoverage>> getCoverageAsync(LocalDate from, LocalDate to) { return supplyAsync(() -> getCoverage(from, to)); }
+        public CompletableFuture<AnalyticsReport> getReportAsync(AnalyticsReportType type, int limit) { return supplyAsync(() -> getReport(type, limit)); }
+        public CompletableFuture<List<DayCoverage>> checkCoverageAsync(Collection<LeaveRequest> toApprove) { return supplyAsync(() -> checkCoverage(toApprove)); }
+        public CompletableFuture<Void> addEmployeeAsync(Manager manager, Employee emp) { return runAsync(() -> addEmployee(emp, manager.getId())); }
+        public CompletableFuture<Boolean> removeEmployeeAsync(Manager manager, String employeeId) { return supplyAsync(() -> removeEmployee(employeeId, manager.getId())); }
+
+        public CompletableFuture<LeaveRequest> submitLeaveRequestAsync(Employee employee, LeaveRequest request) {
+            return supplyAsync(() -> {
+                try {
+                    return employee.submitLeaveRequest(this, request);
+                } catch (InsufficientLeaveException | LeavePolicyException e) {
+                    throw new CompletionException(e);
+                }
+            });
+        }
+
+        public CompletableFuture<ProcessOutcome> approveLeaveRequestAsync(Manager manager, LeaveRequest request) {
+            return supplyAsync(() -> manager.approveLeaveRequest(this, request));
+        }
+
+        public CompletableFuture<ProcessOutcome> rejectLeaveRequestAsync(Manager manager, LeaveRequest request) {
+            return supplyAsync(() -> manager.rejectLeaveRequest(this, request));
+        }
+
+        public CompletableFuture<Map<Integer, ProcessOutcome>> approveAllAsync(Manager manager, List<Integer> requestIds) {
+            return supplyAsync(() -> manager.approveLeaveRequests(this, requestIds));
+        }
+
+        public CompletableFuture<Map<Integer, ProcessOutcome>> rejectAllAsync(Manager manager, List<Integer> requestIds) {
+            return supplyAsync(() -> manager.rejectLeaveRequests(this, requestIds));
+        }
+
+        public void shutdown() {
+            executor.shutdown();
+            if (submissionQueue != null) submissionQueue.close();
+            if (auditJournal != null) auditJournal.close();
+            if (auditShipper != null) auditShipper.stop();
+            store.close();
         }
     }
 }